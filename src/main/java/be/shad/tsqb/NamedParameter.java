@@ -15,13 +15,26 @@
  */
 package be.shad.tsqb;
 
+import org.hibernate.type.Type;
+
 public class NamedParameter {
     private final String name;
     private final Object value;
+    private final Type type;
     
     public NamedParameter(String name, Object value) {
+        this(name, value, null);
+    }
+
+    /**
+     * @param type the hibernate type to bind the value with, the type
+     *             of a collection's elements in case of a collection, 
+     *             null to let hibernate guess the type of the value.
+     */
+    public NamedParameter(String name, Object value, Type type) {
         this.name = name;
         this.value = value;
+        this.type = type;
     }
     
     public String getName() {
@@ -31,6 +44,10 @@ public class NamedParameter {
     public Object getValue() {
         return value;
     }
+
+    public Type getType() {
+        return type;
+    }
     
     @Override
     public String toString() {
@@ -0,0 +1,105 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb;
+
+import java.util.Collection;
+
+import org.hibernate.Query;
+
+/**
+ * Binds a param of a rendered query to the hibernate query.
+ * <p>
+ * The binders are created once for the params of a query, the kind
+ * of each param is checked then instead of each time the params are bound.
+ */
+public abstract class QueryParameterBinder {
+    private static final QueryParameterBinder NAMED = new QueryParameterBinder() {
+        @Override
+        protected void bind(Query query, Object param) {
+            NamedParameter named = (NamedParameter) param;
+            query.setParameter(named.getName(), named.getValue());
+        }
+    };
+    private static final QueryParameterBinder TYPED_NAMED = new QueryParameterBinder() {
+        @Override
+        protected void bind(Query query, Object param) {
+            NamedParameter named = (NamedParameter) param;
+            query.setParameter(named.getName(), named.getValue(), named.getType());
+        }
+    };
+    private static final QueryParameterBinder NAMED_LIST = new QueryParameterBinder() {
+        @Override
+        protected void bind(Query query, Object param) {
+            NamedParameter named = (NamedParameter) param;
+            query.setParameterList(named.getName(), (Collection<?>) named.getValue());
+        }
+    };
+    private static final QueryParameterBinder TYPED_NAMED_LIST = new QueryParameterBinder() {
+        @Override
+        protected void bind(Query query, Object param) {
+            NamedParameter named = (NamedParameter) param;
+            query.setParameterList(named.getName(), (Collection<?>) named.getValue(), named.getType());
+        }
+    };
+
+    /**
+     * Binds the param, which must be of the kind the binder was created for.
+     */
+    protected abstract void bind(Query query, Object param);
+
+    /**
+     * Creates a binder for each param, in the same order.
+     */
+    public static QueryParameterBinder[] createBinders(Collection<Object> params) {
+        QueryParameterBinder[] binders = new QueryParameterBinder[params.size()];
+        int position = 0;
+        int i = 0;
+        for(Object param: params) {
+            binders[i++] = createBinder(param, position);
+            if (!(param instanceof NamedParameter)) {
+                position++;
+            }
+        }
+        return binders;
+    }
+
+    private static QueryParameterBinder createBinder(Object param, final int position) {
+        if (param instanceof NamedParameter) {
+            NamedParameter named = (NamedParameter) param;
+            if (named.getValue() instanceof Collection<?>) {
+                return named.getType() == null ? NAMED_LIST: TYPED_NAMED_LIST;
+            }
+            return named.getType() == null ? NAMED: TYPED_NAMED;
+        }
+        return new QueryParameterBinder() {
+            @Override
+            protected void bind(Query query, Object param) {
+                query.setParameter(position, param);
+            }
+        };
+    }
+
+    /**
+     * Binds the params with the binders created for params of the same kinds.
+     */
+    public static void bindParams(Query query, QueryParameterBinder[] binders, Collection<Object> params) {
+        int i = 0;
+        for(Object param: params) {
+            binders[i++].bind(query, param);
+        }
+    }
+
+}
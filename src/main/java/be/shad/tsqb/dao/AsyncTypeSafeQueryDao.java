@@ -0,0 +1,256 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import be.shad.tsqb.dao.result.QueryResult;
+import be.shad.tsqb.query.FrozenQuery;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+
+/**
+ * Executes queries on an executor, so independent queries can wait
+ * for the database at the same time.
+ * <p>
+ * The query is rendered on the calling thread, each task opens its own
+ * read-only session to execute it and closes the session when the results
+ * are transformed. Entities in the results are detached, so their lazy
+ * properties must be selected or fetched by the query.
+ * <p>
+ * At most maxConcurrentQueries queries of this dao are submitted to the executor
+ * at the same time, other queries are queued and submitted when a query completes,
+ * so waiting queries don't occupy executor threads.
+ * <p>
+ * Cancelling the future of a query with interruption cancels its jdbc statement.
+ * A query which is cancelled before its statement is prepared is not executed.
+ */
+public class AsyncTypeSafeQueryDao {
+    private final SessionFactory sessionFactory;
+    private final TypeSafeQueryDao dao;
+    private final Executor executor;
+    private final int maxConcurrentQueries;
+    private final Queue<QueryTask<?>> queued = new ArrayDeque<>();
+    private int submitted;
+
+    public AsyncTypeSafeQueryDao(SessionFactory sessionFactory, TypeSafeQueryDao dao,
+            Executor executor, int maxConcurrentQueries) {
+        if (maxConcurrentQueries <= 0) {
+            throw new IllegalArgumentException("The maximum number of concurrent queries must be positive: "
+                    + maxConcurrentQueries);
+        }
+        this.sessionFactory = sessionFactory;
+        this.dao = dao;
+        this.executor = executor;
+        this.maxConcurrentQueries = maxConcurrentQueries;
+    }
+
+    /**
+     * Freezes the query on the calling thread and submits it,
+     * the query can be changed or reused as soon as this method returns.
+     * <p>
+     * Like {@link TypeSafeQueryDao#doQuery(FrozenQuery)}, the query is always
+     * executed, even when its restrictions can't match anything.
+     */
+    public <T> Future<QueryResult<T>> doQueryAsync(TypeSafeRootQuery query) {
+        return doQueryAsync(query.freeze(), null);
+    }
+
+    /**
+     * Submits the frozen query, the named values are bound to their parameters
+     * when the query is executed, see {@link TypeSafeQueryDao#doQuery(FrozenQuery, Map)}.
+     */
+    public <T> Future<QueryResult<T>> doQueryAsync(FrozenQuery query, Map<String, ?> namedValues) {
+        QueryTask<T> task = new QueryTask<>(new QueryExecution<T>(query, namedValues));
+        synchronized (queued) {
+            if (submitted >= maxConcurrentQueries) {
+                queued.add(task);
+                return task;
+            }
+            submitted++;
+        }
+        submit(task);
+        return task;
+    }
+
+    /**
+     * @return the number of queries which can start without waiting.
+     */
+    public int getAvailableSlots() {
+        synchronized (queued) {
+            return maxConcurrentQueries - submitted;
+        }
+    }
+
+    /**
+     * Submits a task which has a slot, the task fails if the executor rejects it.
+     */
+    private void submit(QueryTask<?> task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.reject(e);
+        }
+    }
+
+    /**
+     * Passes the slot of a completed task on to the next queued task.
+     */
+    private void completed() {
+        QueryTask<?> next;
+        synchronized (queued) {
+            next = queued.poll();
+            if (next == null) {
+                submitted--;
+                return;
+            }
+        }
+        submit(next);
+    }
+
+    /**
+     * Future of a submitted query, cancels the statement of the execution
+     * when it is cancelled with interruption. Its slot is released once
+     * the query completed, or when the task is run after it was cancelled.
+     */
+    private final class QueryTask<T> extends FutureTask<QueryResult<T>> {
+        private final QueryExecution<T> execution;
+
+        QueryTask(QueryExecution<T> execution) {
+            super(execution);
+            this.execution = execution;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                execution.complete();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && mayInterruptIfRunning) {
+                execution.cancelQuery();
+            }
+            return cancelled;
+        }
+
+        void reject(RejectedExecutionException e) {
+            setException(e);
+            execution.complete();
+        }
+    }
+
+    /**
+     * Executes the query in its own session, the session is kept
+     * while the query is executed so it can be cancelled.
+     */
+    private final class QueryExecution<T> implements Callable<QueryResult<T>> {
+        private final FrozenQuery query;
+        private final Map<String, ?> namedValues;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile Session session;
+        private volatile boolean cancelled;
+
+        QueryExecution(FrozenQuery query, Map<String, ?> namedValues) {
+            this.query = query;
+            this.namedValues = namedValues;
+        }
+
+        @Override
+        public QueryResult<T> call() {
+            try {
+                Session session = sessionFactory.withOptions().
+                        interceptor(new CancelledQueryInterceptor(this)).openSession();
+                try {
+                    session.setDefaultReadOnly(true);
+                    // published before the flag is checked, a cancel after the check cancels the session:
+                    this.session = session;
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                    return dao.doQuery(session, query, namedValues);
+                } finally {
+                    this.session = null;
+                    session.close();
+                }
+            } finally {
+                complete();
+            }
+        }
+
+        void cancelQuery() {
+            cancelled = true;
+            Session session = this.session;
+            if (session != null) {
+                try {
+                    session.cancelQuery();
+                } catch (HibernateException e) {
+                    // the query completed and its session was closed in the meantime.
+                }
+            }
+        }
+
+        /**
+         * Releases the slot, only the first call has an effect.
+         */
+        void complete() {
+            if (completed.compareAndSet(false, true)) {
+                completed();
+            }
+        }
+    }
+
+    /**
+     * Checks the execution wasn't cancelled right before a statement is prepared.
+     * A cancel which arrives while the query is set up finds no statement to
+     * cancel yet, the statement is not prepared then.
+     */
+    private static final class CancelledQueryInterceptor extends EmptyInterceptor {
+        private static final long serialVersionUID = -3264021453329817265L;
+
+        private final transient QueryExecution<?> execution;
+
+        CancelledQueryInterceptor(QueryExecution<?> execution) {
+            this.execution = execution;
+        }
+
+        @Override
+        public String onPrepareStatement(String sql) {
+            if (execution.cancelled) {
+                throw new CancellationException();
+            }
+            return sql;
+        }
+    }
+}
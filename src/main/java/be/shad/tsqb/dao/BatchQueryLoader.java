@@ -0,0 +1,291 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import be.shad.tsqb.dao.result.QueryResultCollector;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+import be.shad.tsqb.selection.TypeSafeValueProjection;
+
+/**
+ * Batches point queries which only differ in the value of one key, so the results
+ * of many keys are loaded with one query instead of one query per key.
+ * <p>
+ * The query restricts the key with a named in restriction and selects the key into the
+ * result dto, the key is provided by calling its getter on the result proxy:
+ * <pre>
+ * Person person = query.from(Person.class);
+ * PersonDto dto = query.select(PersonDto.class);
+ * dto.setId(person.getId());
+ * dto.setName(person.getName());
+ * query.where(person.getId()).in().named("ids", Collections.&lt;Long&gt;emptyList());
+ * BatchQueryLoader&lt;Long, PersonDto&gt; loader = new BatchQueryLoader&lt;&gt;(dao, query, "ids", 100, dto, dto.getId());
+ * </pre>
+ * Each {@link #load(Object)} adds a key to the pending keys, the pending keys are queried when
+ * {@link #dispatch()} is called or when the results of one of them are read. The query is
+ * executed once per maxBatchSize keys and its results are split by the selected key.
+ * <p>
+ * The query is copied when the loader is created, the pending keys are bound to the
+ * named value of the copy, so the query itself is not changed and can be reused.
+ * The type of the loaded keys must be the type of the selected key property,
+ * because the results are grouped by the selected key values.
+ * <p>
+ * The query is executed with the dao in the session of the thread which dispatches,
+ * the loader is meant to be used within one request or transaction.
+ */
+public class BatchQueryLoader<K, T> {
+    private final TypeSafeQueryDao dao;
+    private final TypeSafeRootQuery query;
+    private final String keysName;
+    private final int maxBatchSize;
+    private final String keyPropertyPath;
+    private final Class<?> keyType;
+    private final Map<K, List<BatchedResult<T>>> pending = new LinkedHashMap<>();
+    private int queryCount;
+
+    /**
+     * @param keysName the name of the in restriction on the key, the pending keys are bound to it.
+     * @param key the key, provided by calling a getter on the result proxy of the query.
+     * @throws IllegalArgumentException when the key wasn't provided by calling a getter
+     *         of a property which is selected by the query.
+     */
+    public BatchQueryLoader(TypeSafeQueryDao dao, TypeSafeRootQuery query, String keysName,
+            int maxBatchSize, T resultProxy, K key) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("The maximum batch size must be positive: " + maxBatchSize);
+        }
+        this.keyPropertyPath = ((TypeSafeRootQueryInternal) query).dequeueInvokedProjectionPath();
+        if (keyPropertyPath == null) {
+            throw new IllegalArgumentException("The key must be provided by calling "
+                    + "a getter on the selection proxy of the query.");
+        }
+        this.keyType = boxed(getKeyPropertyType((TypeSafeRootQueryInternal) query, keyPropertyPath));
+        this.dao = dao;
+        this.query = query.copy();
+        this.keysName = keysName;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * The type of the selected property the key getter was called for.
+     */
+    private static Class<?> getKeyPropertyType(TypeSafeRootQueryInternal query, String keyPropertyPath) {
+        for(TypeSafeValueProjection projection: query.getProjections().getProjections()) {
+            if (keyPropertyPath.equals(projection.getPropertyPath())) {
+                return projection.getSelectionData().getPropertyType();
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+                "The key property [%s] is not selected by the query.", keyPropertyPath));
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == char.class) {
+            return Character.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == float.class) {
+            return Float.class;
+        }
+        return Double.class;
+    }
+
+    /**
+     * Adds the key to the pending keys, a key which is loaded
+     * several times before the dispatch is queried once.
+     *
+     * @return the results of the key, loaded when they are read or when the loader dispatches.
+     * @throws IllegalArgumentException when the key is not of the type of the selected key property,
+     *         its results could never be matched.
+     */
+    public synchronized BatchedResult<T> load(K key) {
+        if (key != null && !keyType.isInstance(key)) {
+            throw new IllegalArgumentException(String.format("The key [%s] of type [%s] can't be loaded, "
+                    + "the selected key property [%s] is of type [%s].", key, key.getClass().getName(),
+                    keyPropertyPath, keyType.getName()));
+        }
+        List<BatchedResult<T>> results = pending.get(key);
+        if (results == null) {
+            results = new ArrayList<>(1);
+            pending.put(key, results);
+        }
+        BatchedResult<T> result = new BatchedResult<>(this);
+        results.add(result);
+        return result;
+    }
+
+    /**
+     * Queries the pending keys, using one query per maxBatchSize keys.
+     * When a query fails, the results of its keys rethrow the failure when they are read.
+     */
+    public synchronized void dispatch() {
+        while (!pending.isEmpty()) {
+            Map<K, List<BatchedResult<T>>> batch = new HashMap<>();
+            List<K> keys = new ArrayList<>(Math.min(maxBatchSize, pending.size()));
+            for(Entry<K, List<BatchedResult<T>>> entry: pending.entrySet()) {
+                if (keys.size() == maxBatchSize) {
+                    break;
+                }
+                keys.add(entry.getKey());
+                batch.put(entry.getKey(), entry.getValue());
+            }
+            pending.keySet().removeAll(keys);
+
+            Map<K, List<T>> loaded;
+            try {
+                loaded = loadBatch(keys);
+            } catch (RuntimeException e) {
+                for(List<BatchedResult<T>> results: batch.values()) {
+                    for(BatchedResult<T> result: results) {
+                        result.fail(e);
+                    }
+                }
+                throw e;
+            }
+            for(Entry<K, List<BatchedResult<T>>> entry: batch.entrySet()) {
+                // the same results are shared by every load of the key:
+                List<T> keyResults = loaded.get(entry.getKey());
+                keyResults = keyResults == null ? Collections.<T>emptyList()
+                        : Collections.unmodifiableList(keyResults);
+                for(BatchedResult<T> result: entry.getValue()) {
+                    result.complete(keyResults);
+                }
+            }
+        }
+    }
+
+    /**
+     * Binds the keys to the in restriction and groups the results by their selected key.
+     */
+    private Map<K, List<T>> loadBatch(List<K> keys) {
+        query.named().setValue(keysName, keys);
+        queryCount++;
+        return dao.doQuery(query, new QueryResultCollector<T, Map<K, List<T>>>(keyPropertyPath) {
+            private final Map<K, List<T>> results = new HashMap<>();
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void collect(Object key, T result) {
+                List<T> group = results.get(key);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    results.put((K) key, group);
+                }
+                group.add(result);
+            }
+
+            @Override
+            public Map<K, List<T>> getCollected() {
+                return results;
+            }
+        });
+    }
+
+    /**
+     * The number of keys which were loaded but not queried yet.
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * The number of queries which were executed to load the keys.
+     */
+    public synchronized int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * The results of one loaded key.
+     */
+    public static final class BatchedResult<T> {
+        private final BatchQueryLoader<?, T> loader;
+        private List<T> results;
+        private RuntimeException failure;
+
+        private BatchedResult(BatchQueryLoader<?, T> loader) {
+            this.loader = loader;
+        }
+
+        private void complete(List<T> results) {
+            this.results = results;
+        }
+
+        private void fail(RuntimeException failure) {
+            this.failure = failure;
+        }
+
+        /**
+         * Whether the key was queried.
+         */
+        public boolean isLoaded() {
+            synchronized (loader) {
+                return results != null || failure != null;
+            }
+        }
+
+        /**
+         * Dispatches the loader if the key wasn't queried yet.
+         *
+         * @return the results of the key, in the order of the query results, can't be modified.
+         * @throws IllegalStateException when the query of the key failed.
+         */
+        public List<T> getResults() {
+            synchronized (loader) {
+                if (results == null && failure == null) {
+                    try {
+                        loader.dispatch();
+                    } catch (RuntimeException e) {
+                        // rethrown if the batch of this key wasn't queried:
+                        if (results == null && failure == null) {
+                            throw e;
+                        }
+                    }
+                }
+                if (failure != null) {
+                    throw new IllegalStateException("The batch of the key failed to load.", failure);
+                }
+                return results;
+            }
+        }
+
+        /**
+         * Delegates to {@link #getResults()} and returns the first result, null if there is none.
+         */
+        public T getFirstResult() {
+            List<T> results = getResults();
+            return results.isEmpty() ? null: results.get(0);
+        }
+    }
+}
@@ -16,8 +16,15 @@
 package be.shad.tsqb.dao;
 
 import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 
 import be.shad.tsqb.dao.result.QueryResult;
+import be.shad.tsqb.dao.result.QueryResultCollector;
+import be.shad.tsqb.dao.result.QueryResultHandler;
+import be.shad.tsqb.query.FrozenQuery;
 import be.shad.tsqb.query.TypeSafeRootQuery;
 
 public interface TypeSafeQueryDao {
@@ -36,6 +43,42 @@ public interface TypeSafeQueryDao {
      */
     <T> QueryResult<T> doQuery(TypeSafeRootQuery query);
     
+    /**
+     * Executes the query like {@link #doQuery(TypeSafeRootQuery)}, but passes the results
+     * to the collector while the rows are scrolled instead of listing them,
+     * see {@link be.shad.tsqb.dao.result.QueryResultCollectors}.
+     * <p>
+     * The result cache and the spill hints are not used for collected results.
+     *
+     * @return the collected results.
+     * @throws IllegalArgumentException when the key property of the collector was not selected.
+     */
+    <T, R> R doQuery(TypeSafeRootQuery query, QueryResultCollector<T, R> collector);
+
+    /**
+     * Delegates to {@link #doQuery(FrozenQuery, Map)} without named values,
+     * the query is executed with the values it had when it was frozen.
+     */
+    <T> QueryResult<T> doQuery(FrozenQuery query);
+
+    /**
+     * Executes the frozen query in the current session, the named values are bound
+     * to their parameters for this execution only. The frozen query is not modified,
+     * so it can be executed by several threads at the same time.
+     * <p>
+     * Unlike {@link #doQuery(TypeSafeRootQuery)}, the query is always executed,
+     * even when its restrictions can't match anything.
+     *
+     * @throws IllegalArgumentException when a named value can't be bound.
+     */
+    <T> QueryResult<T> doQuery(FrozenQuery query, Map<String, ?> namedValues);
+
+    /**
+     * Executes the frozen query like {@link #doQuery(FrozenQuery, Map)},
+     * using the given session instead of the current session.
+     */
+    <T> QueryResult<T> doQuery(Session session, FrozenQuery query, Map<String, ?> namedValues);
+
     /**
      * Delegates to {@link #doQuery(TypeSafeRootQuery)} and returns the first result.
      */
@@ -45,4 +88,30 @@ public interface TypeSafeQueryDao {
      * Delegates to {@link #doQuery(TypeSafeRootQuery)} and returns the results.
      */
     <T> List<T> doQueryResults(TypeSafeRootQuery query);
+
+    /**
+     * Checks if the query would yield at least one result.
+     * <p>
+     * A copy of the query is executed without its projections and order bys,
+     * selecting a constant with max results 1. The query itself is not modified.
+     */
+    boolean doQueryExists(TypeSafeRootQuery query);
+
+    /**
+     * Opens a stateless session to execute the query and closes it afterwards,
+     * see {@link #doQueryStateless(StatelessSession, TypeSafeRootQuery, QueryResultHandler)}.
+     */
+    <T> void doQueryStateless(TypeSafeRootQuery query, QueryResultHandler<T> handler);
+
+    /**
+     * Executes the query with the stateless session and scrolls through the results,
+     * each result is passed to the handler as soon as it is read.
+     * <p>
+     * Entities are not kept in a persistence context, so memory use doesn't grow
+     * with the amount of results. Selected dtos are transformed one row at a time,
+     * so rows for a subselected collection are not merged into the same dto.
+     * Queries with distinct results are not supported, a stateless session doesn't
+     * guarantee one entity instance per id and rows are not compared with each other.
+     */
+    <T> void doQueryStateless(StatelessSession session, TypeSafeRootQuery query, QueryResultHandler<T> handler);
 }
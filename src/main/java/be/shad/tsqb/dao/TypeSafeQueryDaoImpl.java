@@ -15,29 +15,76 @@
  */
 package be.shad.tsqb.dao;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.StatelessSession;
+import org.hibernate.transform.ResultTransformer;
 
-import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.QueryParameterBinder;
+import be.shad.tsqb.dao.cache.InFlightQueries;
+import be.shad.tsqb.dao.cache.InFlightQueries.RowLoader;
+import be.shad.tsqb.dao.cache.OffHeapQueryResultCache;
 import be.shad.tsqb.dao.result.QueryResult;
+import be.shad.tsqb.dao.result.QueryResultCollector;
+import be.shad.tsqb.dao.result.QueryResultHandler;
+import be.shad.tsqb.dao.result.RowSpiller;
 import be.shad.tsqb.helper.TypeSafeQueryHelper;
 import be.shad.tsqb.helper.TypeSafeQueryHelperImpl;
 import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.query.FrozenQuery;
+import be.shad.tsqb.query.TypeSafeQueryHints;
 import be.shad.tsqb.query.TypeSafeRootQuery;
 import be.shad.tsqb.query.TypeSafeRootQueryImpl;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+import be.shad.tsqb.restrictions.RestrictionsGroup;
+import be.shad.tsqb.restrictions.RestrictionsGroupImpl;
+import be.shad.tsqb.restrictions.RestrictionsGroupOptimizer;
+import be.shad.tsqb.selection.CollectingResultTransformer;
+import be.shad.tsqb.selection.ResultCollector;
+import be.shad.tsqb.selection.TypeSafeValueProjection;
+import be.shad.tsqb.sql.SqlQuery;
+import be.shad.tsqb.sql.SqlQueryRenderer;
+import be.shad.tsqb.values.CountTypeSafeValue;
+import be.shad.tsqb.values.DirectTypeSafeValue;
+import be.shad.tsqb.values.ReferenceTypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValue;
 
 public class TypeSafeQueryDaoImpl implements TypeSafeQueryDao {
     private final SessionFactory sessionFactory;
     private final TypeSafeQueryHelper typeSafeQueryHelper;
+    private final SqlQueryRenderer sqlQueryRenderer;
+    private final OffHeapQueryResultCache resultCache;
+    private final InFlightQueries inFlightQueries = new InFlightQueries();
     
     public TypeSafeQueryDaoImpl(SessionFactory sessionFactory,
             TypeSafeQueryHelper typeSafeQueryHelper) {
+        this(sessionFactory, typeSafeQueryHelper, null);
+    }
+
+    /**
+     * @param resultCache caches the results of queries with the result cached hint, may be null.
+     */
+    public TypeSafeQueryDaoImpl(SessionFactory sessionFactory,
+            TypeSafeQueryHelper typeSafeQueryHelper, OffHeapQueryResultCache resultCache) {
         this.typeSafeQueryHelper = typeSafeQueryHelper;
         this.sessionFactory = sessionFactory;
+        this.sqlQueryRenderer = new SqlQueryRenderer(sessionFactory);
+        this.resultCache = resultCache;
     }
     
     public TypeSafeQueryDaoImpl(SessionFactory sessionFactory) {
@@ -58,32 +105,450 @@ public class TypeSafeQueryDaoImpl implements TypeSafeQueryDao {
     @Override
     @SuppressWarnings("unchecked")
     public <T> QueryResult<T> doQuery(TypeSafeRootQuery tsqbQuery) {
-        HqlQuery hqlQuery = tsqbQuery.toHqlQuery();
+        if (isUnsatisfiable((TypeSafeRootQueryInternal) tsqbQuery)) {
+            return new QueryResult<>(this.<T>toUnsatisfiableResults((TypeSafeRootQueryInternal) tsqbQuery));
+        }
+        HqlQuery hqlQuery = toQuery(tsqbQuery);
+        List<Object> cacheKey = getResultCacheKey(tsqbQuery.getHints(), hqlQuery.getHql(),
+                hqlQuery.getParams(), tsqbQuery.getFirstResult(), tsqbQuery.getMaxResults());
+        List<Object[]> cachedRows = getCachedRows(cacheKey);
+        if (cachedRows != null) {
+            return new QueryResult<>(transformRows(cachedRows, hqlQuery.getResultTransformer()));
+        }
         
         Session currentSession = sessionFactory.getCurrentSession();
-        Query query = currentSession.createQuery(hqlQuery.getHql());
-        int position = 0;
-        for(Object param: hqlQuery.getParams()) {
-            if (param instanceof NamedParameter) {
-                NamedParameter named = (NamedParameter) param;
-                if (named.getValue() instanceof Collection<?>) {
-                    query.setParameterList(named.getName(), (Collection<?>) named.getValue());
-                } else {
-                    query.setParameter(named.getName(), named.getValue());
+        Query query = createQuery(currentSession, hqlQuery);
+        prepareQuery(query, tsqbQuery, hqlQuery);
+        if (tsqbQuery.getHints().isSpillEnabled()) {
+            return listSpilling(query, hqlQuery.getResultTransformer(), tsqbQuery.getHints());
+        }
+        List<Object> flightKey = getFlightKey(tsqbQuery.getHints(), hqlQuery.getHql(),
+                hqlQuery.getParams(), tsqbQuery.getFirstResult(), tsqbQuery.getMaxResults());
+        return new QueryResult<>(list(query, hqlQuery.getResultTransformer(),
+                cacheKey, flightKey, getMaxWaitMillis(tsqbQuery.getHints())));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> QueryResult<T> doQuery(FrozenQuery frozenQuery) {
+        return doQuery(frozenQuery, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> QueryResult<T> doQuery(FrozenQuery frozenQuery, Map<String, ?> namedValues) {
+        return doQuery(sessionFactory.getCurrentSession(), frozenQuery, namedValues);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> QueryResult<T> doQuery(Session session, FrozenQuery frozenQuery, Map<String, ?> namedValues) {
+        List<Object> params = frozenQuery.getParams(namedValues);
+        List<Object> cacheKey = getResultCacheKey(frozenQuery.getHints(), frozenQuery.getHql(),
+                params, frozenQuery.getFirstResult(), frozenQuery.getMaxResults());
+        List<Object[]> cachedRows = getCachedRows(cacheKey);
+        if (cachedRows != null) {
+            return new QueryResult<>(transformRows(cachedRows, frozenQuery.getResultTransformer()));
+        }
+
+        Query query = frozenQuery.createQuery(session);
+        frozenQuery.bindParams(query, params);
+        setResultRange(query, frozenQuery.getFirstResult(), frozenQuery.getMaxResults());
+        frozenQuery.applyHints(query);
+        if (frozenQuery.getHints().isSpillEnabled()) {
+            return listSpilling(query, frozenQuery.getResultTransformer(), frozenQuery.getHints());
+        }
+        List<Object> flightKey = getFlightKey(frozenQuery.getHints(), frozenQuery.getHql(),
+                params, frozenQuery.getFirstResult(), frozenQuery.getMaxResults());
+        return new QueryResult<>(list(query, frozenQuery.getResultTransformer(),
+                cacheKey, flightKey, getMaxWaitMillis(frozenQuery.getHints())));
+    }
+
+    /**
+     * The key of the query in the result cache, null if its results are not cached.
+     */
+    private List<Object> getResultCacheKey(TypeSafeQueryHints hints, String hql,
+            Collection<Object> params, int firstResult, int maxResults) {
+        if (resultCache == null || !hints.isResultCached()) {
+            return null;
+        }
+        return OffHeapQueryResultCache.createKey(hql, params, firstResult, maxResults);
+    }
+
+    /**
+     * The key of the query in the in flight queries, null if it is not coalesced.
+     */
+    private List<Object> getFlightKey(TypeSafeQueryHints hints, String hql,
+            Collection<Object> params, int firstResult, int maxResults) {
+        if (!hints.isCoalesced()) {
+            return null;
+        }
+        return OffHeapQueryResultCache.createKey(hql, params, firstResult, maxResults);
+    }
+
+    /**
+     * The maximum time to wait for the rows of the same query in flight,
+     * the timeout of the query or the default of the in flight queries if it has none.
+     */
+    private long getMaxWaitMillis(TypeSafeQueryHints hints) {
+        return hints.getTimeout() == null ? 0: hints.getTimeout() * 1000L;
+    }
+
+    private List<Object[]> getCachedRows(List<Object> cacheKey) {
+        return cacheKey == null ? null: resultCache.get(cacheKey);
+    }
+
+    /**
+     * Lists the results of the query. When the results are cached or coalesced, the rows
+     * are listed without transformer, cached or shared, and transformed afterwards.
+     */
+    @SuppressWarnings("rawtypes")
+    private List list(final Query query, ResultTransformer transformer,
+            final List<Object> cacheKey, List<Object> flightKey, long maxWaitMillis) {
+        if (cacheKey == null && flightKey == null) {
+            query.setResultTransformer(transformer);
+            return query.list();
+        }
+        List<Object[]> rows;
+        if (flightKey == null) {
+            rows = listRows(query, cacheKey);
+        } else {
+            rows = inFlightQueries.load(flightKey, new RowLoader() {
+                @Override
+                public List<Object[]> load() {
+                    return listRows(query, cacheKey);
+                }
+            }, maxWaitMillis);
+        }
+        return transformRows(rows, transformer);
+    }
+
+    /**
+     * Lists the untransformed rows of the query and caches them if the cache key is not null.
+     */
+    private List<Object[]> listRows(Query query, List<Object> cacheKey) {
+        List<?> results = query.list();
+        List<Object[]> rows = new ArrayList<>(results.size());
+        for(Object result: results) {
+            rows.add(result instanceof Object[] ? (Object[]) result: new Object[] { result });
+        }
+        if (cacheKey != null) {
+            resultCache.put(cacheKey, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * The queries of this dao which are loading at the moment, for queries with the coalesced hint.
+     */
+    public InFlightQueries getInFlightQueries() {
+        return inFlightQueries;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T, R> R doQuery(TypeSafeRootQuery tsqbQuery, final QueryResultCollector<T, R> collector) {
+        ResultCollector resultCollector = new ResultCollector() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void collect(Object key, Object result) {
+                collector.collect(key, (T) result);
+            }
+        };
+        TypeSafeRootQueryInternal internalQuery = (TypeSafeRootQueryInternal) tsqbQuery;
+        if (isUnsatisfiable(internalQuery)) {
+            transformTuples(toUnsatisfiableTuples(internalQuery).iterator(), internalQuery.toHqlQuery().
+                    getResultTransformer(), collector.getKeyPropertyPath(), resultCollector);
+            return collector.getCollected();
+        }
+        HqlQuery hqlQuery = toQuery(tsqbQuery);
+        Query query = createQuery(sessionFactory.getCurrentSession(), hqlQuery);
+        prepareQuery(query, tsqbQuery, hqlQuery);
+
+        final ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            Iterator<Object[]> tuples = new Iterator<Object[]>() {
+                private boolean fetched;
+                private boolean hasNext;
+
+                @Override
+                public boolean hasNext() {
+                    if (!fetched) {
+                        hasNext = results.next();
+                        fetched = true;
+                    }
+                    return hasNext;
+                }
+
+                @Override
+                public Object[] next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    fetched = false;
+                    return results.get();
                 }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            transformTuples(tuples, hqlQuery.getResultTransformer(), collector.getKeyPropertyPath(), resultCollector);
+        } finally {
+            results.close();
+        }
+        return collector.getCollected();
+    }
+
+    /**
+     * Passes the results of the tuples to the collector without listing them,
+     * only results selected into a dto can be collected with a key.
+     */
+    private void transformTuples(Iterator<Object[]> tuples, ResultTransformer transformer,
+            String keyPropertyPath, ResultCollector collector) {
+        if (transformer instanceof CollectingResultTransformer) {
+            ((CollectingResultTransformer) transformer).transformTuples(tuples, keyPropertyPath, collector);
+            return;
+        }
+        if (keyPropertyPath != null) {
+            throw new IllegalArgumentException(String.format("The key property [%s] can't be "
+                    + "used, the values were not selected into a dto.", keyPropertyPath));
+        }
+        while (tuples.hasNext()) {
+            List<?> results = transformRows(Collections.singletonList(tuples.next()), transformer);
+            collector.collect(null, results.get(0));
+        }
+    }
+
+    /**
+     * Scrolls the rows of the query and spills them to a temporary file when they don't fit
+     * in the memory budget of the hints. The rows are transformed when they are read then,
+     * which is only possible when each row is transformed to a result of its own.
+     * The result cache is not used for these queries.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> QueryResult<T> listSpilling(Query query, ResultTransformer transformer, TypeSafeQueryHints hints) {
+        if (transformer instanceof CollectingResultTransformer
+                && !((CollectingResultTransformer) transformer).isResultPerTuple()) {
+            throw new UnsupportedOperationException("The results can't be spilled when they are "
+                    + "merged using identity fields or when duplicate results are skipped.");
+        }
+        RowSpiller spiller = new RowSpiller(hints.getMaxRowsInMemory(), hints.getMaxBytesInMemory());
+        boolean completed = false;
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                spiller.add(results.get());
+            }
+            QueryResult<T> queryResult;
+            if (spiller.isSpilled()) {
+                queryResult = spiller.toSpilledResult(transformer);
             } else {
-                query.setParameter(position++, param);
+                queryResult = new QueryResult<>(transformRows(spiller.getRows(), transformer));
+            }
+            completed = true;
+            return queryResult;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to spill the results.", e);
+        } finally {
+            results.close();
+            if (!completed) {
+                spiller.discard();
             }
         }
-        if (tsqbQuery.getFirstResult() >= 0) {
-            query.setFirstResult(tsqbQuery.getFirstResult());
+    }
+
+    /**
+     * Transforms the rows the way hibernate does when the query is listed with the transformer.
+     */
+    @SuppressWarnings("rawtypes")
+    private List transformRows(List<Object[]> rows, ResultTransformer transformer) {
+        List<Object> results = new ArrayList<>(rows.size());
+        for(Object[] row: rows) {
+            if (transformer != null) {
+                results.add(transformer.transformTuple(row, null));
+            } else {
+                results.add(row.length == 1 ? row[0]: row);
+            }
         }
-        if (tsqbQuery.getMaxResults() > 0) {
-            query.setMaxResults(tsqbQuery.getMaxResults());
+        return transformer == null ? results: transformer.transformList(results);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> void doQueryStateless(TypeSafeRootQuery query, QueryResultHandler<T> handler) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            doQueryStateless(session, query, handler);
+        } finally {
+            session.close();
         }
-        query.setResultTransformer(hqlQuery.getResultTransformer());
-        
-        return new QueryResult<>(query.list());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> void doQueryStateless(StatelessSession session, TypeSafeRootQuery tsqbQuery, QueryResultHandler<T> handler) {
+        if (tsqbQuery.isDistinctResults()) {
+            throw new UnsupportedOperationException("Duplicate results can't be skipped when the results "
+                    + "are scrolled with a stateless session, each row is transformed on its own.");
+        }
+        if (isUnsatisfiable((TypeSafeRootQueryInternal) tsqbQuery)) {
+            for(Object result: toUnsatisfiableResults((TypeSafeRootQueryInternal) tsqbQuery)) {
+                handler.handle((T) result);
+            }
+            return;
+        }
+        HqlQuery hqlQuery = toQuery(tsqbQuery);
+
+        Query query = createQuery(session, hqlQuery);
+        prepareQuery(query, tsqbQuery, hqlQuery);
+
+        // the transformer is applied per row, the scrollable results
+        // don't transform the list, so rows are transformed one by one:
+        ResultTransformer transformer = hqlQuery.getResultTransformer();
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                Object[] row = results.get();
+                Object result;
+                if (transformer != null) {
+                    List<Object> transformed = new ArrayList<>(1);
+                    transformed.add(transformer.transformTuple(row, null));
+                    result = transformer.transformList(transformed).get(0);
+                } else {
+                    result = row.length == 1 ? row[0]: row;
+                }
+                handler.handle((T) result);
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * Renders the query to sql when this was enabled on the query, to hql otherwise.
+     */
+    private HqlQuery toQuery(TypeSafeRootQuery tsqbQuery) {
+        if (tsqbQuery.isRenderSql()) {
+            return sqlQueryRenderer.toSqlQuery(tsqbQuery);
+        }
+        return tsqbQuery.toHqlQuery();
+    }
+
+    /**
+     * Creates an sql query for a query rendered to sql, an hql query otherwise.
+     */
+    private Query createQuery(SharedSessionContract session, HqlQuery hqlQuery) {
+        if (hqlQuery instanceof SqlQuery) {
+            return ((SqlQuery) hqlQuery).createSQLQuery(session);
+        }
+        return session.createQuery(hqlQuery.getHql());
+    }
+
+    /**
+     * Binds the params, sets the start/max results and applies the hints.
+     */
+    private void prepareQuery(Query query, TypeSafeRootQuery tsqbQuery, HqlQuery hqlQuery) {
+        bindParams(query, hqlQuery.getParams());
+        setResultRange(query, tsqbQuery.getFirstResult(), tsqbQuery.getMaxResults());
+        tsqbQuery.getHints().applyTo(query);
+    }
+
+    private void bindParams(Query query, Collection<Object> params) {
+        QueryParameterBinder.bindParams(query, QueryParameterBinder.createBinders(params), params);
+    }
+
+    private void setResultRange(Query query, int firstResult, int maxResults) {
+        if (firstResult >= 0) {
+            query.setFirstResult(firstResult);
+        }
+        if (maxResults > 0) {
+            query.setMaxResults(maxResults);
+        }
+    }
+
+    /**
+     * Checks if the restrictions of the query can't match anything, so querying can be skipped.
+     * <p>
+     * When only the where restrictions can't match anything, the query must have group bys
+     * or may only select counts or values which are not aggregated, otherwise the
+     * database would still return a row with aggregated values.
+     */
+    private boolean isUnsatisfiable(TypeSafeRootQueryInternal query) {
+        RestrictionsGroupOptimizer optimizer = new RestrictionsGroupOptimizer();
+        if (isUnsatisfiable(optimizer, query.getHavingRestrictions())) {
+            return true;
+        }
+        if (!isUnsatisfiable(optimizer, query.getRestrictions())) {
+            return false;
+        }
+        if (!query.getGroupBys().isEmpty() || isCountsSelection(query)) {
+            return true;
+        }
+        for(TypeSafeValueProjection projection: query.getProjections().getProjections()) {
+            TypeSafeValue<?> value = projection.getValue();
+            if (!(value instanceof ReferenceTypeSafeValue<?> || value instanceof DirectTypeSafeValue<?>)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isUnsatisfiable(RestrictionsGroupOptimizer optimizer, RestrictionsGroup restrictions) {
+        return restrictions instanceof RestrictionsGroupImpl
+                && optimizer.isUnsatisfiable((RestrictionsGroupImpl) restrictions);
+    }
+
+    /**
+     * Only counts are selected without grouping, the database returns one row with zero counts.
+     */
+    private boolean isCountsSelection(TypeSafeRootQueryInternal query) {
+        Deque<TypeSafeValueProjection> projections = query.getProjections().getProjections();
+        if (projections.isEmpty() || !query.getGroupBys().isEmpty()) {
+            return false;
+        }
+        for(TypeSafeValueProjection projection: projections) {
+            if (!(projection.getValue() instanceof CountTypeSafeValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the results the database would return for an unsatisfiable query:
+     * nothing, or a single row of zero counts which is transformed
+     * the same way hibernate would transform it.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> toUnsatisfiableResults(TypeSafeRootQueryInternal query) {
+        return transformRows(toUnsatisfiableTuples(query), query.toHqlQuery().getResultTransformer());
+    }
+
+    private List<Object[]> toUnsatisfiableTuples(TypeSafeRootQueryInternal query) {
+        List<Object[]> tuples = new ArrayList<>(1);
+        if (isCountsSelection(query) && query.getFirstResult() <= 0) {
+            Object[] tuple = new Object[query.getProjections().getProjections().size()];
+            Arrays.fill(tuple, 0L);
+            tuples.add(tuple);
+        }
+        return tuples;
     }
 
     /**
@@ -104,4 +569,20 @@ public class TypeSafeQueryDaoImpl implements TypeSafeQueryDao {
         QueryResult<T> queryResult = doQuery(query);
         return queryResult.getResults();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean doQueryExists(TypeSafeRootQuery query) {
+        TypeSafeRootQueryInternal existsQuery = (TypeSafeRootQueryInternal) query.copy();
+        existsQuery.getProjections().clear();
+        existsQuery.getOrderBys().clear();
+        // fetching requires the owner of the fetched association to be selected:
+        existsQuery.getDataTree().removeFetchJoins();
+        existsQuery.select(1L);
+        existsQuery.setFirstResult(-1);
+        existsQuery.setMaxResults(1);
+        return !doQuery(existsQuery).isEmpty();
+    }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao;
+
+import be.shad.tsqb.query.TypeSafeRootQuery;
+
+/**
+ * Builds a query shape which is registered in the {@link TypeSafeQueryRegistry}.
+ */
+public interface TypeSafeQueryFactory {
+
+    /**
+     * Creates the query using representative parameters,
+     * the query is rendered but not executed during the warm up.
+     */
+    TypeSafeRootQuery createQuery(TypeSafeQueryDao dao);
+
+}
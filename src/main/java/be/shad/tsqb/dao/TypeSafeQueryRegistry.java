@@ -0,0 +1,162 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao;
+
+import static java.lang.String.format;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.query.spi.QueryPlanCache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import be.shad.tsqb.exceptions.QueryWarmUpException;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.sql.SqlQueryRenderer;
+
+/**
+ * Registry of the query shapes of an application, used to warm up
+ * the query builder and hibernate at startup.
+ * <p>
+ * Each registered query is built by its factory, rendered and its hql is translated
+ * by hibernate, which keeps the translation in its query plan cache. This creates the
+ * proxy classes and validates the query as well, so broken queries fail at startup.
+ * Hql recorded in production can be registered too, it is only translated.
+ * <p>
+ * A query rendered to sql is only rendered, its parameter metadata is cached.
+ */
+public class TypeSafeQueryRegistry {
+    private final SessionFactoryImplementor sessionFactory;
+    private final TypeSafeQueryDao dao;
+    private final SqlQueryRenderer sqlQueryRenderer;
+    private final Map<String, TypeSafeQueryFactory> factories = new LinkedHashMap<>();
+    private final Set<String> recordedHqls = new LinkedHashSet<>();
+
+    public TypeSafeQueryRegistry(SessionFactory sessionFactory, TypeSafeQueryDao dao) {
+        this.sessionFactory = (SessionFactoryImplementor) sessionFactory;
+        this.dao = dao;
+        this.sqlQueryRenderer = new SqlQueryRenderer(sessionFactory);
+    }
+
+    /**
+     * Registers a query shape, the name is used to report failures.
+     * 
+     * @throws IllegalArgumentException when a query was already registered with the same name.
+     */
+    public void register(String name, TypeSafeQueryFactory factory) {
+        if (factories.containsKey(name)) {
+            throw new IllegalArgumentException(format("A query was already registered with name [%s].", name));
+        }
+        factories.put(name, factory);
+    }
+
+    /**
+     * Registers hql which was recorded from earlier executions.
+     */
+    public void registerRecordedHql(Collection<String> hqls) {
+        recordedHqls.addAll(hqls);
+    }
+
+    public Set<String> getRegisteredNames() {
+        return Collections.unmodifiableSet(factories.keySet());
+    }
+
+    /**
+     * Builds, renders and translates all registered queries using the given amount of threads.
+     * Waits until all queries are warmed up, or fails as soon as one of the queries fails,
+     * the remaining queries are cancelled in that case.
+     * 
+     * @throws QueryWarmUpException when a query fails.
+     */
+    public void warmUp(int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+            for(final Entry<String, TypeSafeQueryFactory> factory: factories.entrySet()) {
+                completionService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        warmUpQuery(factory.getKey(), factory.getValue());
+                        return null;
+                    }
+                });
+            }
+            for(final String hql: recordedHqls) {
+                completionService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        warmUpRecordedHql(hql);
+                        return null;
+                    }
+                });
+            }
+            for(int i = 0, n = factories.size() + recordedHqls.size(); i < n; i++) {
+                completionService.take().get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueryWarmUpException) {
+                throw (QueryWarmUpException) e.getCause();
+            }
+            throw new QueryWarmUpException("Failed to warm up the queries.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryWarmUpException("Interrupted while warming up the queries.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds and renders the query, and translates it when it is rendered to hql.
+     */
+    private void warmUpQuery(String name, TypeSafeQueryFactory factory) {
+        try {
+            TypeSafeRootQuery query = factory.createQuery(dao);
+            QueryPlanCache queryPlanCache = sessionFactory.getQueryPlanCache();
+            if (query.isRenderSql()) {
+                queryPlanCache.getSQLParameterMetadata(sqlQueryRenderer.toSqlQuery(query).getSql());
+            } else {
+                queryPlanCache.getHQLQueryPlan(query.toHqlQuery().getHql(), false, Collections.emptyMap());
+            }
+        } catch (RuntimeException e) {
+            throw new QueryWarmUpException(format("Failed to warm up query [%s].", name), e);
+        }
+    }
+
+    /**
+     * Translates the recorded hql.
+     */
+    private void warmUpRecordedHql(String hql) {
+        try {
+            sessionFactory.getQueryPlanCache().getHQLQueryPlan(hql, false, Collections.emptyMap());
+        } catch (RuntimeException e) {
+            throw new QueryWarmUpException(format("Failed to warm up recorded hql [%s].", hql), e);
+        }
+    }
+
+}
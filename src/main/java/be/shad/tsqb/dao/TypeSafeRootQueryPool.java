@@ -0,0 +1,70 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import be.shad.tsqb.query.TypeSafeRootQuery;
+
+/**
+ * Bounded pool of root queries which can be shared between threads.
+ * <p>
+ * A borrowed query is used by one thread to build and execute a query
+ * and is released afterwards. Released queries are reset and kept for
+ * the next borrower, together with their proxies, up to the maximum
+ * number of idle queries. Queries released beyond that are discarded.
+ */
+public class TypeSafeRootQueryPool {
+    private final TypeSafeQueryDao dao;
+    private final BlockingQueue<TypeSafeRootQuery> idleQueries;
+
+    public TypeSafeRootQueryPool(TypeSafeQueryDao dao, int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("The maximum number of idle queries must be positive: " + maxIdle);
+        }
+        this.dao = dao;
+        this.idleQueries = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * Returns an idle query, or a new query if none is idle.
+     */
+    public TypeSafeRootQuery borrow() {
+        TypeSafeRootQuery query = idleQueries.poll();
+        if (query == null) {
+            query = dao.createQuery();
+        }
+        return query;
+    }
+
+    /**
+     * Resets the query and keeps it for the next borrower if the pool isn't full.
+     * The query and anything obtained from it must no longer be used.
+     */
+    public void release(TypeSafeRootQuery query) {
+        query.reset();
+        idleQueries.offer(query);
+    }
+
+    /**
+     * @return the number of queries waiting to be borrowed.
+     */
+    public int getIdleCount() {
+        return idleQueries.size();
+    }
+
+}
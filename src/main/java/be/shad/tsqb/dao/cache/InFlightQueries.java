@@ -0,0 +1,183 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.cache;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.shad.tsqb.dao.result.RowCodec;
+import be.shad.tsqb.dao.result.RowCodec.EncodedRows;
+
+/**
+ * Coalesces identical queries which are executed at the same time, used by the dao for
+ * queries of which the hints enable {@link be.shad.tsqb.query.TypeSafeQueryHints#setCoalesced(boolean)}.
+ * <p>
+ * The first thread to execute a query loads its rows, threads which execute the same query
+ * (see {@link OffHeapQueryResultCache#createKey}) while it is loading wait for those rows
+ * instead of loading them again. The rows are shared encoded (see {@link RowCodec}), so each
+ * waiting thread decodes new row arrays and transforms them into its own results.
+ * <p>
+ * Rows which can't be encoded, such as rows with entities, can't be shared between sessions.
+ * The waiting threads load the rows themselves when that happens, when the first thread failed
+ * or when the rows weren't loaded within the maximum wait time. Waiting threads which are
+ * interrupted stop waiting and throw an exception.
+ * <p>
+ * The threads may use different sessions and transactions, a waiting thread gets the rows
+ * read by the transaction of the first thread and doesn't see its own uncommitted changes.
+ */
+public class InFlightQueries {
+    /**
+     * The default maximum time to wait for the rows of another thread, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 30000;
+
+    private final ConcurrentMap<List<Object>, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final long defaultMaxWaitMillis;
+
+    public InFlightQueries() {
+        this(DEFAULT_MAX_WAIT_MILLIS);
+    }
+
+    /**
+     * @param defaultMaxWaitMillis the maximum time to wait for the rows of another thread,
+     *                             when no maximum is passed when loading.
+     */
+    public InFlightQueries(long defaultMaxWaitMillis) {
+        if (defaultMaxWaitMillis <= 0) {
+            throw new IllegalArgumentException("The maximum wait time must be positive: " + defaultMaxWaitMillis);
+        }
+        this.defaultMaxWaitMillis = defaultMaxWaitMillis;
+    }
+
+    /**
+     * Loads the rows of a query.
+     */
+    public interface RowLoader {
+        List<Object[]> load();
+    }
+
+    /**
+     * Loads the rows, waiting at most the default maximum wait time for another thread,
+     * see {@link #load(List, RowLoader, long)}.
+     */
+    public List<Object[]> load(List<Object> key, RowLoader loader) {
+        return load(key, loader, 0);
+    }
+
+    /**
+     * Loads the rows with the loader, unless the same query is loaded already,
+     * then the rows of that query are returned when they are loaded. When they are
+     * not loaded within the maximum wait time, the rows are loaded with the loader.
+     *
+     * @param maxWaitMillis the maximum time to wait for another thread, the default when not positive.
+     * @throws IllegalStateException when the thread is interrupted while waiting for another thread.
+     */
+    public List<Object[]> load(List<Object> key, RowLoader loader, long maxWaitMillis) {
+        Flight flight = new Flight();
+        while (true) {
+            Flight inFlight = flights.putIfAbsent(key, flight);
+            if (inFlight == null) {
+                break;
+            }
+            if (inFlight.join()) {
+                coalescedCount.incrementAndGet();
+                List<Object[]> rows = inFlight.await(maxWaitMillis > 0 ? maxWaitMillis: defaultMaxWaitMillis);
+                return rows != null ? rows: loader.load();
+            }
+            // completed in the meantime, the next attempt starts a new flight.
+        }
+
+        List<Object[]> rows = null;
+        try {
+            rows = loader.load();
+            return rows;
+        } finally {
+            flights.remove(key, flight);
+            flight.complete(rows);
+        }
+    }
+
+    /**
+     * The number of executions which waited for the rows of another execution.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * The number of queries which are loading at the moment.
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    /**
+     * The execution of one query, the rows are only
+     * encoded when other threads are waiting for them.
+     */
+    private static final class Flight {
+        private boolean completed;
+        private int followers;
+        private EncodedRows rows;
+
+        synchronized boolean join() {
+            if (completed) {
+                return false;
+            }
+            followers++;
+            return true;
+        }
+
+        /**
+         * @param rows the loaded rows, null if they failed to load.
+         */
+        synchronized void complete(List<Object[]> rows) {
+            if (rows != null && followers > 0) {
+                this.rows = RowCodec.encode(rows);
+            }
+            completed = true;
+            notifyAll();
+        }
+
+        /**
+         * @return new row arrays, or null if the rows can't be shared or weren't loaded in time.
+         */
+        List<Object[]> await(long maxWaitMillis) {
+            EncodedRows encoded;
+            synchronized (this) {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (!completed) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for the rows of the same query.", e);
+                    }
+                }
+                encoded = rows;
+            }
+            return encoded == null ? null: RowCodec.decode(encoded);
+        }
+    }
+}
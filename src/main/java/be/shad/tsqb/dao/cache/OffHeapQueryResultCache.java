@@ -0,0 +1,214 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.cache;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.dao.result.RowCodec;
+import be.shad.tsqb.dao.result.RowCodec.EncodedRows;
+
+/**
+ * Caches the result rows of queries outside of the heap, so large cached results
+ * don't add to the garbage collection pauses. Used by the dao for queries of which
+ * the hints enable {@link be.shad.tsqb.query.TypeSafeQueryHints#setResultCached(boolean)}.
+ * <p>
+ * The rows are cached before they are transformed into dtos and are encoded
+ * compactly into direct buffers (see {@link RowCodec}). When the rows are read
+ * they are decoded and transformed by the result transformer of the query again,
+ * so each read returns new dto instances. Results which contain values which
+ * can't be encoded, such as entities, are not cached.
+ * <p>
+ * The least recently used results are evicted when the encoded size of all results
+ * exceeds the maximum. The cache doesn't know when the queried data changes,
+ * it must be cleared when that happens. All methods are thread safe.
+ */
+public class OffHeapQueryResultCache {
+    private final long maxBytes;
+    private final LinkedHashMap<List<Object>, EncodedRows> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param maxBytes the maximum encoded size of all cached results.
+     */
+    public OffHeapQueryResultCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates the key of a query, the query is identified by its hql,
+     * its params and the range of the results.
+     * <p>
+     * The param values are copied, see {@link #snapshot(Object)}, so changing
+     * a param after the query was executed doesn't change the key.
+     */
+    public static List<Object> createKey(String hql, Collection<Object> params, int firstResult, int maxResults) {
+        List<Object> paramValues = new ArrayList<>(params.size() * 2);
+        for(Object param: params) {
+            if (param instanceof NamedParameter) {
+                paramValues.add(((NamedParameter) param).getName());
+                paramValues.add(snapshot(((NamedParameter) param).getValue()));
+            } else {
+                paramValues.add(snapshot(param));
+            }
+        }
+        return Arrays.<Object>asList(hql, paramValues, firstResult, maxResults);
+    }
+
+    /**
+     * Copies the mutable values which are commonly used as params: dates, calendars,
+     * collections and arrays. Arrays are copied to lists so equal arrays give equal keys.
+     * Other values are expected to be immutable.
+     */
+    private static Object snapshot(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).clone();
+        }
+        if (value instanceof Calendar) {
+            return ((Calendar) value).clone();
+        }
+        if (value instanceof Set<?>) {
+            Set<Object> values = new HashSet<>();
+            for(Object element: (Set<?>) value) {
+                values.add(snapshot(element));
+            }
+            return values;
+        }
+        if (value instanceof Collection<?>) {
+            List<Object> values = new ArrayList<>(((Collection<?>) value).size());
+            for(Object element: (Collection<?>) value) {
+                values.add(snapshot(element));
+            }
+            return values;
+        }
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            List<Object> values = new ArrayList<>(length);
+            for(int i=0; i < length; i++) {
+                values.add(snapshot(Array.get(value, i)));
+            }
+            return values;
+        }
+        return value;
+    }
+
+    /**
+     * @return new arrays with the decoded rows, or null if the rows are not cached.
+     */
+    public List<Object[]> get(List<Object> key) {
+        EncodedRows encoded;
+        synchronized (this) {
+            encoded = entries.get(key);
+            if (encoded == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+        }
+        return RowCodec.decode(encoded);
+    }
+
+    /**
+     * Caches the rows, evicting the least recently used rows if necessary.
+     * 
+     * @return false if the rows were not cached because they can't be encoded
+     *         or because they are larger than the maximum size.
+     */
+    public boolean put(List<Object> key, List<Object[]> rows) {
+        EncodedRows encoded = RowCodec.encode(rows);
+        if (encoded == null || encoded.getByteSize() > maxBytes) {
+            return false;
+        }
+        synchronized (this) {
+            EncodedRows previous = entries.put(key, encoded);
+            if (previous != null) {
+                bytes -= previous.getByteSize();
+            }
+            bytes += encoded.getByteSize();
+            Iterator<EncodedRows> it = entries.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= it.next().getByteSize();
+                it.remove();
+                evictionCount++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all cached results, the statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * The encoded size of all cached results.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * The number of results which were removed to make room for other results.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Statistics snapshot, for logging.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("OffHeapQueryResultCache[entries=%d, bytes=%d/%d, hits=%d, misses=%d, evictions=%d]",
+                entries.size(), bytes, maxBytes, hitCount, missCount, evictionCount);
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.result;
+
+/**
+ * Collects the results of a query while they are transformed, instead of listing them first,
+ * see {@link be.shad.tsqb.dao.TypeSafeQueryDao#doQuery(be.shad.tsqb.query.TypeSafeRootQuery, QueryResultCollector)}.
+ * <p>
+ * A collector collects the results of one query execution, see {@link QueryResultCollectors}
+ * for the available collectors.
+ *
+ * @param <T> the result type
+ * @param <R> the type of the collected results
+ */
+public abstract class QueryResultCollector<T, R> {
+    private final String keyPropertyPath;
+
+    /**
+     * @param keyPropertyPath the property path of the key in the selected result dto,
+     *                        null if the results are collected without key.
+     */
+    protected QueryResultCollector(String keyPropertyPath) {
+        this.keyPropertyPath = keyPropertyPath;
+    }
+
+    public String getKeyPropertyPath() {
+        return keyPropertyPath;
+    }
+
+    /**
+     * Called for each result, in the order of the query results.
+     *
+     * @param key the selected value of the key property, null if there is no key property.
+     */
+    public abstract void collect(Object key, T result);
+
+    /**
+     * The collected results, called after all results were collected.
+     */
+    public abstract R getCollected();
+
+}
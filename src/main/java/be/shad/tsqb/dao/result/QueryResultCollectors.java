@@ -0,0 +1,141 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.result;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+
+/**
+ * Creates the {@link QueryResultCollector}s. The result proxy of the query provides
+ * the result type, the key of the results is provided by calling a getter on it:
+ * <pre>
+ * PersonDto dto = query.select(PersonDto.class);
+ * dto.setId(person.getId());
+ * Map&lt;Long, PersonDto&gt; byId = dao.doQuery(query, QueryResultCollectors.toMap(query, dto, dto.getId()));
+ * </pre>
+ * The key is read from the selected values, so it must be selected into the result dto.
+ * Maps keep the results in the order of the query results.
+ */
+public final class QueryResultCollectors {
+
+    private QueryResultCollectors() {
+    }
+
+    /**
+     * Collects the results by key, a result replaces the previous result with the same key.
+     */
+    public static <K, T> QueryResultCollector<T, Map<K, T>> toMap(TypeSafeRootQuery query, T resultProxy, K key) {
+        return new QueryResultCollector<T, Map<K, T>>(getKeyPropertyPath(query)) {
+            private final Map<K, T> results = new LinkedHashMap<>();
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void collect(Object key, T result) {
+                results.put((K) key, result);
+            }
+
+            @Override
+            public Map<K, T> getCollected() {
+                return results;
+            }
+        };
+    }
+
+    /**
+     * Collects the results in a list per key.
+     */
+    public static <K, T> QueryResultCollector<T, Map<K, List<T>>> groupingBy(TypeSafeRootQuery query, T resultProxy, K key) {
+        return new QueryResultCollector<T, Map<K, List<T>>>(getKeyPropertyPath(query)) {
+            private final Map<K, List<T>> results = new LinkedHashMap<>();
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void collect(Object key, T result) {
+                List<T> group = results.get(key);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    results.put((K) key, group);
+                }
+                group.add(result);
+            }
+
+            @Override
+            public Map<K, List<T>> getCollected() {
+                return results;
+            }
+        };
+    }
+
+    /**
+     * Collects the results by a numeric key, such as a long id, without boxing the keys.
+     * A result replaces the previous result with the same key.
+     *
+     * @throws IllegalArgumentException when a result has a null key.
+     */
+    public static <T> QueryResultCollector<T, LongResultMap<T>> toLongMap(TypeSafeRootQuery query, T resultProxy, Object key) {
+        return new QueryResultCollector<T, LongResultMap<T>>(getKeyPropertyPath(query)) {
+            private final LongResultMap<T> results = new LongResultMap<>();
+
+            @Override
+            public void collect(Object key, T result) {
+                if (key == null) {
+                    throw new IllegalArgumentException("Can't collect a result without key: " + result);
+                }
+                results.put(((Number) key).longValue(), result);
+            }
+
+            @Override
+            public LongResultMap<T> getCollected() {
+                return results;
+            }
+        };
+    }
+
+    /**
+     * Counts the results per key, without keeping the results.
+     */
+    public static <K, T> QueryResultCollector<T, Map<K, Long>> counting(TypeSafeRootQuery query, T resultProxy, K key) {
+        return new QueryResultCollector<T, Map<K, Long>>(getKeyPropertyPath(query)) {
+            private final Map<K, Long> counts = new LinkedHashMap<>();
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void collect(Object key, T result) {
+                Long count = counts.get(key);
+                counts.put((K) key, count == null ? 1L: count + 1L);
+            }
+
+            @Override
+            public Map<K, Long> getCollected() {
+                return counts;
+            }
+        };
+    }
+
+    private static String getKeyPropertyPath(TypeSafeRootQuery query) {
+        String keyPropertyPath = ((TypeSafeRootQueryInternal) query).dequeueInvokedProjectionPath();
+        if (keyPropertyPath == null) {
+            throw new IllegalArgumentException("The key must be provided by calling "
+                    + "a getter on the selection proxy of the query.");
+        }
+        return keyPropertyPath;
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.result;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Encodes the rows of a query result to a compact binary form and back,
+ * used by the result cache and by spilled query results.
+ * <p>
+ * When all rows are encoded at once, the type of each column is stored once, in the
+ * {@link EncodedRows}, the rows only contain a null mask and the values. When rows are
+ * encoded one by one, each value is preceded by its type. Integral numbers are stored
+ * as zigzag varints and strings as utf-8. Only the basic values a query selects into
+ * dtos can be encoded, rows containing other values, entities for example, can't be encoded.
+ */
+public final class RowCodec {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte SHORT = 4;
+    private static final byte BYTE = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte BOOLEAN = 8;
+    private static final byte CHARACTER = 9;
+    private static final byte BIG_DECIMAL = 10;
+    private static final byte BIG_INTEGER = 11;
+    private static final byte DATE = 12;
+    private static final byte SQL_DATE = 13;
+    private static final byte TIME = 14;
+    private static final byte TIMESTAMP = 15;
+    private static final byte BYTES = 16;
+    private static final byte ENUM = 17;
+
+    private RowCodec() {
+    }
+
+    /**
+     * The encoded rows, the bytes are copied into a direct buffer.
+     */
+    public static final class EncodedRows {
+        final int rowCount;
+        final byte[] columnTypes;
+        final Class<?>[] enumClasses;
+        final ByteBuffer data;
+
+        private EncodedRows(int rowCount, byte[] columnTypes, Class<?>[] enumClasses, ByteBuffer data) {
+            this.rowCount = rowCount;
+            this.columnTypes = columnTypes;
+            this.enumClasses = enumClasses;
+            this.data = data;
+        }
+
+        public int getByteSize() {
+            return data.capacity();
+        }
+    }
+
+    /**
+     * @return the encoded rows or null if one of the values can't be encoded
+     *         or the rows don't have the same number of columns.
+     */
+    public static EncodedRows encode(List<Object[]> rows) {
+        int columns = rows.isEmpty() ? 0: rows.get(0).length;
+        byte[] columnTypes = new byte[columns];
+        Class<?>[] enumClasses = new Class<?>[columns];
+        for(Object[] row: rows) {
+            if (row.length != columns) {
+                return null;
+            }
+            for(int c=0; c < columns; c++) {
+                if (row[c] != null && columnTypes[c] == NULL) {
+                    columnTypes[c] = typeOf(row[c]);
+                    if (columnTypes[c] == NULL) {
+                        return null;
+                    }
+                    if (columnTypes[c] == ENUM) {
+                        enumClasses[c] = ((Enum<?>) row[c]).getDeclaringClass();
+                    }
+                }
+            }
+        }
+
+        Output out = new Output();
+        int maskSize = (columns + 7) / 8;
+        for(Object[] row: rows) {
+            for(int m=0; m < maskSize; m++) {
+                int mask = 0;
+                for(int bit=0; bit < 8 && m * 8 + bit < columns; bit++) {
+                    if (row[m * 8 + bit] == null) {
+                        mask |= 1 << bit;
+                    }
+                }
+                out.write(mask);
+            }
+            for(int c=0; c < columns; c++) {
+                if (row[c] != null && !writeValue(out, columnTypes[c], enumClasses[c], row[c])) {
+                    return null;
+                }
+            }
+        }
+        ByteBuffer data = ByteBuffer.allocateDirect(out.size());
+        data.put(out.bytes(), 0, out.size());
+        data.flip();
+        return new EncodedRows(rows.size(), columnTypes, enumClasses, data);
+    }
+
+    /**
+     * Decodes new row arrays, the buffer of the encoded rows is not modified.
+     */
+    public static List<Object[]> decode(EncodedRows encoded) {
+        ByteBuffer in = encoded.data.duplicate();
+        int columns = encoded.columnTypes.length;
+        int maskSize = (columns + 7) / 8;
+        byte[] masks = new byte[maskSize];
+        List<Object[]> rows = new ArrayList<>(encoded.rowCount);
+        for(int r=0; r < encoded.rowCount; r++) {
+            in.get(masks);
+            Object[] row = new Object[columns];
+            for(int c=0; c < columns; c++) {
+                if ((masks[c / 8] & (1 << (c % 8))) == 0) {
+                    row[c] = readValue(in, encoded.columnTypes[c], encoded.enumClasses[c]);
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Encodes a row with the type of each value.
+     *
+     * @param enumClasses the enum classes of the encoded rows, new enum classes are added.
+     * @return false if one of the values can't be encoded, the output is incomplete then.
+     */
+    public static boolean writeRow(Output out, Object[] row, List<Class<?>> enumClasses) {
+        for(Object value: row) {
+            byte type = value == null ? NULL: typeOf(value);
+            if (value != null && type == NULL) {
+                return false;
+            }
+            out.write(type);
+            if (type == ENUM) {
+                Class<?> enumClass = ((Enum<?>) value).getDeclaringClass();
+                int index = enumClasses.indexOf(enumClass);
+                if (index < 0) {
+                    index = enumClasses.size();
+                    enumClasses.add(enumClass);
+                }
+                out.writeVarLong(index);
+                out.writeVarLong(((Enum<?>) value).ordinal());
+            } else if (type != NULL) {
+                writeValue(out, type, null, value);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a row encoded by {@link #writeRow(Output, Object[], List)}.
+     */
+    public static Object[] readRow(ByteBuffer in, int columns, List<Class<?>> enumClasses) {
+        Object[] row = new Object[columns];
+        for(int c=0; c < columns; c++) {
+            byte type = in.get();
+            if (type == ENUM) {
+                Class<?> enumClass = enumClasses.get((int) readVarLong(in));
+                row[c] = readValue(in, type, enumClass);
+            } else if (type != NULL) {
+                row[c] = readValue(in, type, null);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * The type of the value, NULL if it can't be encoded.
+     */
+    private static byte typeOf(Object value) {
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            return STRING;
+        } else if (type == Integer.class) {
+            return INTEGER;
+        } else if (type == Long.class) {
+            return LONG;
+        } else if (type == Short.class) {
+            return SHORT;
+        } else if (type == Byte.class) {
+            return BYTE;
+        } else if (type == Double.class) {
+            return DOUBLE;
+        } else if (type == Float.class) {
+            return FLOAT;
+        } else if (type == Boolean.class) {
+            return BOOLEAN;
+        } else if (type == Character.class) {
+            return CHARACTER;
+        } else if (type == BigDecimal.class) {
+            return BIG_DECIMAL;
+        } else if (type == BigInteger.class) {
+            return BIG_INTEGER;
+        } else if (type == Date.class) {
+            return DATE;
+        } else if (type == java.sql.Date.class) {
+            return SQL_DATE;
+        } else if (type == Time.class) {
+            return TIME;
+        } else if (type == Timestamp.class) {
+            return TIMESTAMP;
+        } else if (type == byte[].class) {
+            return BYTES;
+        } else if (value instanceof Enum<?>) {
+            return ENUM;
+        }
+        return NULL;
+    }
+
+    /**
+     * @return false if the value doesn't have the type of its column.
+     */
+    private static boolean writeValue(Output out, byte type, Class<?> enumClass, Object value) {
+        if (type == ENUM ? ((Enum<?>) value).getDeclaringClass() != enumClass: typeOf(value) != type) {
+            return false;
+        }
+        switch (type) {
+            case STRING: out.writeSized(((String) value).getBytes(UTF8)); break;
+            case INTEGER: out.writeVarLong((Integer) value); break;
+            case LONG: out.writeVarLong((Long) value); break;
+            case SHORT: out.writeVarLong((Short) value); break;
+            case BYTE: out.write((Byte) value); break;
+            case DOUBLE: out.writeLong(Double.doubleToLongBits((Double) value)); break;
+            case FLOAT: out.writeVarLong(Float.floatToIntBits((Float) value)); break;
+            case BOOLEAN: out.write(((Boolean) value) ? 1: 0); break;
+            case CHARACTER: out.writeVarLong((Character) value); break;
+            case BIG_DECIMAL:
+                out.writeVarLong(((BigDecimal) value).scale());
+                out.writeSized(((BigDecimal) value).unscaledValue().toByteArray());
+                break;
+            case BIG_INTEGER: out.writeSized(((BigInteger) value).toByteArray()); break;
+            case DATE:
+            case SQL_DATE:
+            case TIME: out.writeVarLong(((Date) value).getTime()); break;
+            case TIMESTAMP:
+                out.writeVarLong(((Timestamp) value).getTime());
+                out.writeVarLong(((Timestamp) value).getNanos());
+                break;
+            case BYTES: out.writeSized((byte[]) value); break;
+            case ENUM: out.writeVarLong(((Enum<?>) value).ordinal()); break;
+            default: return false;
+        }
+        return true;
+    }
+
+    private static Object readValue(ByteBuffer in, byte type, Class<?> enumClass) {
+        switch (type) {
+            case STRING: return new String(readBytes(in), UTF8);
+            case INTEGER: return (int) readVarLong(in);
+            case LONG: return readVarLong(in);
+            case SHORT: return (short) readVarLong(in);
+            case BYTE: return in.get();
+            case DOUBLE: return Double.longBitsToDouble(in.getLong());
+            case FLOAT: return Float.intBitsToFloat((int) readVarLong(in));
+            case BOOLEAN: return in.get() == 1;
+            case CHARACTER: return (char) readVarLong(in);
+            case BIG_DECIMAL: 
+                int scale = (int) readVarLong(in);
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BIG_INTEGER: return new BigInteger(readBytes(in));
+            case DATE: return new Date(readVarLong(in));
+            case SQL_DATE: return new java.sql.Date(readVarLong(in));
+            case TIME: return new Time(readVarLong(in));
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(readVarLong(in));
+                timestamp.setNanos((int) readVarLong(in));
+                return timestamp;
+            case BYTES: return readBytes(in);
+            case ENUM: return enumClass.getEnumConstants()[(int) readVarLong(in)];
+            default: throw new IllegalStateException("Unknown column type: " + type);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads a zigzag encoded varint.
+     */
+    private static long readVarLong(ByteBuffer in) {
+        long raw = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            raw |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Byte output which exposes its buffer, to copy it without an intermediate array.
+     */
+    public static final class Output extends ByteArrayOutputStream {
+        public Output() {
+            super(256);
+        }
+
+        /**
+         * The buffer, only the first {@link #size()} bytes were written.
+         */
+        public byte[] bytes() {
+            return buf;
+        }
+
+        void writeLong(long value) {
+            for(int shift=56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        /**
+         * Writes a zigzag encoded varint, small negative numbers stay small.
+         */
+        void writeVarLong(long value) {
+            long raw = (value << 1) ^ (value >> 63);
+            while ((raw & ~0x7FL) != 0) {
+                write((int) ((raw & 0x7F) | 0x80));
+                raw >>>= 7;
+            }
+            write((int) raw);
+        }
+
+        void writeSized(byte[] bytes) {
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.result;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.transform.ResultTransformer;
+
+/**
+ * Collects the rows of a query encoded with the {@link RowCodec}. The rows are kept in memory
+ * until more rows or bytes than allowed were added, from then on they are written to a temporary
+ * file. The rows can be read as a {@link SpilledQueryResult} once all rows were added.
+ * <p>
+ * The offset of every {@value #BLOCK_SIZE}th row is kept to read the rows in any order. The file is
+ * mapped in segments of at most 1GB which start at such a row, so a row is never split over segments.
+ * The file is deleted as soon as it is mapped, where the file system doesn't allow that it is
+ * deleted when the result is closed or garbage collected (see {@link SpillFileReaper}).
+ */
+public class RowSpiller {
+    static final int BLOCK_SIZE = 64;
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+    private static final int FLUSH_SIZE = 64 * 1024;
+
+    private final int maxRows;
+    private final long maxBytes;
+    private final List<Class<?>> enumClasses = new ArrayList<>();
+    private final RowCodec.Output buffer = new RowCodec.Output();
+    private long[] blockOffsets = new long[16];
+    private int columns = -1;
+    private int rowCount;
+    private long size;
+    private File file;
+    private OutputStream fileOut;
+
+    /**
+     * @param maxRows the maximum number of rows to keep in memory, null if not limited.
+     * @param maxBytes the maximum encoded size of the rows to keep in memory, null if not limited.
+     */
+    public RowSpiller(Integer maxRows, Long maxBytes) {
+        this.maxRows = maxRows == null ? Integer.MAX_VALUE: maxRows;
+        this.maxBytes = maxBytes == null ? Long.MAX_VALUE: maxBytes;
+    }
+
+    /**
+     * Adds the row, spills the rows to a temporary file when there are too many.
+     *
+     * @throws UnsupportedOperationException when the row contains values which can't be encoded.
+     */
+    public void add(Object[] row) throws IOException {
+        if (columns < 0) {
+            columns = row.length;
+        }
+        if (rowCount % BLOCK_SIZE == 0) {
+            int block = rowCount / BLOCK_SIZE;
+            if (block == blockOffsets.length) {
+                blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+            }
+            blockOffsets[block] = size;
+        }
+        int before = buffer.size();
+        if (!RowCodec.writeRow(buffer, row, enumClasses)) {
+            throw new UnsupportedOperationException("The results can't be spilled, only rows "
+                    + "of basic values can be encoded: " + Arrays.toString(row));
+        }
+        size += buffer.size() - before;
+        rowCount++;
+        if (file == null && (rowCount > maxRows || size > maxBytes)) {
+            SpillFileReaper.reap();
+            file = File.createTempFile("tsqb-results", ".rows");
+            fileOut = new BufferedOutputStream(new FileOutputStream(file), FLUSH_SIZE);
+        }
+        if (file != null && buffer.size() >= FLUSH_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.writeTo(fileOut);
+        buffer.reset();
+    }
+
+    /**
+     * Whether the rows were written to a file.
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Decodes the rows which were kept in memory, only when they were not spilled.
+     */
+    public List<Object[]> getRows() {
+        if (isSpilled()) {
+            throw new IllegalStateException("The rows were spilled.");
+        }
+        ByteBuffer in = ByteBuffer.wrap(buffer.bytes(), 0, buffer.size());
+        List<Object[]> rows = new ArrayList<>(rowCount);
+        for(int i=0; i < rowCount; i++) {
+            rows.add(RowCodec.readRow(in, columns, enumClasses));
+        }
+        return rows;
+    }
+
+    /**
+     * Finishes writing the spilled rows and maps the file to read them,
+     * the rows are transformed when they are read.
+     */
+    public <T> SpilledQueryResult<T> toSpilledResult(ResultTransformer transformer) throws IOException {
+        flush();
+        fileOut.close();
+        fileOut = null;
+
+        int blocks = (rowCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        List<Integer> segmentFirstBlocks = new ArrayList<>();
+        List<Long> segmentEnds = new ArrayList<>();
+        long segmentStart = 0;
+        segmentFirstBlocks.add(0);
+        for(int b=0; b < blocks; b++) {
+            long blockEnd = b + 1 < blocks ? blockOffsets[b + 1]: size;
+            if (blockEnd - segmentStart > MAX_SEGMENT_SIZE && blockOffsets[b] > segmentStart) {
+                segmentEnds.add(blockOffsets[b]);
+                segmentFirstBlocks.add(b);
+                segmentStart = blockOffsets[b];
+            }
+        }
+        segmentEnds.add(size);
+
+        MappedByteBuffer[] segments = new MappedByteBuffer[segmentEnds.size()];
+        long[] segmentStarts = new long[segments.length];
+        int[] firstBlocks = new int[segments.length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for(int s=0; s < segments.length; s++) {
+                firstBlocks[s] = segmentFirstBlocks.get(s);
+                segmentStarts[s] = blockOffsets[firstBlocks[s]];
+                segments[s] = raf.getChannel().map(MapMode.READ_ONLY, segmentStarts[s], 
+                        segmentEnds.get(s) - segmentStarts[s]);
+            }
+        }
+        // the mapping keeps the rows readable, so the file can be deleted right away where
+        // the file system allows it. Otherwise it is deleted when the result is closed or collected.
+        File undeletedFile = file.delete() ? null : file;
+        return new SpilledQueryResult<>(undeletedFile, segments, segmentStarts, firstBlocks,
+                Arrays.copyOf(blockOffsets, blocks), rowCount, columns, enumClasses, transformer);
+    }
+
+    /**
+     * Deletes the temporary file, used when the rows couldn't be read.
+     */
+    public void discard() {
+        try {
+            if (fileOut != null) {
+                fileOut.close();
+            }
+        } catch (IOException e) {
+            // the file is deleted anyway
+        }
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.result;
+
+import java.io.File;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes the temporary files of spilled results which were not closed, once the results
+ * are garbage collected. Only used for files which couldn't be deleted while they were mapped,
+ * other files are deleted as soon as they are mapped.
+ * <p>
+ * The collected results are checked whenever rows start to spill, no thread is started.
+ * Files which still can't be deleted, because their mapping wasn't released yet, are retried.
+ */
+final class SpillFileReaper {
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    private static final Set<FileReference> REFERENCES = new HashSet<>();
+    private static final List<File> UNDELETED = new ArrayList<>();
+
+    private SpillFileReaper() {
+    }
+
+    /**
+     * Deletes the file once the owner is garbage collected.
+     */
+    static synchronized void register(Object owner, File file) {
+        REFERENCES.add(new FileReference(owner, file));
+    }
+
+    /**
+     * Deletes the files of the owners which were garbage collected.
+     */
+    static synchronized void reap() {
+        FileReference reference;
+        while ((reference = (FileReference) QUEUE.poll()) != null) {
+            REFERENCES.remove(reference);
+            UNDELETED.add(reference.file);
+        }
+        Iterator<File> it = UNDELETED.iterator();
+        while (it.hasNext()) {
+            File file = it.next();
+            if (file.delete() || !file.exists()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Unregisters the file, used when it was deleted when the owner was closed.
+     */
+    static synchronized void unregister(File file) {
+        Iterator<FileReference> it = REFERENCES.iterator();
+        while (it.hasNext()) {
+            FileReference reference = it.next();
+            if (reference.file.equals(file)) {
+                reference.clear();
+                it.remove();
+            }
+        }
+    }
+
+    private static final class FileReference extends PhantomReference<Object> {
+        private final File file;
+
+        private FileReference(Object owner, File file) {
+            super(owner, QUEUE);
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.result;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import org.hibernate.transform.ResultTransformer;
+
+/**
+ * Query result of which the rows were spilled to a temporary memory mapped file
+ * by the {@link RowSpiller}. The results are a read-only list, each result is
+ * decoded and transformed when it is read so only the read results take heap space.
+ * Reading the same result twice creates a new instance.
+ * <p>
+ * The temporary file is usually deleted once it is mapped, its disk space is released when the
+ * mapping is garbage collected. Closing the result releases the segments, the results can't be
+ * read afterwards. A result which is not closed is cleaned up when it is garbage collected.
+ */
+public class SpilledQueryResult<T> extends QueryResult<T> implements Closeable {
+    private final SpilledResults<T> spilledResults;
+
+    SpilledQueryResult(File file, ByteBuffer[] segments, long[] segmentStarts, int[] segmentFirstBlocks,
+            long[] blockOffsets, int size, int columns, List<Class<?>> enumClasses, ResultTransformer transformer) {
+        this(new SpilledResults<T>(file, segments, segmentStarts, segmentFirstBlocks,
+                blockOffsets, size, columns, enumClasses, transformer));
+    }
+
+    private SpilledQueryResult(SpilledResults<T> spilledResults) {
+        super(spilledResults);
+        this.spilledResults = spilledResults;
+    }
+
+    /**
+     * Releases the mapped segments and deletes the temporary file if it still exists.
+     */
+    @Override
+    public void close() {
+        spilledResults.close();
+    }
+
+    private static final class SpilledResults<T> extends AbstractList<T> implements RandomAccess {
+        /**
+         * The temporary file, null if it was deleted when it was mapped.
+         */
+        private final File file;
+        private final long[] segmentStarts;
+        private final int[] segmentFirstBlocks;
+        private final long[] blockOffsets;
+        private final int size;
+        private final int columns;
+        private final List<Class<?>> enumClasses;
+        private final ResultTransformer transformer;
+        private ByteBuffer[] segments;
+
+        private SpilledResults(File file, ByteBuffer[] segments, long[] segmentStarts, int[] segmentFirstBlocks,
+                long[] blockOffsets, int size, int columns, List<Class<?>> enumClasses, ResultTransformer transformer) {
+            this.file = file;
+            this.segments = segments;
+            this.segmentStarts = segmentStarts;
+            this.segmentFirstBlocks = segmentFirstBlocks;
+            this.blockOffsets = blockOffsets;
+            this.size = size;
+            this.columns = columns;
+            this.enumClasses = enumClasses;
+            this.transformer = transformer;
+            if (file != null) {
+                SpillFileReaper.register(this, file);
+            }
+        }
+
+        private synchronized void close() {
+            segments = null;
+            if (file != null && file.delete()) {
+                SpillFileReaper.unregister(file);
+            }
+        }
+
+        private synchronized ByteBuffer getSegment(int segment) {
+            if (segments == null) {
+                throw new IllegalStateException("The spilled results were closed.");
+            }
+            return segments[segment].duplicate();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            int block = index / RowSpiller.BLOCK_SIZE;
+            int segment = Arrays.binarySearch(segmentFirstBlocks, block);
+            if (segment < 0) {
+                segment = -segment - 2;
+            }
+            ByteBuffer in = getSegment(segment);
+            in.position((int) (blockOffsets[block] - segmentStarts[segment]));
+            for(int i = block * RowSpiller.BLOCK_SIZE; i < index; i++) {
+                RowCodec.readRow(in, columns, enumClasses);
+            }
+            return transform(RowCodec.readRow(in, columns, enumClasses));
+        }
+
+        /**
+         * Transforms a single row, the same way as the results are transformed when they are not spilled.
+         */
+        @SuppressWarnings("unchecked")
+        private T transform(Object[] row) {
+            if (transformer == null) {
+                return (T) (row.length == 1 ? row[0]: row);
+            }
+            Object result = transformer.transformTuple(row, null);
+            return (T) transformer.transformList(Collections.singletonList(result)).get(0);
+        }
+
+        /**
+         * Reads the rows sequentially instead of looking up the offset of each row.
+         */
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int index;
+                private int segment = -1;
+                private ByteBuffer in;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    while (in == null || !in.hasRemaining()) {
+                        in = getSegment(++segment);
+                    }
+                    index++;
+                    return transform(RowCodec.readRow(in, columns, enumClasses));
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
@@ -17,14 +17,20 @@ package be.shad.tsqb.data;
 
 import static java.lang.String.format;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
 
 import be.shad.tsqb.helper.TypeSafeQueryHelper;
 import be.shad.tsqb.hql.HqlQuery;
 import be.shad.tsqb.hql.HqlQueryBuilder;
 import be.shad.tsqb.joins.TypeSafeQueryJoin;
 import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeQueryInternal;
+import be.shad.tsqb.sql.SqlQueryRenderer;
 import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.HqlQueryValue;
 import be.shad.tsqb.values.HqlQueryValueImpl;
@@ -32,12 +38,15 @@ import be.shad.tsqb.values.HqlQueryValueImpl;
 public class TypeSafeQueryFrom implements HqlQueryBuilder {
 
     private final TypeSafeQueryHelper helper;
+    private final TypeSafeQueryInternal query;
     private final TypeSafeQueryProxyData root;
-    private List<TypeSafeQueryJoin<?>> joins = new LinkedList<>();
+    private List<TypeSafeQueryJoin<?>> joins = new ArrayList<>();
     
     public TypeSafeQueryFrom(TypeSafeQueryHelper helper,
+            TypeSafeQueryInternal query,
             TypeSafeQueryProxyData root) {
         this.helper = helper;
+        this.query = query;
         this.root = root;
     }
     
@@ -55,11 +64,43 @@ public class TypeSafeQueryFrom implements HqlQueryBuilder {
 
     @Override
     public void appendTo(HqlQuery query, HqlQueryBuilderParams params) {
+        List<TypeSafeQueryJoin<?>> renderedJoins = getRenderedJoins();
+        SqlQueryRenderer sqlRenderer = params.getSqlRenderer();
+        if( sqlRenderer != null ) {
+            sqlRenderer.appendFrom(query, root, renderedJoins, params);
+            return;
+        }
         HqlQueryValueImpl from = new HqlQueryValueImpl();
         from.appendHql(helper.getEntityName(root.getPropertyType()));
         from.appendHql(" ").append(root.getAlias());
+        for(TypeSafeQueryJoin<?> join: renderedJoins) {
+            TypeSafeQueryProxyData data = join.getData();
+            // example: 'left join fetch' 'hobj1'.'propertyPath' 'hobj2' 
+            from.appendHql(format(" %s %s.%s %s", getJoinTypeString(data.getEffectiveJoinType()), 
+                    data.getParent().getAlias(), data.getPropertyPath(), data.getAlias()));
+            HqlQueryValue hqlQueryValue = join.getRestrictions().toHqlQueryValue(params);
+            String withHql = hqlQueryValue.getHql();
+            if( withHql.length() > 0 ) {
+                from.appendHql(" with ").append(withHql);
+                from.addParams(hqlQueryValue.getParams());
+            }
+        }
+        query.appendFrom(from.getHql());
+        query.addParams(from.getParams());
+    }
+
+    /**
+     * Collects the joins which are part of the from clause,
+     * joins which are not used or which are not really joined are left out.
+     */
+    private List<TypeSafeQueryJoin<?>> getRenderedJoins() {
+        List<TypeSafeQueryJoin<?>> renderedJoins = new ArrayList<>(joins.size());
+        Set<TypeSafeQueryProxyData> unusedJoins = getUnusedJoins();
         for(TypeSafeQueryJoin<?> join: joins) {
             TypeSafeQueryProxyData data = join.getData();
+            if( unusedJoins.contains(data) ) {
+                continue;
+            }
             if( data.getProxy() == null ) {
                 throw new IllegalStateException(format("Data [%s] was added as a join, but does not have a proxy.", data));
             }
@@ -68,19 +109,59 @@ public class TypeSafeQueryFrom implements HqlQueryBuilder {
                         + "but it was not passed to query.join(object, jointype).");
             }
             if( data.getEffectiveJoinType() != JoinType.None ) {
-                // example: 'left join fetch' 'hobj1'.'propertyPath' 'hobj2' 
-                from.appendHql(format(" %s %s.%s %s", getJoinTypeString(data.getEffectiveJoinType()), 
-                        data.getParent().getAlias(), data.getPropertyPath(), data.getAlias()));
-                HqlQueryValue hqlQueryValue = join.getRestrictions().toHqlQueryValue(params);
-                String withHql = hqlQueryValue.getHql();
-                if( withHql.length() > 0 ) {
-                    from.appendHql(" with ").append(withHql);
-                    from.addParams(hqlQueryValue.getParams());
-                }
+                renderedJoins.add(join);
             }
         }
-        query.appendFrom(from.getHql());
-        query.addParams(from.getParams());
+        return renderedJoins;
+    }
+
+    /**
+     * Collects the left joins which can be left out of the query when it is minimized.
+     * <p>
+     * A left join to a single valued association doesn't change the amount of results,
+     * so it can be left out when it isn't fetched, has no with restrictions
+     * and none of its data or nested joins are used in the query.
+     * The joins are checked in reverse order so nested joins are checked before their parent.
+     * <p>
+     * Nothing is left out when the query has no select, every joined entity is part of the results then.
+     */
+    private Set<TypeSafeQueryProxyData> getUnusedJoins() {
+        if( !query.getRootQuery().isMinimizeQuery() || query.getProjections().getProjections().isEmpty() ) {
+            return Collections.emptySet();
+        }
+        Set<TypeSafeQueryProxyData> unusedJoins = new HashSet<>();
+        ListIterator<TypeSafeQueryJoin<?>> it = joins.listIterator(joins.size());
+        while( it.hasPrevious() ) {
+            TypeSafeQueryJoin<?> join = it.previous();
+            TypeSafeQueryProxyData data = join.getData();
+            if( data.getEffectiveJoinType() == JoinType.Left && !data.getProxyType().isCollection()
+                    && data.getCustomAlias() == null && join.isEmpty() && isUnused(data, unusedJoins) ) {
+                unusedJoins.add(data);
+            }
+        }
+        return unusedJoins;
+    }
+
+    /**
+     * Checks the data and its children are not referenced,
+     * nested joins must be unused joins as well.
+     */
+    private boolean isUnused(TypeSafeQueryProxyData data, Set<TypeSafeQueryProxyData> unusedJoins) {
+        if( data.isReferenced() ) {
+            return false;
+        }
+        for(TypeSafeQueryProxyData child: data.getChildren()) {
+            if( unusedJoins.contains(child) ) {
+                continue;
+            }
+            if( child.getProxy() != null && child.getEffectiveJoinType() != JoinType.None ) {
+                return false;
+            }
+            if( !isUnused(child, unusedJoins) ) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
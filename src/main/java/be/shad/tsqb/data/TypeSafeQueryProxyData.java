@@ -20,8 +20,10 @@ import static be.shad.tsqb.query.JoinType.Default;
 import static be.shad.tsqb.query.JoinType.Inner;
 import static be.shad.tsqb.query.JoinType.None;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.List;
 
 import be.shad.tsqb.proxy.TypeSafeQueryProxy;
 import be.shad.tsqb.proxy.TypeSafeQueryProxyType;
@@ -31,7 +33,11 @@ import be.shad.tsqb.query.JoinType;
  */
 public class TypeSafeQueryProxyData {
 
-    private final LinkedHashMap<String, TypeSafeQueryProxyData> children = new LinkedHashMap<>();
+    /**
+     * Children in insertion order, allocated when the first child is added.
+     * Only a handful of properties are used per entity, a list scan beats a map.
+     */
+    private List<TypeSafeQueryProxyData> children;
     private final TypeSafeQueryProxyType proxyType;
     private final TypeSafeQueryProxyData parent;
     private final TypeSafeQueryProxy proxy;
@@ -43,6 +49,12 @@ public class TypeSafeQueryProxyData {
     private final String alias;
     private String customAlias;
     private JoinType joinType;
+    private boolean referenced;
+    /**
+     * Cached property path alias, valid as long as the parent alias is the same instance.
+     */
+    private String pathAliasParent;
+    private String pathAlias;
     
     /**
      * Package protected so that the data is correctly add to the data tree.
@@ -94,20 +106,49 @@ public class TypeSafeQueryProxyData {
     }
     
     public Collection<TypeSafeQueryProxyData> getChildren() {
-        return children.values();
+        if (children == null) {
+            return Collections.emptyList();
+        }
+        return children;
     }
     
     public TypeSafeQueryProxyData getChild(String name) {
-        return children.get(name);
+        int index = indexOfChild(name);
+        return index < 0 ? null: children.get(index);
     }
     
     public void putChild(TypeSafeQueryProxyData child) {
-        children.put(child.propertyPath, child);
+        int index = indexOfChild(child.propertyPath);
+        if (index >= 0) {
+            children.set(index, child);
+        } else {
+            if (children == null) {
+                children = new ArrayList<>(4);
+            }
+            children.add(child);
+        }
+    }
+
+    private int indexOfChild(String name) {
+        if (children != null) {
+            for(int i=0; i < children.size(); i++) {
+                if (children.get(i).propertyPath.equals(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
     }
     
     public String getAlias() {
         if( parent != null && (joinType == null || getEffectiveJoinType() == None) ) {
-            return parent.getAlias() + "." + propertyPath;
+            String parentAlias = parent.getAlias();
+            // identity check on purpose, parent aliases are cached instances as well:
+            if (parentAlias != pathAliasParent) {
+                pathAlias = parentAlias + "." + propertyPath;
+                pathAliasParent = parentAlias;
+            }
+            return pathAlias;
         }
         return customAlias == null ? alias: customAlias;
     }
@@ -163,9 +204,9 @@ public class TypeSafeQueryProxyData {
                     default:
                 }
             }
-            if (customAlias == null && !proxyType.isCollection() && children.size() == 1) {
+            if (customAlias == null && !proxyType.isCollection() && children != null && children.size() == 1) {
                 // might be worth checking if only an identity relation was used:
-                TypeSafeQueryProxyData child = children.values().iterator().next();
+                TypeSafeQueryProxyData child = children.get(0);
                 if (identifierPath.equals(child.getPropertyPath())) {
                     return None;
                 }
@@ -187,6 +228,21 @@ public class TypeSafeQueryProxyData {
         return propertyType;
     }
 
+    /**
+     * Marks this data as used by a value of the query (selected, restricted, ordered, ...).
+     */
+    public void markReferenced() {
+        this.referenced = true;
+    }
+
+    /**
+     * Whether a value of the query uses this data.
+     * Joins without referenced data can be left out when minimizing the query.
+     */
+    public boolean isReferenced() {
+        return referenced;
+    }
+
     @Override
     public String toString() {
         String s;
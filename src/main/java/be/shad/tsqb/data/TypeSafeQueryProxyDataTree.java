@@ -18,7 +18,6 @@ package be.shad.tsqb.data;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -45,7 +44,7 @@ public class TypeSafeQueryProxyDataTree implements HqlQueryBuilder {
     private final List<TypeSafeQueryFrom> froms = new ArrayList<>();
     private final Map<TypeSafeQueryProxyData, TypeSafeQueryJoin<?>> joins = new HashMap<>();
     private final Set<TypeSafeQueryProxyData> queryData = new LinkedHashSet<>();
-    private final List<TypeSafeQuerySelectionProxyData> selectionData = new LinkedList<>();
+    private final List<TypeSafeQuerySelectionProxyData> selectionData = new ArrayList<>();
     private final TypeSafeQueryHelper helper;
     private final TypeSafeQueryInternal query;
 
@@ -64,18 +63,12 @@ public class TypeSafeQueryProxyDataTree implements HqlQueryBuilder {
         }
         // query data contains the history of created proxy data, 
         // so replaying this results in the same data tree.
+        // the data is copied using the type information of the original data,
+        // which avoids looking it up in the hibernate metadata again.
         for(TypeSafeQueryProxyData originalData: original.queryData) {
-            TypeSafeQueryProxyData copyData;
-            if (originalData.getParent() == null) {
-                // is a from:
-                copyData = ((TypeSafeQueryProxy) helper.createTypeSafeFromProxy(query, 
-                        originalData.getPropertyType())).getTypeSafeProxyData();
-            } else {
-                // is a join or select, both call the 'join' method:
-                TypeSafeQueryProxyData parent = context.get(originalData.getParent());
-                copyData = helper.createTypeSafeJoinProxy(query, parent, 
-                        originalData.getPropertyPath(), 
-                        originalData.getPropertyType());
+            TypeSafeQueryProxyData parent = context.get(originalData.getParent());
+            TypeSafeQueryProxyData copyData = helper.copyTypeSafeProxyData(query, parent, originalData);
+            if (parent != null) {
                 // alias and jointype may have been changed:
                 copyData.setJoinType(originalData.getJoinType());
             }
@@ -103,6 +96,37 @@ public class TypeSafeQueryProxyDataTree implements HqlQueryBuilder {
         }
     }
 
+    /**
+     * Replaces the fetch joins by the same joins without fetching, used when
+     * the entities which own the fetched associations are not selected.
+     */
+    public void removeFetchJoins() {
+        for(TypeSafeQueryFrom from: froms) {
+            removeFetchJoins(from.getRoot());
+        }
+    }
+
+    private void removeFetchJoins(TypeSafeQueryProxyData data) {
+        if (data.getJoinType() == JoinType.LeftFetch) {
+            data.setJoinType(JoinType.Left);
+        } else if (data.getJoinType() == JoinType.Fetch) {
+            data.setJoinType(JoinType.Inner);
+        }
+        for(TypeSafeQueryProxyData child: data.getChildren()) {
+            removeFetchJoins(child);
+        }
+    }
+
+    /**
+     * Removes all froms, joins and proxy data.
+     */
+    public void clear() {
+        froms.clear();
+        joins.clear();
+        queryData.clear();
+        selectionData.clear();
+    }
+
     public <T> WhereRestrictions getJoinRestrictions(TypeSafeQueryProxyData data) {
         return (WhereRestrictions) joins.get(data);
     }
@@ -133,7 +157,7 @@ public class TypeSafeQueryProxyDataTree implements HqlQueryBuilder {
                 propertyType, proxyType, proxy, identifierPath, query.createEntityAlias());
         child.setJoinType(JoinType.Default); // default join type
         if( parent == null ) {
-            froms.add(new TypeSafeQueryFrom(helper, child));
+            froms.add(new TypeSafeQueryFrom(helper, query, child));
         } else {
             parent.putChild(child);
             TypeSafeQueryProxyData root = parent;
@@ -15,19 +15,28 @@
  */
 package be.shad.tsqb.data;
 
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.List;
 
 import be.shad.tsqb.proxy.TypeSafeQuerySelectionProxy;
 import be.shad.tsqb.selection.group.TypeSafeQuerySelectionGroup;
 
 public class TypeSafeQuerySelectionProxyData {
 
-    private final LinkedHashMap<String, TypeSafeQuerySelectionProxyData> children = new LinkedHashMap<>();
+    /**
+     * Allocated when the first child is added.
+     */
+    private List<TypeSafeQuerySelectionProxyData> children;
     private final TypeSafeQuerySelectionProxyData parent;
     private final Class<?> propertyType;
     private final String propertyPath;
     private final TypeSafeQuerySelectionGroup group;
     private TypeSafeQuerySelectionProxy proxy;
+    /**
+     * Derived from immutable state, built on first use.
+     */
+    private String effectivePropertyPath;
+    private String alias;
     
     TypeSafeQuerySelectionProxyData(TypeSafeQuerySelectionProxyData parent,
             String propertyPath, Class<?> propertyType, TypeSafeQuerySelectionGroup group,
@@ -43,11 +52,28 @@ public class TypeSafeQuerySelectionProxyData {
     }
     
     public TypeSafeQuerySelectionProxyData getChild(String propertyName) {
-        return children.get(propertyName);
+        if (children != null) {
+            for(int i=0; i < children.size(); i++) {
+                TypeSafeQuerySelectionProxyData child = children.get(i);
+                if (child.propertyPath.equals(propertyName)) {
+                    return child;
+                }
+            }
+        }
+        return null;
     }
     
     private void putChild(TypeSafeQuerySelectionProxyData child) {
-        children.put(child.propertyPath, child);
+        if (children == null) {
+            children = new ArrayList<>(4);
+        }
+        for(int i=0; i < children.size(); i++) {
+            if (children.get(i).propertyPath.equals(child.propertyPath)) {
+                children.set(i, child);
+                return;
+            }
+        }
+        children.add(child);
     }
     
     public TypeSafeQuerySelectionProxyData getParent() {
@@ -55,10 +81,14 @@ public class TypeSafeQuerySelectionProxyData {
     }
     
     public String getEffectivePropertyPath() {
-        if (parent != null && parent.getParent() != null) {
-            return parent.getEffectivePropertyPath() + "." + propertyPath;
+        if (effectivePropertyPath == null) {
+            if (parent != null && parent.getParent() != null) {
+                effectivePropertyPath = parent.getEffectivePropertyPath() + "." + propertyPath;
+            } else {
+                effectivePropertyPath = propertyPath;
+            }
         }
-        return propertyPath;
+        return effectivePropertyPath;
     }
     
     public String getPropertyPath() {
@@ -78,11 +108,14 @@ public class TypeSafeQuerySelectionProxyData {
     }
 
     public String getAlias() {
-        StringBuilder alias = new StringBuilder();
-        if (!group.isResultGroup()) {
-            alias.append(group.getAliasPrefix()).append("__");
+        if (alias == null) {
+            StringBuilder alias = new StringBuilder();
+            if (!group.isResultGroup()) {
+                alias.append(group.getAliasPrefix()).append("__");
+            }
+            this.alias = alias.append(getEffectivePropertyPath().replace('.', '_')).toString();
         }
-        return alias.append(getEffectivePropertyPath().replace(".", "_")).toString();
+        return alias;
     }
 
     public TypeSafeQuerySelectionGroup getGroup() {
@@ -0,0 +1,29 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.exceptions;
+
+/**
+ * Thrown when a registered query can't be built, rendered or translated
+ * while the query registry is warmed up.
+ */
+public class QueryWarmUpException extends RuntimeException {
+    private static final long serialVersionUID = 2870912635508196631L;
+
+    public QueryWarmUpException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -15,7 +15,7 @@
  */
 package be.shad.tsqb.grouping;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import be.shad.tsqb.hql.HqlQuery;
@@ -27,7 +27,7 @@ import be.shad.tsqb.values.HqlQueryValue;
 import be.shad.tsqb.values.TypeSafeValue;
 
 public class TypeSafeQueryGroupBys implements HqlQueryBuilder, Copyable {
-    private final List<TypeSafeValue<?>> values = new LinkedList<>();
+    private final List<TypeSafeValue<?>> values = new ArrayList<>();
 
     /**
      * Copy constructor
@@ -51,6 +51,17 @@ public class TypeSafeQueryGroupBys implements HqlQueryBuilder, Copyable {
         }
     }
 
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Removes all group bys.
+     */
+    public void clear() {
+        values.clear();
+    }
+
     public <T> TypeSafeValue<T> add(TypeSafeValue<T> val) {
         values.add(val);
         return val;
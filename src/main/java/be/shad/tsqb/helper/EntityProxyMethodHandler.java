@@ -20,9 +20,10 @@ import java.util.Collection;
 
 import javassist.util.proxy.MethodHandler;
 import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.proxy.TypeSafeQueryPropertyHandler;
 import be.shad.tsqb.query.TypeSafeQueryInternal;
 
-class EntityProxyMethodHandler implements MethodHandler {
+class EntityProxyMethodHandler implements MethodHandler, TypeSafeQueryPropertyHandler {
     private final TypeSafeQueryInternal query; 
     private final TypeSafeQueryHelperImpl helper;
     private final TypeSafeQueryProxyData data;
@@ -44,25 +45,35 @@ class EntityProxyMethodHandler implements MethodHandler {
             return String.format("Proxy of [%s]", data.toString());
         }
         if (m.getName().startsWith("set")) {
-            throw new IllegalArgumentException("Calling the setter of an entity proxy has no point. "
-                    + "If this object was supposed to be used as selection proxy, "
-                    + "then use the select(class) instead and set the values there. "
-                    + "If this setter was called to add a restriction, then use the "
-                    + "query.where(...) methods instead.");
+            setProperty(helper.method2PropertyName(m), m.getParameterTypes().length > 0 
+                    ? m.getParameterTypes()[0]: null, args.length > 0 ? args[0]: null);
+            return null;
         }
-        
-        String method2Name = helper.method2PropertyName(m);
-        TypeSafeQueryProxyData child = data.getChild(method2Name);
+        return getProperty(helper.method2PropertyName(m), m.getReturnType());
+    }
+
+    @Override
+    public Object getProperty(String propertyName, Class<?> propertyType) {
+        TypeSafeQueryProxyData child = data.getChild(propertyName);
         if( child == null ) {
-            child = helper.createChildData(query, data, method2Name);
+            child = helper.createChildData(query, data, propertyName);
         }
-        if ( !Collection.class.isAssignableFrom(m.getReturnType()) && child.getProxy() != null ) {
+        if ( !Collection.class.isAssignableFrom(propertyType) && child.getProxy() != null ) {
             // return the proxy without adding to the invocation queue to allow method chaining.
             return child.getProxy();
         }
         // remember the method invocation, to be used later...
         query.invocationWasMade(child);
-        return helper.getDummyValue(m.getReturnType());
+        return helper.getDummyValue(propertyType);
+    }
+
+    @Override
+    public void setProperty(String propertyName, Class<?> propertyType, Object value) {
+        throw new IllegalArgumentException("Calling the setter of an entity proxy has no point. "
+                + "If this object was supposed to be used as selection proxy, "
+                + "then use the select(class) instead and set the values there. "
+                + "If this setter was called to add a restriction, then use the "
+                + "query.where(...) methods instead.");
     }
     
 }
@@ -20,9 +20,10 @@ import java.util.Collection;
 
 import javassist.util.proxy.MethodHandler;
 import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
+import be.shad.tsqb.proxy.TypeSafeQueryPropertyHandler;
 import be.shad.tsqb.query.TypeSafeRootQueryInternal;
 
-class SelectionDtoMethodHandler implements MethodHandler {
+class SelectionDtoMethodHandler implements MethodHandler, TypeSafeQueryPropertyHandler {
     private final TypeSafeRootQueryInternal query; 
     private final TypeSafeQuerySelectionProxyData data;
     private final TypeSafeQueryHelperImpl helper;
@@ -45,33 +46,40 @@ class SelectionDtoMethodHandler implements MethodHandler {
             return String.format("Selection Proxy of [%s]", data.toString());
         }
         
-        boolean setter = m.getName().startsWith("set");
         String propertyName = helper.method2PropertyName(m);
-        TypeSafeQuerySelectionProxyData childData = data.getChild(propertyName);
-        if (childData == null) {
-            Class<?> propertyType = m.getReturnType();
-            if (setter) {
-                propertyType = m.getParameterTypes()[0];
-            }
-            childData = helper.createTypeSafeSelectSubProxy(query, 
-                    data, propertyName, propertyType, 
-                    setter);
+        if (m.getName().startsWith("set")) {
+            setProperty(propertyName, m.getParameterTypes()[0], args[0]);
+            return null;
         }
-        
-        Object childDto = null;
-        if( setter ) {
-            query.getProjections().project(args[0], childData);
-        } else if (helper.isBasicType(m.getReturnType())) {
+        return getProperty(propertyName, m.getReturnType());
+    }
+
+    @Override
+    public Object getProperty(String propertyName, Class<?> propertyType) {
+        TypeSafeQuerySelectionProxyData childData = getChildData(propertyName, propertyType, false);
+        if (helper.isBasicType(propertyType)) {
             query.queueInvokedSelection(childData);
-            return helper.getDummyValue(m.getReturnType());
-        } else if (Collection.class.isAssignableFrom(m.getReturnType())) {
+            return helper.getDummyValue(propertyType);
+        } else if (Collection.class.isAssignableFrom(propertyType)) {
             query.queueInvokedSelection(childData);
             return null;
-        } else {
-            helper.setSelectionDtoMethodHandler(query, childData);
-            childDto = childData.getProxy();
         }
+        helper.setSelectionDtoMethodHandler(query, childData);
+        return childData.getProxy();
+    }
+
+    @Override
+    public void setProperty(String propertyName, Class<?> propertyType, Object value) {
+        query.getProjections().project(value, getChildData(propertyName, propertyType, true));
+    }
 
-        return childDto;
+    private TypeSafeQuerySelectionProxyData getChildData(String propertyName, Class<?> propertyType, boolean setter) {
+        TypeSafeQuerySelectionProxyData childData = data.getChild(propertyName);
+        if (childData == null) {
+            childData = helper.createTypeSafeSelectSubProxy(query, 
+                    data, propertyName, propertyType, 
+                    setter);
+        }
+        return childData;
     }
 }
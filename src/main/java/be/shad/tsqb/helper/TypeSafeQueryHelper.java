@@ -15,6 +15,8 @@
  */
 package be.shad.tsqb.helper;
 
+import org.hibernate.type.Type;
+
 import be.shad.tsqb.data.TypeSafeQueryProxyData;
 import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
 import be.shad.tsqb.query.TypeSafeQueryInternal;
@@ -62,6 +64,20 @@ public interface TypeSafeQueryHelper {
     TypeSafeQueryProxyData createTypeSafeJoinProxy(TypeSafeQueryInternal query, 
             TypeSafeQueryProxyData parent, String propertyName, Class<?> targetClass);
 
+    /**
+     * Creates the copy of the original data in the query's dataTree, with a proxy if the
+     * original has one. The type information of the original is reused, it is not
+     * looked up again. The parent must be the copy of the original's parent.
+     */
+    TypeSafeQueryProxyData copyTypeSafeProxyData(TypeSafeQueryInternal query,
+            TypeSafeQueryProxyData parent, TypeSafeQueryProxyData original);
+
+    /**
+     * The hibernate type of the property the data represents, used to bind
+     * the values it is compared to. Null when the data is not a property.
+     */
+    Type getPropertyType(TypeSafeQueryProxyData data);
+
     /**
      * Convert a value to a string. This is only used when hibernate would fail if params are used.
      * <p>
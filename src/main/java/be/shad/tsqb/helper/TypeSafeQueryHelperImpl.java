@@ -95,7 +95,7 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
      */
     @Override
     public <T> T createTypeSafeSelectProxy(final TypeSafeRootQueryInternal query, Class<T> clazz, TypeSafeQuerySelectionGroup group) {
-        final T proxy = proxyFactory.getProxy(clazz, SelectionDtoType);
+        final T proxy = getProxy(query, clazz, SelectionDtoType);
         TypeSafeQuerySelectionProxyData data = query.getDataTree().createSelectionData(
                 null, null, clazz, group, (TypeSafeQuerySelectionProxy) proxy);
         setSelectionDtoMethodHandler(query, data);
@@ -128,7 +128,7 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
         if (data.getProxy() == null) {
             TypeSafeQuerySelectionProxy childProxy = null;
             if (!isBasicType(data.getPropertyType())) {
-                childProxy = (TypeSafeQuerySelectionProxy) proxyFactory.getProxy(
+                childProxy = (TypeSafeQuerySelectionProxy) getProxy(query,
                         data.getPropertyType(), SelectionDtoType);
                 data.setProxy(childProxy);
             } else {
@@ -159,7 +159,7 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
         }
         // we now know the subtype is a hibernate type and it should be a subclass of the proxy,
         // bind the same data object to the subtype:
-        T subtypeProxy = proxyFactory.getProxy(subtype, EntityType);
+        T subtypeProxy = getProxy(query, subtype, EntityType);
         TypeSafeQueryProxyData data = ((TypeSafeQueryProxy) proxy).getTypeSafeProxyData();
         setEntityProxyMethodListener(query, (TypeSafeQueryProxy) subtypeProxy, data);
         return subtypeProxy;
@@ -170,13 +170,21 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
      */
     @Override
     public <T> T createTypeSafeFromProxy(TypeSafeQueryInternal query, Class<T> clazz) {
-        T proxy = proxyFactory.getProxy(clazz, EntityType);
+        T proxy = getProxy(query, clazz, EntityType);
         TypeSafeQueryProxyData data = query.getDataTree().createData(null,
                 null, clazz, EntityType, null, (TypeSafeQueryProxy) proxy);
         setEntityProxyMethodListener(query, (TypeSafeQueryProxy) proxy, data);
         return proxy;
     }
 
+    /**
+     * Gets the proxy from the pool of the root query, proxies released
+     * by a reset of the query are reused.
+     */
+    private <T> T getProxy(TypeSafeQueryInternal query, Class<T> clazz, TypeSafeQueryProxyType type) {
+        return query.getRootQuery().getProxyPool().getProxy(proxyFactory, clazz, type);
+    }
+
     /**
      * Sets the method handler on the proxy to create new proxies when
      * hibernate entities are traversed via the getter/setters.
@@ -202,7 +210,7 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
         } else {
             proxyType = propertyType instanceof ComponentType ? ComponentType: CompositeType;
         }
-        TypeSafeQueryProxy proxy = (TypeSafeQueryProxy) proxyFactory.getProxy(targetClass, proxyType);
+        TypeSafeQueryProxy proxy = (TypeSafeQueryProxy) getProxy(query, targetClass, proxyType);
         TypeSafeQueryProxyData data = query.getDataTree().createData(parent, property, targetClass,
                 proxyType, metadata == null ? null: metadata.getIdentifierPropertyName(), proxy);
         setEntityProxyMethodListener(query, proxy, data);
@@ -218,6 +226,23 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
         return createChildData(query, parent, propertyName);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeQueryProxyData copyTypeSafeProxyData(TypeSafeQueryInternal query,
+            TypeSafeQueryProxyData parent, TypeSafeQueryProxyData original) {
+        if (original.getProxy() == null) {
+            return query.getDataTree().createData(parent, original.getPropertyPath(), original.getPropertyType());
+        }
+        TypeSafeQueryProxy proxy = (TypeSafeQueryProxy) getProxy(query,
+                original.getPropertyType(), original.getProxyType());
+        TypeSafeQueryProxyData data = query.getDataTree().createData(parent, original.getPropertyPath(),
+                original.getPropertyType(), original.getProxyType(), original.getIdentifierPath(), proxy);
+        setEntityProxyMethodListener(query, proxy, data);
+        return data;
+    }
+
     /**
      * Simple conversion to the property path to be used in the query building phase.
      */
@@ -240,6 +265,18 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
         return ret;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Type getPropertyType(TypeSafeQueryProxyData data) {
+        if (data.getParent() == null || data.getProxyType().isCollection()) {
+            return null;
+        }
+        Type type = getTargetType(data.getParent(), data.getPropertyPath());
+        return type.isCollectionType() ? null: type;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -266,7 +303,11 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
      */
     @Override
     public String getResolvedTypeName(Class<?> javaType) {
-        return sessionFactory.getTypeHelper().basic(javaType).getName();
+        BasicType basic = sessionFactory.getTypeHelper().basic(javaType);
+        if (basic == null) {
+            throw new IllegalArgumentException("No basic type found for: " + javaType);
+        }
+        return basic.getName();
     }
 
     /**
@@ -15,8 +15,8 @@
  */
 package be.shad.tsqb.hql;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.hibernate.engine.jdbc.internal.BasicFormatterImpl;
@@ -31,7 +31,7 @@ public class HqlQuery implements HqlQueryValue {
     private StringBuilder groupBy = new StringBuilder();
     private StringBuilder having = new StringBuilder();
     private StringBuilder orderBy = new StringBuilder();
-    private List<Object> params = new LinkedList<Object>();
+    private List<Object> params = new ArrayList<Object>();
     private ResultTransformer resultTransformer;
 
     public ResultTransformer getResultTransformer() {
@@ -133,7 +133,21 @@ public class HqlQuery implements HqlQueryValue {
     }
 
     public String getHql() {
-        return getSelect() + getFrom() + getWhere() + getGroupBy() + getHaving() + getOrderBy();
+        StringBuilder hql = new StringBuilder(select.length() + from.length() + where.length()
+                + groupBy.length() + having.length() + orderBy.length() + 48);
+        appendClause(hql, "select ", select);
+        hql.append(" from ").append(from);
+        appendClause(hql, " where ", where);
+        appendClause(hql, " group by ", groupBy);
+        appendClause(hql, " having ", having);
+        appendClause(hql, " order by ", orderBy);
+        return hql.toString();
+    }
+
+    private void appendClause(StringBuilder hql, String keyword, StringBuilder clause) {
+        if( clause.length() > 0 ) {
+            hql.append(keyword).append(clause);
+        }
     }
 
     /**
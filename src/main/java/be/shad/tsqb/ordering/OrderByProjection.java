@@ -61,7 +61,7 @@ public class OrderByProjection implements OrderBy {
         String order = descending ? " desc": "";
         
         // look for the projection with the correct alias and append it as order by:
-        int aliasIndex = 1;
+        int projectionIndex = 0;
         TypeSafeRootQueryInternal query = (TypeSafeRootQueryInternal) this.query;
         TypeSafeQueryProjections projections = query.getProjections();
         for(TypeSafeValueProjection projection: projections.getProjections()) {
@@ -69,16 +69,17 @@ public class OrderByProjection implements OrderBy {
                 if (projection.getValue() instanceof TypeSafeSubQuery<?>) {
                     // if sorting by alias index is supported, this can be a workaround
                     // when trying to order by a column which is a subquery result
-                    hqlQuery.appendOrderBy(aliasIndex + order);
+                    hqlQuery.appendOrderBy(projections.getRenderedColumn(projectionIndex) + order);
                 } else {
                     boolean previous = params.setRequiresLiterals(true);
                     HqlQueryValue value = projection.getValue().toHqlQueryValue(params);
                     params.setRequiresLiterals(previous);
                     hqlQuery.appendOrderBy(value.getHql() + order);
+                    hqlQuery.addParams(value.getParams());
                 }
                 return;
             }
-            aliasIndex++;
+            projectionIndex++;
         }
     }
     
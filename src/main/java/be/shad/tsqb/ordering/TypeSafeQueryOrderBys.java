@@ -15,8 +15,8 @@
  */
 package be.shad.tsqb.ordering;
 
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 
 import be.shad.tsqb.hql.HqlQuery;
@@ -30,7 +30,7 @@ import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.TypeSafeValue;
 
 public class TypeSafeQueryOrderBys implements OnGoingOrderBy, HqlQueryBuilder, Copyable {
-    private final List<OrderBy> orderBys = new LinkedList<>();
+    private final List<OrderBy> orderBys = new ArrayList<>();
     private final TypeSafeQueryInternal query;
 
     public TypeSafeQueryOrderBys(TypeSafeQueryInternal query) {
@@ -166,6 +166,13 @@ public class TypeSafeQueryOrderBys implements OnGoingOrderBy, HqlQueryBuilder, C
         return orderBy(val, false);
     }
     
+    /**
+     * Removes all order bys.
+     */
+    public void clear() {
+        orderBys.clear();
+    }
+
     @Override
     public void appendTo(HqlQuery query, HqlQueryBuilderParams params) {
         for(OrderBy orderBy: orderBys) {
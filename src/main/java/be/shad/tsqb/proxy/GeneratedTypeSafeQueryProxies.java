@@ -0,0 +1,100 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.proxy;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import javassist.util.proxy.MethodHandler;
+import javassist.util.proxy.ProxyObject;
+
+/**
+ * Support methods for the proxies generated at compile time.
+ * <p>
+ * The generated proxies implement {@link ProxyObject} like the javassist proxies,
+ * so the same method handlers are used. Getters and setters call the handler directly
+ * with their property when it is a {@link TypeSafeQueryPropertyHandler}. Other methods,
+ * and the properties of other handlers, are dispatched to the handler with a method
+ * which is looked up once when the proxy class is loaded.
+ */
+public final class GeneratedTypeSafeQueryProxies {
+    private static final String ENTITY_PROXY_SUFFIX = "_TypeSafeQueryProxy";
+    private static final String SELECTION_PROXY_SUFFIX = "_TypeSafeQuerySelectionProxy";
+
+    private GeneratedTypeSafeQueryProxies() {
+    }
+
+    /**
+     * The name of the generated proxy class for a proxied class,
+     * nested classes are flattened into a top level class of the same package.
+     */
+    public static String getProxyClassName(String binaryName, boolean selectionProxy) {
+        return binaryName.replace('$', '_') + (selectionProxy ? SELECTION_PROXY_SUFFIX: ENTITY_PROXY_SUFFIX);
+    }
+
+    /**
+     * Looks up a method of the proxied class, used to initialize the generated proxy class.
+     */
+    public static Method getMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(String.format("The generated proxy of [%s] is out of date, "
+                    + "method [%s] no longer exists.", clazz, name), e);
+        }
+    }
+
+    /**
+     * Dispatches a method call to the handler of the proxy.
+     */
+    public static Object invoke(ProxyObject proxy, Method method, Object... args) {
+        MethodHandler handler = proxy.getHandler();
+        try {
+            return handler.invoke(proxy, method, null, args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    /**
+     * Calls the getter of the property on the handler of the proxy, the method
+     * is only dispatched when the handler is not a property handler.
+     */
+    public static Object getProperty(ProxyObject proxy, Method method, String propertyName, Class<?> propertyType) {
+        MethodHandler handler = proxy.getHandler();
+        if (handler instanceof TypeSafeQueryPropertyHandler) {
+            return ((TypeSafeQueryPropertyHandler) handler).getProperty(propertyName, propertyType);
+        }
+        return invoke(proxy, method);
+    }
+
+    /**
+     * Calls the setter of the property on the handler of the proxy, the method
+     * is only dispatched when the handler is not a property handler.
+     */
+    public static void setProperty(ProxyObject proxy, Method method, String propertyName,
+            Class<?> propertyType, Object value) {
+        MethodHandler handler = proxy.getHandler();
+        if (handler instanceof TypeSafeQueryPropertyHandler) {
+            ((TypeSafeQueryPropertyHandler) handler).setProperty(propertyName, propertyType, value);
+        } else {
+            invoke(proxy, method, value);
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.proxy;
+
+/**
+ * Implemented by the method handlers of the proxies, the proxies generated at
+ * compile time call the getters and setters through it directly with the name
+ * and type of the property, instead of dispatching a method with an argument array.
+ */
+public interface TypeSafeQueryPropertyHandler {
+
+    /**
+     * Handles the call of a getter of the proxy.
+     *
+     * @param propertyType the erased return type of the getter.
+     */
+    Object getProperty(String propertyName, Class<?> propertyType);
+
+    /**
+     * Handles the call of a setter of the proxy.
+     *
+     * @param propertyType the erased parameter type of the setter.
+     */
+    void setProperty(String propertyName, Class<?> propertyType, Object value);
+
+}
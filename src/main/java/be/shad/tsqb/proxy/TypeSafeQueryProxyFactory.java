@@ -27,6 +27,10 @@ import javassist.util.proxy.ProxyFactory;
  * <p>
  * the proxied classes are cached for faster proxy creation and
  * to prevent extra class creations everytime a proxy is requested.
+ * <p>
+ * Proxy classes generated at compile time by the 
+ * {@link be.shad.tsqb.proxy.processor.TypeSafeQueryProxyProcessor} are loaded
+ * when they are available, the proxy class is only created at runtime otherwise.
  */
 public final class TypeSafeQueryProxyFactory {
 
@@ -65,13 +69,21 @@ public final class TypeSafeQueryProxyFactory {
     private <T> Class<T> getProxyClass(Class<T> fromClass, TypeSafeQueryProxyType type) {
         synchronized ( proxyClasses ) { 
             Class<?> proxyClass = proxyClasses[type.ordinal()].get(fromClass);
+            if( proxyClass == null ) {
+                proxyClass = loadGeneratedProxyClass(fromClass, type);
+            }
             if( proxyClass == null ) {
                 ProxyFactory f = new ProxyFactory();
-                f.setSuperclass(fromClass); // what if the super class is final?? guess it will give an exception..
+                Class<?> proxyInterface = TypeSafeQuerySelectionProxy.class;
                 if( type.isEntity() || type.isComposite() ) {
-                    f.setInterfaces(new Class[] { TypeSafeQueryProxy.class });
+                    proxyInterface = TypeSafeQueryProxy.class;
+                }
+                if( fromClass.isInterface() ) {
+                    // interface result types are selected into views, see RowViewLayout
+                    f.setInterfaces(new Class[] { fromClass, proxyInterface });
                 } else {
-                    f.setInterfaces(new Class[] { TypeSafeQuerySelectionProxy.class });
+                    f.setSuperclass(fromClass); // what if the super class is final?? guess it will give an exception..
+                    f.setInterfaces(new Class[] { proxyInterface });
                 }
                 f.setFilter(METHOD_FILTER);
                 proxyClass = f.createClass();
@@ -80,5 +92,23 @@ public final class TypeSafeQueryProxyFactory {
             return (Class<T>) proxyClass;
         }
     }
+
+    /**
+     * Loads the proxy class generated at compile time, returns null when there is none.
+     */
+    private Class<?> loadGeneratedProxyClass(Class<?> fromClass, TypeSafeQueryProxyType type) {
+        boolean selectionProxy = !type.isEntity() && !type.isComposite();
+        String proxyClassName = GeneratedTypeSafeQueryProxies.getProxyClassName(fromClass.getName(), selectionProxy);
+        try {
+            Class<?> proxyClass = Class.forName(proxyClassName, true, fromClass.getClassLoader());
+            if( proxyClass.getSuperclass() == fromClass ) {
+                proxyClasses[type.ordinal()].put(fromClass, proxyClass);
+                return proxyClass;
+            }
+        } catch (ClassNotFoundException e) {
+            // not generated, the proxy class is created instead.
+        }
+        return null;
+    }
     
 }
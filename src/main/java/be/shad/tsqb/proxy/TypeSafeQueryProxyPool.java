@@ -0,0 +1,85 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.proxy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the proxies handed out for a root query so they can be
+ * reused when the query is reset. The proxies of a reset query get
+ * a new method handler when they are handed out again.
+ * <p>
+ * Confined to the query it belongs to, not thread safe.
+ */
+public class TypeSafeQueryProxyPool {
+    private final List<Object> inUse = new ArrayList<>();
+    private final List<TypeSafeQueryProxyType> inUseTypes = new ArrayList<>();
+    private final List<Class<?>> inUseClasses = new ArrayList<>();
+    private final Map<Class<?>, ArrayDeque<Object>>[] available;
+
+    @SuppressWarnings("unchecked")
+    public TypeSafeQueryProxyPool() {
+        available = new HashMap[TypeSafeQueryProxyType.values().length];
+        for (int i = 0; i < available.length; i++) {
+            available[i] = new HashMap<>();
+        }
+    }
+
+    /**
+     * Returns a released proxy of the given class and type if there is one,
+     * creates one with the factory otherwise.
+     */
+    public <T> T getProxy(TypeSafeQueryProxyFactory factory, Class<T> fromClass, TypeSafeQueryProxyType type) {
+        ArrayDeque<Object> proxies = available[type.ordinal()].get(fromClass);
+        T proxy = null;
+        if (proxies != null && !proxies.isEmpty()) {
+            proxy = fromClass.cast(proxies.pop());
+        } else {
+            proxy = factory.getProxy(fromClass, type);
+        }
+        inUse.add(proxy);
+        inUseTypes.add(type);
+        inUseClasses.add(fromClass);
+        return proxy;
+    }
+
+    /**
+     * Makes all proxies which were handed out available again.
+     * The proxies must no longer be used by the code which received them.
+     */
+    public void release() {
+        for(int i=0; i < inUse.size(); i++) {
+            Object proxy = inUse.get(i);
+            TypeSafeQueryProxyType type = inUseTypes.get(i);
+            // the requested class, proxies of interfaces don't extend it:
+            Class<?> fromClass = inUseClasses.get(i);
+            ArrayDeque<Object> proxies = available[type.ordinal()].get(fromClass);
+            if (proxies == null) {
+                proxies = new ArrayDeque<>();
+                available[type.ordinal()].put(fromClass, proxies);
+            }
+            proxies.push(proxy);
+        }
+        inUse.clear();
+        inUseTypes.clear();
+        inUseClasses.clear();
+    }
+
+}
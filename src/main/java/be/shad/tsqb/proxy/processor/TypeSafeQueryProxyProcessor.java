@@ -0,0 +1,317 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.proxy.processor;
+
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+import be.shad.tsqb.proxy.GeneratedTypeSafeQueryProxies;
+
+/**
+ * Generates the proxy classes at compile time, so they don't need to be
+ * created with javassist at runtime. Entity proxies are generated for entities
+ * and embeddables, selection proxies for classes marked with 
+ * {@link be.shad.tsqb.proxy.TypeSafeQueryDto}.
+ * <p>
+ * Each public method is overridden to dispatch to the method handler of the proxy,
+ * see {@link GeneratedTypeSafeQueryProxies}. Getters and setters pass their property
+ * name and type, which are resolved at compile time, so these calls don't look up
+ * a method or box their arguments in an array.
+ * <p>
+ * The processor is registered as a service, so it runs whenever this library is on the
+ * annotation processor path of a compilation with entities or dtos. Compile with
+ * <code>-proc:none</code> (or leave it off the processor path) to opt out, the proxies
+ * are created at runtime then. Classes which can't be subclassed
+ * (final, abstract, generic, without no-arg constructor, ...) are skipped,
+ * their proxies are still created at runtime by the
+ * {@link be.shad.tsqb.proxy.TypeSafeQueryProxyFactory}.
+ */
+@SupportedAnnotationTypes({
+    "javax.persistence.Entity",
+    "javax.persistence.Embeddable",
+    "be.shad.tsqb.proxy.TypeSafeQueryDto" })
+public class TypeSafeQueryProxyProcessor extends AbstractProcessor {
+    private static final String DTO_ANNOTATION = "be.shad.tsqb.proxy.TypeSafeQueryDto";
+    private static final String SUPPORT = GeneratedTypeSafeQueryProxies.class.getName();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for(TypeElement annotation: annotations) {
+            boolean selectionProxy = annotation.getQualifiedName().contentEquals(DTO_ANNOTATION);
+            for(Element element: roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS && isProxyable((TypeElement) element)) {
+                    generateProxy((TypeElement) element, selectionProxy);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks the class can be subclassed by a generated class in the same package.
+     */
+    private boolean isProxyable(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        String reason = null;
+        if (modifiers.contains(FINAL) || modifiers.contains(ABSTRACT) || modifiers.contains(PRIVATE)) {
+            reason = "it is final, abstract or private";
+        } else if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(STATIC)
+                || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            reason = "it is an inner class";
+        } else if (!type.getTypeParameters().isEmpty()) {
+            reason = "it is generic";
+        } else if (!hasNoArgConstructor(type)) {
+            reason = "it has no accessible no-arg constructor";
+        }
+        if (reason != null) {
+            processingEnv.getMessager().printMessage(Kind.NOTE, String.format("No proxy is generated "
+                    + "for [%s] because %s, it will be proxied at runtime.", type, reason), type);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean hasNoArgConstructor(TypeElement type) {
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        for(ExecutableElement constructor: constructors) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(PRIVATE)) {
+                return true;
+            }
+        }
+        return constructors.isEmpty();
+    }
+
+    /**
+     * Writes the source of the proxy class.
+     */
+    private void generateProxy(TypeElement type, boolean selectionProxy) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String proxyName = GeneratedTypeSafeQueryProxies.getProxyClassName(
+                processingEnv.getElementUtils().getBinaryName(type).toString(), selectionProxy);
+        String simpleName = packageName.isEmpty() ? proxyName: proxyName.substring(packageName.length() + 1);
+        String proxyInterface = selectionProxy ? "be.shad.tsqb.proxy.TypeSafeQuerySelectionProxy": "be.shad.tsqb.proxy.TypeSafeQueryProxy";
+        String dataMethod = selectionProxy ? "getTypeSafeQuerySelectionProxyData": "getTypeSafeProxyData";
+        String dataClass = selectionProxy ? "be.shad.tsqb.data.TypeSafeQuerySelectionProxyData": "be.shad.tsqb.data.TypeSafeQueryProxyData";
+        List<ExecutableElement> methods = getProxiedMethods(type, dataMethod);
+        DeclaredType declaredType = (DeclaredType) type.asType();
+        String typeName = type.getQualifiedName().toString();
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(proxyName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Proxy of {@link " + typeName + "}, generated by " + getClass().getName() + ".");
+            out.println(" */");
+            out.println("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+            out.println("public class " + simpleName + " extends " + typeName);
+            out.println("        implements javassist.util.proxy.ProxyObject, " + proxyInterface + " {");
+            out.println("    private static final java.lang.reflect.Method DATA_METHOD = " + SUPPORT 
+                    + ".getMethod(" + proxyInterface + ".class, \"" + dataMethod + "\");");
+            for(int i = 0; i < methods.size(); i++) {
+                ExecutableElement method = methods.get(i);
+                StringBuilder lookup = new StringBuilder();
+                lookup.append(SUPPORT).append(".getMethod(").append(typeName).append(".class, \"")
+                    .append(method.getSimpleName()).append("\"");
+                for(TypeMirror parameterType: ((ExecutableType) method.asType()).getParameterTypes()) {
+                    lookup.append(", ").append(processingEnv.getTypeUtils().erasure(parameterType)).append(".class");
+                }
+                lookup.append(")");
+                out.println("    private static final java.lang.reflect.Method METHOD_" + i + " = " + lookup + ";");
+            }
+            out.println("    private javassist.util.proxy.MethodHandler handler;");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void setHandler(javassist.util.proxy.MethodHandler handler) {");
+            out.println("        this.handler = handler;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public javassist.util.proxy.MethodHandler getHandler() {");
+            out.println("        return handler;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + dataClass + " " + dataMethod + "() {");
+            out.println("        if (handler == null) {");
+            out.println("            return null;");
+            out.println("        }");
+            out.println("        return (" + dataClass + ") " + SUPPORT + ".invoke(this, DATA_METHOD);");
+            out.println("    }");
+            for(int i = 0; i < methods.size(); i++) {
+                out.println();
+                writeMethod(out, declaredType, methods.get(i), "METHOD_" + i);
+            }
+            out.println("}");
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, String.format(
+                    "Failed to generate the proxy for [%s]: %s", type, e.getMessage()), type);
+        }
+    }
+
+    /**
+     * Collects the public methods which can be overridden, including the inherited methods.
+     * Methods of object are not proxied, except for toString.
+     */
+    private List<ExecutableElement> getProxiedMethods(TypeElement type, String dataMethod) {
+        List<ExecutableElement> methods = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        for(ExecutableElement method: ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(PUBLIC) || modifiers.contains(STATIC) 
+                    || modifiers.contains(FINAL) || modifiers.contains(ABSTRACT)) {
+                continue;
+            }
+            String name = method.getSimpleName().toString();
+            TypeElement declaringType = (TypeElement) method.getEnclosingElement();
+            if (declaringType.getQualifiedName().contentEquals("java.lang.Object") && !"toString".equals(name)) {
+                continue;
+            }
+            if (name.equals(dataMethod) || name.equals("getHandler") || name.equals("setHandler")) {
+                continue;
+            }
+            StringBuilder signature = new StringBuilder(name);
+            for(TypeMirror parameterType: ((ExecutableType) method.asType()).getParameterTypes()) {
+                signature.append(',').append(processingEnv.getTypeUtils().erasure(parameterType));
+            }
+            if (signatures.add(signature.toString())) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * The property of a getter or setter, derived the same way as the helper derives it
+     * from the method at runtime. Returns null for other methods.
+     */
+    private String getPropertyName(String methodName) {
+        int start;
+        if (methodName.startsWith("get") || methodName.startsWith("set")) {
+            start = 3;
+        } else if (methodName.startsWith("is")) {
+            start = 2;
+        } else {
+            return null;
+        }
+        if (methodName.length() == start) {
+            return null;
+        }
+        return methodName.substring(start, start + 1).toLowerCase() + methodName.substring(start + 1);
+    }
+
+    /**
+     * Writes the method which dispatches to the handler, or calls
+     * the super method when no handler was set.
+     */
+    private void writeMethod(PrintWriter out, DeclaredType declaredType, ExecutableElement method, String methodConstant) {
+        ExecutableType type = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+        TypeMirror returnType = type.getReturnType();
+        boolean isVoid = returnType.getKind() == TypeKind.VOID;
+        String name = method.getSimpleName().toString();
+
+        StringBuilder declaration = new StringBuilder("    public ");
+        if (!method.getTypeParameters().isEmpty()) {
+            declaration.append("<");
+            for(int i = 0; i < method.getTypeParameters().size(); i++) {
+                TypeParameterElement typeParameter = method.getTypeParameters().get(i);
+                declaration.append(i > 0 ? ", ": "").append(typeParameter.getSimpleName());
+                for(int j = 0; j < typeParameter.getBounds().size(); j++) {
+                    declaration.append(j > 0 ? " & ": " extends ").append(typeParameter.getBounds().get(j));
+                }
+            }
+            declaration.append("> ");
+        }
+        declaration.append(returnType).append(" ").append(name).append("(");
+        StringBuilder arguments = new StringBuilder();
+        List<? extends TypeMirror> parameterTypes = type.getParameterTypes();
+        for(int i = 0; i < parameterTypes.size(); i++) {
+            declaration.append(i > 0 ? ", ": "").append(parameterTypes.get(i)).append(" arg").append(i);
+            arguments.append(i > 0 ? ", ": "").append("arg").append(i);
+        }
+        declaration.append(")");
+        for(int i = 0; i < type.getThrownTypes().size(); i++) {
+            declaration.append(i > 0 ? ", ": " throws ").append(type.getThrownTypes().get(i));
+        }
+
+        String propertyName = getPropertyName(name);
+        String invocation;
+        if (propertyName != null && parameterTypes.isEmpty() && !isVoid && !name.startsWith("set")) {
+            invocation = SUPPORT + ".getProperty(this, " + methodConstant + ", \"" + propertyName
+                    + "\", " + processingEnv.getTypeUtils().erasure(returnType) + ".class)";
+        } else if (propertyName != null && parameterTypes.size() == 1 && isVoid && name.startsWith("set")) {
+            invocation = SUPPORT + ".setProperty(this, " + methodConstant + ", \"" + propertyName
+                    + "\", " + processingEnv.getTypeUtils().erasure(parameterTypes.get(0)) + ".class, arg0)";
+        } else {
+            invocation = SUPPORT + ".invoke(this, " + methodConstant 
+                    + ", new java.lang.Object[] {" + arguments + "})";
+        }
+        out.println("    @Override");
+        out.println(declaration + " {");
+        out.println("        if (handler == null) {");
+        if (isVoid) {
+            out.println("            super." + name + "(" + arguments + ");");
+            out.println("            return;");
+        } else {
+            out.println("            return super." + name + "(" + arguments + ");");
+        }
+        out.println("        }");
+        if (isVoid) {
+            out.println("        " + invocation + ";");
+        } else {
+            String castType = returnType.getKind().isPrimitive() ? processingEnv.getTypeUtils()
+                    .boxedClass((PrimitiveType) returnType).getQualifiedName().toString(): returnType.toString();
+            out.println("        return (" + castType + ") " + invocation + ";");
+        }
+        out.println("    }");
+    }
+
+}
@@ -118,6 +118,19 @@ public abstract class AbstractTypeSafeQuery implements TypeSafeQuery, TypeSafeQu
         this.orderBys = new TypeSafeQueryOrderBys(this);
     }
 
+    /**
+     * Removes the data tree, projections, restrictions, group bys and order bys,
+     * the query is empty again afterwards.
+     */
+    protected void clearQueryParts() {
+        dataTree.clear();
+        projections.clear();
+        whereRestrictions.clear();
+        havingRestrictions.clear();
+        groupBys.clear();
+        orderBys.clear();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -768,6 +781,14 @@ public abstract class AbstractTypeSafeQuery implements TypeSafeQuery, TypeSafeQu
         return whereRestrictions;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionsGroup getHavingRestrictions() {
+        return havingRestrictions;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -804,7 +825,13 @@ public abstract class AbstractTypeSafeQuery implements TypeSafeQuery, TypeSafeQu
      * Compose a query object with the selections, from, wheres, group bys and order bys.
      */
     protected HqlQuery toHqlQuery(HqlQueryBuilderParams params) {
-        HqlQuery query = new HqlQuery();
+        return toHqlQuery(new HqlQuery(), params);
+    }
+
+    /**
+     * Appends the selections, from, wheres, group bys and order bys to the given query.
+     */
+    protected <Q extends HqlQuery> Q toHqlQuery(Q query, HqlQueryBuilderParams params) {
 
         // append select part:
         projections.appendTo(query, params);
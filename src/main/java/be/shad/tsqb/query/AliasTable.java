@@ -0,0 +1,48 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+/**
+ * Preallocated aliases for a prefix and an index ("hobj1", "np2", ...),
+ * aliases beyond the preallocated range are built on demand.
+ */
+public final class AliasTable {
+    public static final AliasTable ENTITY_ALIASES = new AliasTable("hobj", 64);
+    public static final AliasTable SELECTION_GROUP_ALIASES = new AliasTable("g", 16);
+    public static final AliasTable NAMED_PARAMETERS = new AliasTable("np", 128);
+
+    private final String prefix;
+    private final String[] aliases;
+
+    private AliasTable(String prefix, int size) {
+        this.prefix = prefix;
+        this.aliases = new String[size];
+        for(int i=0; i < size; i++) {
+            aliases[i] = prefix + i;
+        }
+    }
+
+    /**
+     * @return the prefix followed by the index.
+     */
+    public String get(int index) {
+        if (index >= 0 && index < aliases.length) {
+            return aliases[index];
+        }
+        return prefix + index;
+    }
+
+}
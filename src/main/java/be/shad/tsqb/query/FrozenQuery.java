@@ -0,0 +1,287 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Query;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.transform.ResultTransformer;
+
+import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.QueryParameterBinder;
+import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.query.copy.CopyContext;
+import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
+import be.shad.tsqb.values.NamedValueEnabled;
+
+/**
+ * An immutable query, created by {@link TypeSafeRootQuery#freeze()}.
+ * <p>
+ * The hql, its params and the result transformer are rendered when the query is frozen.
+ * Changes to the query which was frozen don't affect the frozen query, so one instance
+ * can be shared by all threads and executed concurrently through the dao.
+ * <p>
+ * The named values of the query which were rendered as parameters can be bound to
+ * a different value for each execution. Named values which change the shape of the
+ * query can't be rebound: a collection can't change from one value to several values
+ * or the other way around, because a different operator was rendered for it.
+ */
+public final class FrozenQuery {
+    private final String hql;
+    private final List<Object> params;
+    private final QueryParameterBinder[] binders;
+    private final Map<String, NamedValueSlot> slots;
+    private final ResultTransformer resultTransformer;
+    private final int firstResult;
+    private final int maxResults;
+    private final TypeSafeQueryHints hints;
+
+    /**
+     * @param namedObjects the named objects of the query which was rendered,
+     *                     that query must not be changed anymore.
+     */
+    FrozenQuery(HqlQuery hqlQuery, HqlQueryBuilderParamsImpl params, Map<String, Object> namedObjects,
+            int firstResult, int maxResults, TypeSafeQueryHints hints) {
+        this.hql = hqlQuery.getHql();
+        this.params = Collections.unmodifiableList(new ArrayList<>(hqlQuery.getParams()));
+        this.binders = QueryParameterBinder.createBinders(this.params);
+        this.resultTransformer = hqlQuery.getResultTransformer();
+        this.firstResult = firstResult;
+        this.maxResults = maxResults;
+        this.hints = new FrozenHints(hints);
+
+        Map<String, NamedValueSlot> slots = new HashMap<>();
+        for(Entry<String, Object> named: namedObjects.entrySet()) {
+            if (named.getValue() instanceof NamedValueEnabled) {
+                NamedValueEnabled value = (NamedValueEnabled) named.getValue();
+                slots.put(named.getKey(), new NamedValueSlot(value,
+                        indexesOf(params.getNamedValueParameters(value))));
+            }
+        }
+        this.slots = slots;
+    }
+
+    /**
+     * Finds the positions of the parameters with the given names.
+     *
+     * @throws IllegalArgumentException when no parameter has one of the names.
+     */
+    private int[] indexesOf(List<String> names) {
+        int[] indexes = new int[names.size()];
+        for(int i=0; i < indexes.length; i++) {
+            indexes[i] = -1;
+            for(int p=0; p < params.size(); p++) {
+                Object param = params.get(p);
+                if (param instanceof NamedParameter && ((NamedParameter) param).getName().equals(names.get(i))) {
+                    indexes[i] = p;
+                }
+            }
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException(String.format(
+                        "No parameter found with name [%s].", names.get(i)));
+            }
+        }
+        return indexes;
+    }
+
+    public String getHql() {
+        return hql;
+    }
+
+    /**
+     * @return the params with the values the query had when it was frozen.
+     */
+    public List<Object> getParams() {
+        return params;
+    }
+
+    /**
+     * Binds the named values to their parameters, the params of named
+     * values which are not in the map keep the value they had when frozen.
+     *
+     * @throws IllegalArgumentException when a value can't be bound.
+     */
+    public List<Object> getParams(Map<String, ?> namedValues) {
+        if (namedValues == null || namedValues.isEmpty()) {
+            return params;
+        }
+        Object[] boundParams = params.toArray();
+        for(Entry<String, ?> namedValue: namedValues.entrySet()) {
+            NamedValueSlot slot = slots.get(namedValue.getKey());
+            if (slot == null) {
+                throw new IllegalArgumentException(String.format(
+                        "No named value found for [%s].", namedValue.getKey()));
+            }
+            slot.bind(namedValue.getKey(), namedValue.getValue(), boundParams);
+        }
+        return Arrays.asList(boundParams);
+    }
+
+    /**
+     * Binds the params returned by one of the getParams methods to the hibernate query,
+     * using the binders which were created when the query was frozen.
+     */
+    public void bindParams(Query query, List<Object> params) {
+        QueryParameterBinder.bindParams(query, binders, params);
+    }
+
+    public ResultTransformer getResultTransformer() {
+        return resultTransformer;
+    }
+
+    public int getFirstResult() {
+        return firstResult;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Creates the hibernate query for the hql, the params are not bound.
+     */
+    public Query createQuery(SharedSessionContract session) {
+        return session.createQuery(hql);
+    }
+
+    /**
+     * A copy of the hints the query had when it was frozen, the setters of the
+     * returned hints throw an {@link UnsupportedOperationException}.
+     */
+    public TypeSafeQueryHints getHints() {
+        return hints;
+    }
+
+    /**
+     * Passes the hints the query had when it was frozen on to the hibernate query.
+     */
+    public void applyHints(Query query) {
+        hints.applyTo(query);
+    }
+
+    /**
+     * The hints of a frozen query, these can't be changed because the frozen query is shared.
+     */
+    private static final class FrozenHints extends TypeSafeQueryHints {
+
+        private FrozenHints(TypeSafeQueryHints hints) {
+            super(new CopyContext(), hints);
+        }
+
+        private UnsupportedOperationException frozen() {
+            return new UnsupportedOperationException("The hints of a frozen query can't be changed.");
+        }
+
+        @Override
+        public void setFetchSize(Integer fetchSize) {
+            throw frozen();
+        }
+
+        @Override
+        public void setReadOnly(Boolean readOnly) {
+            throw frozen();
+        }
+
+        @Override
+        public void setTimeout(Integer timeout) {
+            throw frozen();
+        }
+
+        @Override
+        public void setFlushMode(FlushMode flushMode) {
+            throw frozen();
+        }
+
+        @Override
+        public void setCacheable(boolean cacheable) {
+            throw frozen();
+        }
+
+        @Override
+        public void setCacheRegion(String cacheRegion) {
+            throw frozen();
+        }
+
+        @Override
+        public void setComment(String comment) {
+            throw frozen();
+        }
+
+        @Override
+        public void setResultCached(boolean resultCached) {
+            throw frozen();
+        }
+
+        @Override
+        public void setCoalesced(boolean coalesced) {
+            throw frozen();
+        }
+
+        @Override
+        public void setMaxRowsInMemory(Integer maxRowsInMemory) {
+            throw frozen();
+        }
+
+        @Override
+        public void setMaxBytesInMemory(Long maxBytesInMemory) {
+            throw frozen();
+        }
+    }
+
+    /**
+     * The parameters a named value was rendered to.
+     */
+    private static final class NamedValueSlot {
+        private final NamedValueEnabled value;
+        private final int[] paramIndexes;
+
+        private NamedValueSlot(NamedValueEnabled value, int[] paramIndexes) {
+            this.value = value;
+            this.paramIndexes = paramIndexes;
+        }
+
+        private void bind(String name, Object namedValue, Object[] boundParams) {
+            if (paramIndexes.length == 0) {
+                throw new IllegalArgumentException(String.format("Named value [%s] can't be bound, "
+                        + "it was not rendered as a parameter.", name));
+            }
+            Object paramValue = value.toNamedParameterValue(namedValue);
+            for(int index: paramIndexes) {
+                NamedParameter param = (NamedParameter) boundParams[index];
+                if (isSingleValue(param.getValue()) != isSingleValue(paramValue)) {
+                    throw new IllegalArgumentException(String.format("Named value [%s] can't be bound to [%s], "
+                            + "a collection can't change from one to several values or the other way around.",
+                            name, namedValue));
+                }
+                boundParams[index] = new NamedParameter(param.getName(), paramValue, param.getType());
+            }
+        }
+
+        private boolean isSingleValue(Object paramValue) {
+            return !(paramValue instanceof Collection<?>) || ((Collection<?>) paramValue).size() == 1;
+        }
+    }
+
+}
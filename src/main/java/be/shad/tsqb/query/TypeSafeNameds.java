@@ -38,4 +38,9 @@ public interface TypeSafeNameds {
      * @param name must be one which was set before calling this method
      */
     void setValue(String name, Object value);
+
+    /**
+     * Checks if the object was named, the object is compared by identity.
+     */
+    boolean isNamed(Object object);
 }
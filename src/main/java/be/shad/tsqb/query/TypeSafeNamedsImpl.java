@@ -1,5 +1,6 @@
 package be.shad.tsqb.query;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -69,6 +70,19 @@ public class TypeSafeNamedsImpl implements TypeSafeNameds, Copyable {
         named(NamedValueEnabled.class, name).setNamedValue(value);
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isNamed(Object object) {
+        for(Object named: nameds.values()) {
+            if (named == object) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Get the named value and validates null and assignability.
      */
@@ -86,6 +100,13 @@ public class TypeSafeNamedsImpl implements TypeSafeNameds, Copyable {
         return clazz.cast(object);
     }
 
+    /**
+     * @return the named objects by name.
+     */
+    Map<String, Object> getNamedObjects() {
+        return Collections.unmodifiableMap(nameds);
+    }
+
     @Override
     public Copyable copy(CopyContext context) {
         return new TypeSafeNamedsImpl(context, this);
@@ -0,0 +1,236 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Query;
+
+import be.shad.tsqb.query.copy.CopyContext;
+import be.shad.tsqb.query.copy.Copyable;
+
+/**
+ * Hints which are passed on to the hibernate query when the query is executed.
+ * Hints which are not set (null) are left to the hibernate defaults.
+ * <p>
+ * The result cached hint is used by the dao itself.
+ */
+public class TypeSafeQueryHints implements Copyable {
+    private Integer fetchSize;
+    private Boolean readOnly;
+    private Integer timeout;
+    private FlushMode flushMode;
+    private boolean cacheable;
+    private String cacheRegion;
+    private String comment;
+    private boolean resultCached;
+    private boolean coalesced;
+    private Integer maxRowsInMemory;
+    private Long maxBytesInMemory;
+
+    public TypeSafeQueryHints() {
+        // default constructor for regular query creation
+    }
+
+    /**
+     * Copy constructor
+     */
+    protected TypeSafeQueryHints(CopyContext context, TypeSafeQueryHints original) {
+        context.put(original, this);
+        this.fetchSize = original.fetchSize;
+        this.readOnly = original.readOnly;
+        this.timeout = original.timeout;
+        this.flushMode = original.flushMode;
+        this.cacheable = original.cacheable;
+        this.cacheRegion = original.cacheRegion;
+        this.comment = original.comment;
+        this.resultCached = original.resultCached;
+        this.coalesced = original.coalesced;
+        this.maxRowsInMemory = original.maxRowsInMemory;
+        this.maxBytesInMemory = original.maxBytesInMemory;
+    }
+
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Purpose: {@link org.hibernate.Query#setFetchSize}
+     */
+    public void setFetchSize(Integer fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public Boolean getReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Purpose: {@link org.hibernate.Query#setReadOnly}, entities are loaded
+     * without snapshots so they are not dirty checked.
+     */
+    public void setReadOnly(Boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Purpose: {@link org.hibernate.Query#setTimeout}, the timeout in seconds.
+     */
+    public void setTimeout(Integer timeout) {
+        this.timeout = timeout;
+    }
+
+    public FlushMode getFlushMode() {
+        return flushMode;
+    }
+
+    /**
+     * Purpose: {@link org.hibernate.Query#setFlushMode}
+     */
+    public void setFlushMode(FlushMode flushMode) {
+        this.flushMode = flushMode;
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * Purpose: {@link org.hibernate.Query#setCacheable}
+     */
+    public void setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    public String getCacheRegion() {
+        return cacheRegion;
+    }
+
+    /**
+     * Purpose: {@link org.hibernate.Query#setCacheRegion}, only used when cacheable.
+     */
+    public void setCacheRegion(String cacheRegion) {
+        this.cacheRegion = cacheRegion;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    /**
+     * Purpose: {@link org.hibernate.Query#setComment}
+     */
+    public void setComment(String comment) {
+        this.comment = comment;
+    }
+
+    public boolean isResultCached() {
+        return resultCached;
+    }
+
+    /**
+     * Caches the result rows in the result cache of the dao, if the dao has one.
+     * See {@link be.shad.tsqb.dao.cache.OffHeapQueryResultCache}.
+     */
+    public void setResultCached(boolean resultCached) {
+        this.resultCached = resultCached;
+    }
+
+    public boolean isCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Lets executions of the same query which overlap share the rows of the first execution.
+     * Coalescing crosses sessions and transactions: the shared rows may have been read
+     * by a different transaction, so an execution doesn't see its own uncommitted changes.
+     * This is meant for read-only queries.
+     * <p>
+     * An execution waits at most the timeout of the query, or the default of the in flight
+     * queries without timeout, and then runs the query itself.
+     * See {@link be.shad.tsqb.dao.cache.InFlightQueries}.
+     */
+    public void setCoalesced(boolean coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    public Integer getMaxRowsInMemory() {
+        return maxRowsInMemory;
+    }
+
+    /**
+     * Spills the result rows to a temporary file once more rows than this were read.
+     * See {@link be.shad.tsqb.dao.result.SpilledQueryResult}.
+     */
+    public void setMaxRowsInMemory(Integer maxRowsInMemory) {
+        this.maxRowsInMemory = maxRowsInMemory;
+    }
+
+    public Long getMaxBytesInMemory() {
+        return maxBytesInMemory;
+    }
+
+    /**
+     * Spills the result rows to a temporary file once the encoded rows take more bytes than this.
+     * See {@link be.shad.tsqb.dao.result.SpilledQueryResult}.
+     */
+    public void setMaxBytesInMemory(Long maxBytesInMemory) {
+        this.maxBytesInMemory = maxBytesInMemory;
+    }
+
+    /**
+     * Whether the results may be spilled to a temporary file.
+     */
+    public boolean isSpillEnabled() {
+        return maxRowsInMemory != null || maxBytesInMemory != null;
+    }
+
+    /**
+     * Passes the hints which were set on to the hibernate query.
+     */
+    public void applyTo(Query query) {
+        if (fetchSize != null) {
+            query.setFetchSize(fetchSize);
+        }
+        if (readOnly != null) {
+            query.setReadOnly(readOnly);
+        }
+        if (timeout != null) {
+            query.setTimeout(timeout);
+        }
+        if (flushMode != null) {
+            query.setFlushMode(flushMode);
+        }
+        if (cacheable) {
+            query.setCacheable(true);
+            if (cacheRegion != null) {
+                query.setCacheRegion(cacheRegion);
+            }
+        }
+        if (comment != null) {
+            query.setComment(comment);
+        }
+    }
+
+    @Override
+    public Copyable copy(CopyContext context) {
+        return new TypeSafeQueryHints(context, this);
+    }
+
+}
@@ -97,6 +97,11 @@ public interface TypeSafeQueryInternal extends TypeSafeQuery, Copyable {
      * @return the known restrictions for this query.
      */
     RestrictionsGroup getRestrictions();
+
+    /**
+     * @return the having restrictions of this query.
+     */
+    RestrictionsGroup getHavingRestrictions();
     
     /**
      * @return the known order bys for this query.
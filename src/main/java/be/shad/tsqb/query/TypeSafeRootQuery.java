@@ -62,6 +62,24 @@ public interface TypeSafeRootQuery extends TypeSafeQuery {
      * not affect the original query.
      */
     TypeSafeRootQuery copy();
+
+    /**
+     * Creates an immutable query from the current state of this query, which can be
+     * executed by several threads at the same time, see {@link FrozenQuery}.
+     * Changes made to this query afterwards don't affect the frozen query.
+     *
+     * @throws UnsupportedOperationException when the query is rendered to sql.
+     */
+    FrozenQuery freeze();
+
+    /**
+     * Resets this query to the state of a newly created query so it can be reused
+     * to build the next query, avoiding the creation of a new query and its proxies.
+     * <p>
+     * The proxies, subqueries and values obtained from this query before the reset
+     * must no longer be used, the proxies are handed out again by the reset query.
+     */
+    void reset();
     
     /**
      * Converts this query to an hqlQuery. 
@@ -185,5 +203,100 @@ public interface TypeSafeRootQuery extends TypeSafeQuery {
      * The amount of results to fetch, default is -1, see {@link org.hibernate.Query#setMaxResults}
      */
     int getMaxResults();
+
+    /**
+     * Enables optimizing the restrictions when the query is converted to hql,
+     * default is false. See {@link be.shad.tsqb.restrictions.RestrictionsGroupOptimizer}.
+     * <p>
+     * The query itself is not changed, the optimization only affects the generated hql.
+     */
+    void setOptimizeRestrictions(boolean optimizeRestrictions);
+
+    /**
+     * Whether restrictions are optimized when the query is converted to hql.
+     */
+    boolean isOptimizeRestrictions();
+
+    /**
+     * Enables minimizing the query when it is converted to hql, default is false.
+     * <ul>
+     * <li>Left joins to single valued associations which are not fetched
+     *     and of which no value is used in the query are left out.</li>
+     * <li>Values which are selected into more than one dto property
+     *     are selected only once.</li>
+     * </ul>
+     */
+    void setMinimizeQuery(boolean minimizeQuery);
+
+    /**
+     * Whether the query is minimized when it is converted to hql.
+     */
+    boolean isMinimizeQuery();
+
+    /**
+     * Enables binding values as parameters where they would otherwise be inlined
+     * as literals, default is false. Literals are used for values in arithmetics,
+     * case when values, selected values and numbers compared to a value of another
+     * number type, because hibernate can't infer the type of a parameter there.
+     * <p>
+     * The parameters are cast to the type of their value instead, this keeps the hql
+     * the same regardless of the values, so hibernate and the database can reuse
+     * their query plans. Has no effect when the query is rendered to sql.
+     */
+    void setParameterizeLiterals(boolean parameterizeLiterals);
+
+    /**
+     * Whether values which would be inlined as literals are bound as parameters.
+     */
+    boolean isParameterizeLiterals();
+
+    /**
+     * Enables interning the result values, default is false. Equal strings, numbers
+     * and dates are replaced by the same instance while the results are transformed,
+     * which reduces the memory retained by large results with many repeated values.
+     * See {@link be.shad.tsqb.selection.ValueInterner}.
+     */
+    void setInternResultValues(boolean internResultValues);
+
+    /**
+     * Whether equal result values are replaced by the same instance.
+     */
+    boolean isInternResultValues();
+
+    /**
+     * Enables skipping duplicate results while they are transformed, default is false.
+     * Duplicate rows are removed in memory as they are read, instead of adding
+     * distinct to the query which makes the database sort or hash all rows.
+     * <p>
+     * Rows are duplicates when all their values are equal, selected entities
+     * are the same when they are the same instance of the session.
+     * See {@link be.shad.tsqb.selection.DistinctTuples}.
+     */
+    void setDistinctResults(boolean distinctResults);
+
+    /**
+     * Whether duplicate results are skipped while they are transformed.
+     */
+    boolean isDistinctResults();
+
+    /**
+     * Enables rendering the query to native sql instead of hql when it is executed
+     * by the dao, default is false. See {@link be.shad.tsqb.sql.SqlQueryRenderer}.
+     * <p>
+     * Skips the hql parsing, but only works for query shapes of which each value
+     * can be resolved to columns, an exception is thrown for other queries.
+     */
+    void setRenderSql(boolean renderSql);
+
+    /**
+     * Whether the query is rendered to native sql when it is executed.
+     */
+    boolean isRenderSql();
+
+    /**
+     * The hints which are passed on to the hibernate query when the query is executed,
+     * fetch size, read only, timeout, ...
+     */
+    TypeSafeQueryHints getHints();
     
 }
@@ -15,9 +15,10 @@
  */
 package be.shad.tsqb.query;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -27,6 +28,7 @@ import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
 import be.shad.tsqb.helper.TypeSafeQueryHelper;
 import be.shad.tsqb.hql.HqlQuery;
 import be.shad.tsqb.proxy.TypeSafeQueryProxy;
+import be.shad.tsqb.proxy.TypeSafeQueryProxyPool;
 import be.shad.tsqb.proxy.TypeSafeQuerySelectionProxy;
 import be.shad.tsqb.query.copy.CopyContext;
 import be.shad.tsqb.query.copy.Copyable;
@@ -43,6 +45,7 @@ import be.shad.tsqb.selection.parallel.SelectionMerger;
 import be.shad.tsqb.selection.parallel.SelectionMerger1;
 import be.shad.tsqb.selection.parallel.SelectionMerger2;
 import be.shad.tsqb.selection.parallel.SelectionMerger3;
+import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
 import be.shad.tsqb.values.TypeSafeValue;
 
@@ -54,7 +57,7 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
     private static final String SELECT_RESULT_GROUP = "g0";
     private List<TypeSafeQueryProxyData> invocationQueue;
     private Map<String, TypeSafeQueryProxy> customAliasedProxies;
-    private TypeSafeNameds namedObjects;
+    private TypeSafeNamedsImpl namedObjects;
     private TypeSafeValue<?> lastSelectedValue;
     private TypeSafeQuerySelectionProxyData lastInvokedSelectionData;
     private RestrictionPredicate restrictionPredicate;
@@ -62,6 +65,14 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
     private int selectionGroupAliasCount;
     private int firstResult;
     private int maxResults;
+    private boolean optimizeRestrictions;
+    private boolean minimizeQuery;
+    private boolean parameterizeLiterals;
+    private boolean internResultValues;
+    private boolean distinctResults;
+    private boolean renderSql;
+    private TypeSafeQueryHints hints;
+    private TypeSafeQueryProxyPool proxyPool;
 
     @Override
     public TypeSafeRootQuery copy() {
@@ -80,8 +91,9 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
      */
     @Override
     protected void initializeDefaults() {
-        invocationQueue = new LinkedList<>();
+        invocationQueue = new ArrayList<>();
         customAliasedProxies = new HashMap<>();
+        proxyPool = new TypeSafeQueryProxyPool();
         entityAliasCount = 1;
         selectionGroupAliasCount = 1;
         firstResult = -1;
@@ -107,12 +119,72 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
         selectionGroupAliasCount = original.selectionGroupAliasCount;
         firstResult = original.firstResult;
         maxResults = original.maxResults;
+        optimizeRestrictions = original.optimizeRestrictions;
+        minimizeQuery = original.minimizeQuery;
+        parameterizeLiterals = original.parameterizeLiterals;
+        internResultValues = original.internResultValues;
+        distinctResults = original.distinctResults;
+        renderSql = original.renderSql;
+        hints = context.get(original.hints);
     }
 
     public TypeSafeRootQueryImpl(TypeSafeQueryHelper helper) {
         super(helper);
         setRootQuery(this);
         namedObjects = new TypeSafeNamedsImpl();
+        hints = new TypeSafeQueryHints();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        clearQueryParts();
+        proxyPool.release();
+        invocationQueue.clear();
+        customAliasedProxies.clear();
+        namedObjects = new TypeSafeNamedsImpl();
+        hints = new TypeSafeQueryHints();
+        lastSelectedValue = null;
+        lastInvokedSelectionData = null;
+        restrictionPredicate = null;
+        entityAliasCount = 1;
+        selectionGroupAliasCount = 1;
+        firstResult = -1;
+        maxResults = -1;
+        optimizeRestrictions = false;
+        minimizeQuery = false;
+        parameterizeLiterals = false;
+        internResultValues = false;
+        distinctResults = false;
+        renderSql = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FrozenQuery freeze() {
+        if (renderSql) {
+            throw new UnsupportedOperationException("Freezing a query which is rendered to sql is not supported.");
+        }
+        // the copy is only used by the frozen query, so it doesn't change anymore:
+        TypeSafeRootQueryImpl frozen = (TypeSafeRootQueryImpl) copy();
+        HqlQueryBuilderParamsImpl params = new HqlQueryBuilderParamsImpl();
+        params.setParameterizeLiterals(parameterizeLiterals);
+        params.trackNamedValueParameters();
+        HqlQuery hqlQuery = frozen.toHqlQuery(new HqlQuery(), params);
+        return new FrozenQuery(hqlQuery, params, frozen.namedObjects.getNamedObjects(),
+                frozen.firstResult, frozen.maxResults, frozen.hints);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeQueryProxyPool getProxyPool() {
+        return proxyPool;
     }
 
     /**
@@ -147,6 +219,110 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
         this.maxResults = maxResults;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isOptimizeRestrictions() {
+        return optimizeRestrictions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOptimizeRestrictions(boolean optimizeRestrictions) {
+        this.optimizeRestrictions = optimizeRestrictions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isMinimizeQuery() {
+        return minimizeQuery;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMinimizeQuery(boolean minimizeQuery) {
+        this.minimizeQuery = minimizeQuery;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isParameterizeLiterals() {
+        return parameterizeLiterals;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setParameterizeLiterals(boolean parameterizeLiterals) {
+        this.parameterizeLiterals = parameterizeLiterals;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isInternResultValues() {
+        return internResultValues;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setInternResultValues(boolean internResultValues) {
+        this.internResultValues = internResultValues;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDistinctResults() {
+        return distinctResults;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDistinctResults(boolean distinctResults) {
+        this.distinctResults = distinctResults;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRenderSql() {
+        return renderSql;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setRenderSql(boolean renderSql) {
+        this.renderSql = renderSql;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeQueryHints getHints() {
+        return hints;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -187,8 +363,12 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
      * {@inheritDoc}
      */
     public List<TypeSafeQueryProxyData> dequeueInvocations() {
+        if (invocationQueue.isEmpty()) {
+            // nothing was queued, keep the current queue:
+            return Collections.emptyList();
+        }
         List<TypeSafeQueryProxyData> old = invocationQueue;
-        invocationQueue = new LinkedList<>();
+        invocationQueue = new ArrayList<>();
         return old;
     }
 
@@ -249,7 +429,7 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
      */
     @Override
     public String createEntityAlias() {
-        return "hobj"+ entityAliasCount++;
+        return AliasTable.ENTITY_ALIASES.get(entityAliasCount++);
     }
 
     /**
@@ -257,7 +437,7 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
      */
     @Override
     public String createSelectGroupAlias() {
-        return "g" + selectionGroupAliasCount++;
+        return AliasTable.SELECTION_GROUP_ALIASES.get(selectionGroupAliasCount++);
     }
 
     /**
@@ -427,7 +607,17 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
 
     @Override
     public HqlQuery toHqlQuery() {
-        return super.toHqlQuery(new HqlQueryBuilderParamsImpl());
+        HqlQueryBuilderParamsImpl params = new HqlQueryBuilderParamsImpl();
+        params.setParameterizeLiterals(parameterizeLiterals);
+        return super.toHqlQuery(params);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <Q extends HqlQuery> Q toHqlQuery(Q query, HqlQueryBuilderParams params) {
+        return super.toHqlQuery(query, params);
     }
 
     /**
@@ -16,6 +16,9 @@
 package be.shad.tsqb.query;
 
 import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
+import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.proxy.TypeSafeQueryProxyPool;
+import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.TypeSafeValue;
 
 /**
@@ -57,5 +60,17 @@ public interface TypeSafeRootQueryInternal extends TypeSafeRootQuery, TypeSafeQu
      * into a grouped collection dto.
      */
     String createSelectGroupAlias();
+
+    /**
+     * Appends the query parts to the given query using the given params,
+     * used when the query is rendered to something other than plain hql.
+     */
+    <Q extends HqlQuery> Q toHqlQuery(Q query, HqlQueryBuilderParams params);
+
+    /**
+     * The pool to get the proxies for this query and its subqueries from,
+     * the proxies are released when the query is reset.
+     */
+    TypeSafeQueryProxyPool getProxyPool();
     
 }
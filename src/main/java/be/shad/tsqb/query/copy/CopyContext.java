@@ -58,7 +58,9 @@ public class CopyContext {
                         + "so its copy should have been added before trying to get its copy.",
                         originalOrCopy));
             } else {
-                copy = originalOrCopy;
+                // shared between the original and the copy,
+                // not recorded, a next lookup yields the same result:
+                return originalOrCopy;
             }
             put(originalOrCopy, (T) copy);
         }
@@ -282,7 +282,7 @@ public abstract class OnGoingRestrictionImpl<VAL, CONTINUED extends ContinuedOnG
     public <T extends VAL> CONTINUED notIn(Collection<T> values, RestrictionPredicate predicate) {
         this.predicate = predicate;
         // suppressing warnings because we know T is a kind of VAL, and we won't be changing the collection internally
-        return notIn(new CollectionTypeSafeValue<>(group.getQuery(), getSupportedValueClass(), (Collection) values));
+        return notIn(new CollectionTypeSafeValue<VAL>(group.getQuery(), getSupportedValueClass(), (Collection) values));
     }
     
     @Override
@@ -295,6 +295,6 @@ public abstract class OnGoingRestrictionImpl<VAL, CONTINUED extends ContinuedOnG
     public <T extends VAL> CONTINUED in(Collection<T> values, RestrictionPredicate predicate) {
         this.predicate = predicate;
         // suppressing warnings because we know T is a kind of VAL, and we won't be changing the collection internally
-        return in(new CollectionTypeSafeValue<>(group.getQuery(), getSupportedValueClass(), (Collection) values));
+        return in(new CollectionTypeSafeValue<VAL>(group.getQuery(), getSupportedValueClass(), (Collection) values));
     }
 }
@@ -15,21 +15,33 @@
  */
 package be.shad.tsqb.restrictions;
 
+import static be.shad.tsqb.restrictions.RestrictionOperator.EQUAL;
 import static be.shad.tsqb.restrictions.RestrictionOperator.EXISTS;
+import static be.shad.tsqb.restrictions.RestrictionOperator.IN;
+import static be.shad.tsqb.restrictions.RestrictionOperator.NOT_EQUAL;
 import static be.shad.tsqb.restrictions.RestrictionOperator.NOT_EXISTS;
+import static be.shad.tsqb.restrictions.RestrictionOperator.NOT_IN;
+
+import java.math.BigInteger;
+
+import org.hibernate.type.Type;
+
 import be.shad.tsqb.query.TypeSafeQueryInternal;
 import be.shad.tsqb.query.TypeSafeSubQuery;
 import be.shad.tsqb.query.copy.CopyContext;
 import be.shad.tsqb.query.copy.Copyable;
+import be.shad.tsqb.restrictions.predicate.MatchNothingPredicate;
 import be.shad.tsqb.restrictions.predicate.RestrictionGuard;
 import be.shad.tsqb.restrictions.predicate.RestrictionPredicate;
 import be.shad.tsqb.selection.TypeSafeQueryProjections;
 import be.shad.tsqb.values.CastTypeSafeValue;
+import be.shad.tsqb.values.CollectionTypeSafeValue;
 import be.shad.tsqb.values.DirectTypeSafeValue;
 import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.HqlQueryValue;
 import be.shad.tsqb.values.HqlQueryValueImpl;
 import be.shad.tsqb.values.OperatorAwareValue;
+import be.shad.tsqb.values.ReferenceTypeSafeValue;
 import be.shad.tsqb.values.TypeSafeValue;
 
 /**
@@ -82,6 +94,10 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
         this.operator = original.operator;
     }
 
+    public RestrictionOperator getOperator() {
+        return operator;
+    }
+
     public void setOperator(RestrictionOperator operator) {
         this.operator = operator;
     }
@@ -115,6 +131,10 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
     
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams params) {
+        if ((operator == IN || operator == NOT_IN) && isValueMatchingNothing()) {
+            // an empty 'in' can't be added to the query, add an equivalent restriction instead:
+            return new HqlQueryValueImpl(operator == IN ? "1 = 0": "1 = 1");
+        }
         HqlQueryValueImpl value = new HqlQueryValueImpl();
         if( left != null ) {
             HqlQueryValue hqlQueryValue;
@@ -123,7 +143,9 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
                 hqlQueryValue = left.toHqlQueryValue(params);
                 params.setRequiresLiterals(previous);
             } else {
+                Type previous = params.setParameterType(getParameterType(right, left));
                 hqlQueryValue = left.toHqlQueryValue(params);
+                params.setParameterType(previous);
             }
             value.appendHql(hqlQueryValue.getHql());
             value.addParams(hqlQueryValue.getParams());
@@ -150,7 +172,9 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
                 hqlQueryValue = right.toHqlQueryValue(params);
                 params.setRequiresLiterals(previous);
             } else {
+                Type previous = params.setParameterType(getParameterType(left, right));
                 hqlQueryValue = right.toHqlQueryValue(params);
+                params.setParameterType(previous);
             }
             value.appendHql(hqlQueryValue.getHql());
             value.addParams(hqlQueryValue.getParams());
@@ -178,6 +202,21 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
         return this;
     }
 
+    /**
+     * The type of the property a direct value is compared to, the value is bound
+     * with it instead of with the type hibernate guesses from the value.
+     */
+    private Type getParameterType(TypeSafeValue<?> property, TypeSafeValue<?> value) {
+        if (property instanceof ReferenceTypeSafeValue<?> && (value instanceof DirectTypeSafeValue<?>
+                || value instanceof CollectionTypeSafeValue<?>)) {
+            Type type = query.getHelper().getPropertyType(((ReferenceTypeSafeValue<?>) property).getData());
+            if (type != null && type.getReturnedClass().isAssignableFrom(value.getValueClass())) {
+                return type;
+            }
+        }
+        return null;
+    }
+
     /**
      * Hibernate will validate the left side parameter type is exactly
      * the same as the right side during the parameter binding phase for some reason
@@ -215,12 +254,68 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
         return new RestrictionImpl<VAL>(context, this);
     }
 
-    @Override
-    public boolean isRestrictionApplicable() {
-        RestrictionPredicate predicate = this.predicate;
+    /**
+     * Checks if the restriction can't match anything, without querying:
+     * <ul>
+     * <li>An 'in' restriction with a value which matches nothing according to the predicate.</li>
+     * <li>Two different direct values compared with '=' or the same direct values compared with '&lt;&gt;'.</li>
+     * </ul>
+     * Only integral values are compared, the database may compare other values differently:
+     * the collation decides whether strings are equal, dates may be truncated to the column type
+     * and decimals may be rounded to the column scale.
+     */
+    public boolean isRestrictionUnsatisfiable() {
+        if (operator == IN) {
+            return isValueMatchingNothing();
+        }
+        if ((operator == EQUAL || operator == NOT_EQUAL)
+                && left instanceof DirectTypeSafeValue<?> && right instanceof DirectTypeSafeValue<?>) {
+            Object leftValue = ((DirectTypeSafeValue<?>) left).getValue();
+            Object rightValue = ((DirectTypeSafeValue<?>) right).getValue();
+            if (!isIntegralValue(leftValue) || !leftValue.getClass().equals(rightValue.getClass())) {
+                return false;
+            }
+            boolean equal = leftValue.equals(rightValue);
+            return operator == EQUAL ? !equal: equal;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the value is an integral number, these are compared
+     * the same way in java as they are compared by the database.
+     */
+    static boolean isIntegralValue(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte || value instanceof BigInteger;
+    }
+
+    /**
+     * Checks if the predicate decides one of the values matches nothing.
+     */
+    private boolean isValueMatchingNothing() {
+        RestrictionPredicate predicate = getEffectivePredicate();
+        if (predicate instanceof MatchNothingPredicate) {
+            MatchNothingPredicate matchNothing = (MatchNothingPredicate) predicate;
+            return left != null && matchNothing.isValueMatchingNothing(left)
+                    || right != null && matchNothing.isValueMatchingNothing(right);
+        }
+        return false;
+    }
+
+    /**
+     * The predicate of this restriction, or the default predicate of the query if it has none.
+     */
+    private RestrictionPredicate getEffectivePredicate() {
         if (predicate == null) {
-            predicate = query.getDefaultRestrictionPredicate();
+            return query.getDefaultRestrictionPredicate();
         }
+        return predicate;
+    }
+
+    @Override
+    public boolean isRestrictionApplicable() {
+        RestrictionPredicate predicate = getEffectivePredicate();
         if (predicate != null) {
             if (left != null && !predicate.isValueApplicable(left)) {
                 return false;
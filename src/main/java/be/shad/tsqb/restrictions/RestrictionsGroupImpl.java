@@ -18,8 +18,8 @@ package be.shad.tsqb.restrictions;
 import static be.shad.tsqb.restrictions.RestrictionNodeType.And;
 import static be.shad.tsqb.restrictions.RestrictionNodeType.Or;
 
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 
 import be.shad.tsqb.data.TypeSafeQueryProxyData;
@@ -32,6 +32,7 @@ import be.shad.tsqb.restrictions.predicate.RestrictionGuard;
 import be.shad.tsqb.values.CustomTypeSafeValue;
 import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.HqlQueryValue;
+import be.shad.tsqb.values.HqlQueryValueBuilder;
 import be.shad.tsqb.values.HqlQueryValueImpl;
 import be.shad.tsqb.values.TypeSafeValue;
 
@@ -43,7 +44,7 @@ import be.shad.tsqb.values.TypeSafeValue;
 public class RestrictionsGroupImpl extends RestrictionChainableImpl implements RestrictionAndChainable, RestrictionsGroupInternal {
     private final TypeSafeQueryInternal query;
     private final TypeSafeQueryProxyData join;
-    private final List<RestrictionNode> restrictions = new LinkedList<>();
+    private final List<RestrictionNode> restrictions = new ArrayList<>();
     private RestrictionsGroupBracketsPolicy bracketsPolicy;
 
     public RestrictionsGroupImpl(TypeSafeQueryInternal query,
@@ -105,6 +106,11 @@ public class RestrictionsGroupImpl extends RestrictionChainableImpl implements R
         return restrictions.isEmpty();
     }
 
+    @Override
+    public void clear() {
+        restrictions.clear();
+    }
+
     @Override
     public RestrictionChainable where(HqlQueryValue restriction) {
         return and(restriction);
@@ -155,6 +161,9 @@ public class RestrictionsGroupImpl extends RestrictionChainableImpl implements R
      */
     @Override
     public HqlQueryValueImpl toHqlQueryValue(HqlQueryBuilderParams params) {
+        if (query.getRootQuery().isOptimizeRestrictions()) {
+            return toOptimizedHqlQueryValue(params);
+        }
         HqlQueryValueImpl value = new HqlQueryValueImpl();
         boolean hasValue = false;
         for(RestrictionNode item: restrictions) {
@@ -178,13 +187,34 @@ public class RestrictionsGroupImpl extends RestrictionChainableImpl implements R
                 }
             }
         }
-        if (!hasValue || !isAddBrackets()) {
+        if (!hasValue || !isAddBrackets(restrictions.size())) {
             return value;
         }
         return new HqlQueryValueImpl("(" + value.getHql() + ")", value.getParams());
     }
 
-    private boolean isRestrictionApplicable(Restriction restriction) {
+    /**
+     * Converts the optimized restrictions to hql, the brackets policy
+     * is evaluated using the amount of restrictions left after optimizing.
+     */
+    private HqlQueryValueImpl toOptimizedHqlQueryValue(HqlQueryBuilderParams params) {
+        RestrictionsGroupOptimizer optimizer = new RestrictionsGroupOptimizer();
+        List<List<HqlQueryValueBuilder>> terms = optimizer.optimize(this);
+        HqlQueryValueImpl value = optimizer.toHqlQueryValue(terms, params);
+        if (value.getHql().length() == 0 || !isAddBrackets(optimizer.countElements(terms))) {
+            return value;
+        }
+        return new HqlQueryValueImpl("(" + value.getHql() + ")", value.getParams());
+    }
+
+    /**
+     * The restriction nodes, in the order they were added.
+     */
+    List<RestrictionNode> getRestrictionNodes() {
+        return restrictions;
+    }
+
+    static boolean isRestrictionApplicable(Restriction restriction) {
         if (restriction instanceof RestrictionGuard) {
             return ((RestrictionGuard) restriction).isRestrictionApplicable();
         }
@@ -194,9 +224,9 @@ public class RestrictionsGroupImpl extends RestrictionChainableImpl implements R
     /**
      * Evaluates brackets policy to decide whether to add brackets or not.
      */
-    private boolean isAddBrackets() {
+    private boolean isAddBrackets(int restrictionsCount) {
         switch (bracketsPolicy) {
-            case WhenMoreThanOne: return restrictions.size() > 1;
+            case WhenMoreThanOne: return restrictionsCount > 1;
             case Never:           return false;
             case Always:
             default:              return true;
@@ -38,5 +38,10 @@ public interface RestrictionsGroupInternal extends RestrictionsGroup, Restrictio
      * @return true if the group doesn't contain restrictions
      */
     boolean isEmpty();
+
+    /**
+     * Removes all restrictions from the group.
+     */
+    void clear();
     
 }
@@ -0,0 +1,643 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.restrictions;
+
+import static be.shad.tsqb.restrictions.RestrictionOperator.EQUAL;
+import static be.shad.tsqb.restrictions.RestrictionOperator.IN;
+import static be.shad.tsqb.restrictions.RestrictionOperator.IS_NOT_NULL;
+import static be.shad.tsqb.restrictions.RestrictionOperator.IS_NULL;
+import static be.shad.tsqb.restrictions.RestrictionOperator.NOT_EQUAL;
+import static be.shad.tsqb.restrictions.RestrictionOperator.NOT_IN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.values.CollectionTypeSafeValue;
+import be.shad.tsqb.values.DirectTypeSafeStringValue;
+import be.shad.tsqb.values.DirectTypeSafeValue;
+import be.shad.tsqb.values.HqlQueryBuilderParams;
+import be.shad.tsqb.values.HqlQueryValue;
+import be.shad.tsqb.values.HqlQueryValueBuilder;
+import be.shad.tsqb.values.HqlQueryValueImpl;
+import be.shad.tsqb.values.NamedValueEnabled;
+import be.shad.tsqb.values.ReferenceTypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValue;
+
+/**
+ * Rewrites the restrictions of a group to a shorter equivalent while the query is converted to hql.
+ * The restrictions group itself is not changed, so named values can still be set afterwards.
+ * <p>
+ * The restriction chain is rendered without brackets, so 'a and b or c' is evaluated as '(a and b) or c'.
+ * The optimizer splits the chain into such 'or' terms of 'and'ed restrictions and then:
+ * <ul>
+ * <li>drops restrictions which are not applicable and groups without applicable restrictions,</li>
+ * <li>flattens nested groups into the same 'and' term or 'or' chain when no brackets are required,</li>
+ * <li>removes exact duplicate restrictions and terms,</li>
+ * <li>merges 'x = a or x = b' into 'x in (a, b)' and 'x &lt;&gt; a and x &lt;&gt; b' into 'x not in (a, b)'.</li>
+ * </ul>
+ * Restrictions on named values are neither merged nor removed as duplicates.
+ */
+public class RestrictionsGroupOptimizer {
+
+    /**
+     * Splits the applicable restrictions of the group into 'or' terms of 'and'ed restrictions.
+     * Nested groups are optimized as well, the elements of the terms are either
+     * restrictions or bracketed nested groups.
+     */
+    public List<List<HqlQueryValueBuilder>> optimize(RestrictionsGroupImpl group) {
+        List<List<Object>> chain = new ArrayList<>();
+        List<Object> term = null;
+        for(RestrictionNode node: group.getRestrictionNodes()) {
+            Restriction restriction = node.getRestriction();
+            if (!RestrictionsGroupImpl.isRestrictionApplicable(restriction)) {
+                continue;
+            }
+            Object element = restriction;
+            if (restriction instanceof RestrictionsGroupImpl) {
+                List<List<HqlQueryValueBuilder>> nested = optimize((RestrictionsGroupImpl) restriction);
+                if (nested.isEmpty()) {
+                    // empty groups are skipped entirely, same as non applicable restrictions
+                    continue;
+                }
+                element = new OptimizedGroup(nested);
+            }
+            if (term == null || node.getType() == RestrictionNodeType.Or) {
+                term = new ArrayList<>();
+                chain.add(term);
+            }
+            term.add(element);
+        }
+
+        List<List<HqlQueryValueBuilder>> terms = new ArrayList<>(chain.size());
+        for(List<Object> elements: chain) {
+            if (elements.size() == 1 && elements.get(0) instanceof OptimizedGroup) {
+                // a group which is or'ed as a whole can be added to this or chain:
+                terms.addAll(((OptimizedGroup) elements.get(0)).terms);
+                continue;
+            }
+            List<HqlQueryValueBuilder> conjunction = new ArrayList<>(elements.size());
+            for(Object element: elements) {
+                if (element instanceof OptimizedGroup) {
+                    OptimizedGroup nested = (OptimizedGroup) element;
+                    if (nested.terms.size() == 1) {
+                        // a nested group without ors can be and'ed with the rest of the term:
+                        conjunction.addAll(nested.terms.get(0));
+                    } else {
+                        conjunction.add(nested);
+                    }
+                } else {
+                    conjunction.add((Restriction) element);
+                }
+            }
+            terms.add(conjunction);
+        }
+
+        for(int i=0; i < terms.size(); i++) {
+            List<HqlQueryValueBuilder> conjunction = removeDuplicates(terms.get(i));
+            terms.set(i, mergeValues(conjunction, NOT_EQUAL, NOT_IN));
+        }
+        return removeDuplicateTerms(mergeEqualityTerms(terms));
+    }
+
+    /**
+     * Checks if the restrictions of the group can't match anything.
+     * <p>
+     * Each 'or' term must be unsatisfiable. A term is unsatisfiable when one of its
+     * restrictions is, see {@link RestrictionImpl#isRestrictionUnsatisfiable()},
+     * or when the direct integral bounds on a property contradict, for example 'x &gt; 5 and x &lt; 3'.
+     * A group without restrictions matches everything.
+     * <p>
+     * Groups without an unsatisfiable restriction or two bounds on the same property
+     * are satisfiable, these are detected without optimizing the group.
+     */
+    public boolean isUnsatisfiable(RestrictionsGroupImpl group) {
+        if (!isPossiblyUnsatisfiable(group, group)) {
+            return false;
+        }
+        return isUnsatisfiable(optimize(group));
+    }
+
+    /**
+     * Checks if the group or one of its nested groups contains an unsatisfiable restriction
+     * or a bound on a property which is bounded elsewhere in the root group as well.
+     * Doesn't allocate anything, it is checked for every query.
+     */
+    private boolean isPossiblyUnsatisfiable(RestrictionsGroupImpl root, RestrictionsGroupImpl group) {
+        List<RestrictionNode> nodes = group.getRestrictionNodes();
+        for(int i=0; i < nodes.size(); i++) {
+            Restriction restriction = nodes.get(i).getRestriction();
+            if (!RestrictionsGroupImpl.isRestrictionApplicable(restriction)) {
+                continue;
+            }
+            if (restriction instanceof RestrictionsGroupImpl) {
+                if (isPossiblyUnsatisfiable(root, (RestrictionsGroupImpl) restriction)) {
+                    return true;
+                }
+            } else if (restriction instanceof RestrictionImpl<?>) {
+                RestrictionImpl<?> restrictionImpl = (RestrictionImpl<?>) restriction;
+                if (restrictionImpl.isRestrictionUnsatisfiable()) {
+                    return true;
+                }
+                TypeSafeQueryProxyData property = getBoundProperty(restrictionImpl);
+                if (property != null && countBounds(root, property, 2) > 1) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the applicable bounds on the property in the group and its nested groups, up to max.
+     */
+    private int countBounds(RestrictionsGroupImpl group, TypeSafeQueryProxyData property, int max) {
+        int count = 0;
+        List<RestrictionNode> nodes = group.getRestrictionNodes();
+        for(int i=0; i < nodes.size() && count < max; i++) {
+            Restriction restriction = nodes.get(i).getRestriction();
+            if (!RestrictionsGroupImpl.isRestrictionApplicable(restriction)) {
+                continue;
+            }
+            if (restriction instanceof RestrictionsGroupImpl) {
+                count += countBounds((RestrictionsGroupImpl) restriction, property, max - count);
+            } else if (restriction instanceof RestrictionImpl<?>
+                    && property.equals(getBoundProperty((RestrictionImpl<?>) restriction))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the property if the restriction may narrow its {@link PropertyBounds}, null otherwise.
+     */
+    private TypeSafeQueryProxyData getBoundProperty(RestrictionImpl<?> restriction) {
+        if (!(restriction.getLeft() instanceof ReferenceTypeSafeValue<?>) || restriction.getOperator() == null) {
+            return null;
+        }
+        switch (restriction.getOperator()) {
+            case IS_NULL:
+            case IS_NOT_NULL:
+                break;
+            case EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_EQUAL:
+            case LESS_THAN:
+            case LESS_THAN_EQUAL:
+                if (!(restriction.getRight() instanceof DirectTypeSafeValue<?>)) {
+                    return null;
+                }
+                Object value = ((DirectTypeSafeValue<?>) restriction.getRight()).getValue();
+                if (!RestrictionImpl.isIntegralValue(value)) {
+                    return null;
+                }
+                break;
+            default:
+                return null;
+        }
+        return ((ReferenceTypeSafeValue<?>) restriction.getLeft()).getData();
+    }
+
+    private boolean isUnsatisfiable(List<List<HqlQueryValueBuilder>> terms) {
+        if (terms.isEmpty()) {
+            return false;
+        }
+        for(List<HqlQueryValueBuilder> term: terms) {
+            if (!isTermUnsatisfiable(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The restrictions are checked together with each 'or' term of nested groups,
+     * so the bounds of the term are used in the nested groups as well.
+     */
+    private boolean isTermUnsatisfiable(List<HqlQueryValueBuilder> term) {
+        List<HqlQueryValueBuilder> restrictions = new ArrayList<>(term.size());
+        List<OptimizedGroup> groups = new ArrayList<>();
+        for(HqlQueryValueBuilder element: term) {
+            if (element instanceof OptimizedGroup) {
+                groups.add((OptimizedGroup) element);
+            } else {
+                restrictions.add(element);
+            }
+        }
+        if (isRestrictionsUnsatisfiable(restrictions)) {
+            return true;
+        }
+        for(OptimizedGroup group: groups) {
+            boolean unsatisfiable = true;
+            for(List<HqlQueryValueBuilder> groupTerm: group.terms) {
+                List<HqlQueryValueBuilder> combined = new ArrayList<>(restrictions);
+                combined.addAll(groupTerm);
+                if (!isTermUnsatisfiable(combined)) {
+                    unsatisfiable = false;
+                    break;
+                }
+            }
+            if (unsatisfiable) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRestrictionsUnsatisfiable(List<HqlQueryValueBuilder> restrictions) {
+        Map<TypeSafeQueryProxyData, PropertyBounds> boundsByProperty = new HashMap<>();
+        for(HqlQueryValueBuilder element: restrictions) {
+            if (!(element instanceof RestrictionImpl<?>)) {
+                continue;
+            }
+            RestrictionImpl<?> restriction = (RestrictionImpl<?>) element;
+            if (restriction.isRestrictionUnsatisfiable()) {
+                return true;
+            }
+            if (restriction.getLeft() instanceof ReferenceTypeSafeValue<?>) {
+                TypeSafeQueryProxyData property = ((ReferenceTypeSafeValue<?>) restriction.getLeft()).getData();
+                PropertyBounds bounds = boundsByProperty.get(property);
+                if (bounds == null) {
+                    bounds = new PropertyBounds();
+                    boundsByProperty.put(property, bounds);
+                }
+                if (!bounds.restrict(restriction.getOperator(), restriction.getRight())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders the terms joined with 'or', the elements of a term joined with 'and'.
+     */
+    public HqlQueryValueImpl toHqlQueryValue(List<List<HqlQueryValueBuilder>> terms, HqlQueryBuilderParams params) {
+        HqlQueryValueImpl value = new HqlQueryValueImpl();
+        for(List<HqlQueryValueBuilder> term: terms) {
+            boolean termHasValue = false;
+            for(HqlQueryValueBuilder element: term) {
+                HqlQueryValue nextValue = element.toHqlQueryValue(params);
+                if (nextValue.getHql().length() > 0) {
+                    if (termHasValue) {
+                        value.appendHql(" and ");
+                    } else if (value.getHql().length() > 0) {
+                        value.appendHql(" or ");
+                    }
+                    value.appendHql(nextValue.getHql());
+                    value.addParams(nextValue.getParams());
+                    termHasValue = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Counts the elements of all terms, used to decide whether brackets are required.
+     */
+    public int countElements(List<List<HqlQueryValueBuilder>> terms) {
+        int count = 0;
+        for(List<HqlQueryValueBuilder> term: terms) {
+            count += term.size();
+        }
+        return count;
+    }
+
+    /**
+     * Removes restrictions which are exactly the same as a previous restriction in the term.
+     */
+    private List<HqlQueryValueBuilder> removeDuplicates(List<HqlQueryValueBuilder> conjunction) {
+        Set<List<Object>> keys = new HashSet<>();
+        Iterator<HqlQueryValueBuilder> it = conjunction.iterator();
+        while (it.hasNext()) {
+            List<Object> key = getRestrictionKey(it.next());
+            if (key != null && !keys.add(key)) {
+                it.remove();
+            }
+        }
+        return conjunction;
+    }
+
+    /**
+     * Removes terms which are exactly the same as a previous term in the or chain.
+     */
+    private List<List<HqlQueryValueBuilder>> removeDuplicateTerms(List<List<HqlQueryValueBuilder>> terms) {
+        Set<List<List<Object>>> keys = new HashSet<>();
+        Iterator<List<HqlQueryValueBuilder>> it = terms.iterator();
+        while (it.hasNext()) {
+            List<List<Object>> termKey = new ArrayList<>();
+            for(HqlQueryValueBuilder element: it.next()) {
+                List<Object> key = getRestrictionKey(element);
+                if (key == null) {
+                    termKey = null;
+                    break;
+                }
+                termKey.add(key);
+            }
+            if (termKey != null && !keys.add(termKey)) {
+                it.remove();
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Merges the terms which only contain an equal or in restriction on the same property into one 'in' restriction.
+     */
+    private List<List<HqlQueryValueBuilder>> mergeEqualityTerms(List<List<HqlQueryValueBuilder>> terms) {
+        List<HqlQueryValueBuilder> singles = new ArrayList<>();
+        for(List<HqlQueryValueBuilder> term: terms) {
+            if (term.size() == 1 && getMergeableValues(term.get(0), EQUAL, IN) != null) {
+                singles.add(term.get(0));
+            }
+        }
+        if (singles.size() < 2) {
+            return terms;
+        }
+        List<HqlQueryValueBuilder> merged = mergeValues(new ArrayList<>(singles), EQUAL, IN);
+        if (merged.size() == singles.size()) {
+            return terms;
+        }
+        List<List<HqlQueryValueBuilder>> mergedTerms = new ArrayList<>(terms.size());
+        Iterator<HqlQueryValueBuilder> mergedIt = merged.iterator();
+        for(List<HqlQueryValueBuilder> term: terms) {
+            if (term.size() == 1 && singles.contains(term.get(0))) {
+                // the merged restrictions keep the position of the first merged restriction:
+                if (mergedIt.hasNext()) {
+                    List<HqlQueryValueBuilder> mergedTerm = new ArrayList<>(1);
+                    mergedTerm.add(mergedIt.next());
+                    mergedTerms.add(mergedTerm);
+                }
+            } else {
+                mergedTerms.add(term);
+            }
+        }
+        return mergedTerms;
+    }
+
+    /**
+     * Merges the restrictions with a single or collection operator on the same property
+     * into one restriction using the collection operator. The merged restriction takes
+     * the position of the first restriction, other restrictions keep their position.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private List<HqlQueryValueBuilder> mergeValues(List<HqlQueryValueBuilder> elements,
+            RestrictionOperator singleOperator, RestrictionOperator collectionOperator) {
+        Map<String, List<RestrictionImpl<?>>> byProperty = new LinkedHashMap<>();
+        for(HqlQueryValueBuilder element: elements) {
+            if (getMergeableValues(element, singleOperator, collectionOperator) != null) {
+                RestrictionImpl<?> restriction = (RestrictionImpl<?>) element;
+                String alias = ((ReferenceTypeSafeValue<?>) restriction.getLeft()).getData().getAlias();
+                List<RestrictionImpl<?>> restrictions = byProperty.get(alias);
+                if (restrictions == null) {
+                    restrictions = new ArrayList<>();
+                    byProperty.put(alias, restrictions);
+                }
+                restrictions.add(restriction);
+            }
+        }
+        for(Entry<String, List<RestrictionImpl<?>>> entry: byProperty.entrySet()) {
+            List<RestrictionImpl<?>> restrictions = entry.getValue();
+            if (restrictions.size() < 2) {
+                continue;
+            }
+            Set<Object> values = new LinkedHashSet<>();
+            for(RestrictionImpl<?> restriction: restrictions) {
+                values.addAll(getMergeableValues(restriction, singleOperator, collectionOperator));
+            }
+            RestrictionImpl<?> first = restrictions.get(0);
+            TypeSafeValue left = first.getLeft();
+            RestrictionsGroupInternal group = (RestrictionsGroupInternal) first.getRestrictionsGroup();
+            CollectionTypeSafeValue<?> mergedValues = new CollectionTypeSafeValue(
+                    group.getQuery(), left.getValueClass(), values);
+            RestrictionImpl<?> merged = new RestrictionImpl(group, null, left, collectionOperator, mergedValues);
+            elements.set(elements.indexOf(first), merged);
+            for(int i=1; i < restrictions.size(); i++) {
+                elements.remove(restrictions.get(i));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Checks if the element is a restriction comparing a property to one or more direct values
+     * using one of the given operators and returns the values if it is. Returns null otherwise.
+     * <p>
+     * Values which are not of the property type are not merged, because these require literals.
+     */
+    private Collection<?> getMergeableValues(HqlQueryValueBuilder element,
+            RestrictionOperator singleOperator, RestrictionOperator collectionOperator) {
+        if (!(element instanceof RestrictionImpl<?>)) {
+            return null;
+        }
+        RestrictionImpl<?> restriction = (RestrictionImpl<?>) element;
+        if (!(restriction.getLeft() instanceof ReferenceTypeSafeValue<?>)) {
+            return null;
+        }
+        if (isNamedValue(restriction)) {
+            return null;
+        }
+        Collection<?> values = null;
+        TypeSafeValue<?> right = restriction.getRight();
+        if (getRenderedOperator(restriction) == singleOperator && right instanceof DirectTypeSafeValue<?>) {
+            Object value = ((DirectTypeSafeValue<?>) right).getValue();
+            values = value == null ? null: Arrays.asList(value);
+        } else if (restriction.getOperator() == collectionOperator && right instanceof CollectionTypeSafeValue<?>) {
+            values = ((CollectionTypeSafeValue<?>) right).getValues();
+        }
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        Class<?> valueClass = restriction.getLeft().getValueClass();
+        for(Object value: values) {
+            if (!valueClass.isInstance(value)) {
+                return null;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Creates a key which is equal for restrictions which compare the same property
+     * to the same direct value(s) using the same operator. Null is returned for restrictions
+     * which can't be compared this way.
+     */
+    private List<Object> getRestrictionKey(HqlQueryValueBuilder element) {
+        if (!(element instanceof RestrictionImpl<?>)) {
+            return null;
+        }
+        RestrictionImpl<?> restriction = (RestrictionImpl<?>) element;
+        if (!(restriction.getLeft() instanceof ReferenceTypeSafeValue<?>)) {
+            return null;
+        }
+        if (isNamedValue(restriction)) {
+            return null;
+        }
+        Object right;
+        if (restriction.getRight() == null) {
+            right = null;
+        } else if (restriction.getRight() instanceof DirectTypeSafeValue<?>) {
+            right = ((DirectTypeSafeValue<?>) restriction.getRight()).getValue();
+        } else if (restriction.getRight() instanceof CollectionTypeSafeValue<?>) {
+            Collection<?> values = ((CollectionTypeSafeValue<?>) restriction.getRight()).getValues();
+            right = values == null ? null: new ArrayList<>(values);
+        } else if (restriction.getRight() instanceof ReferenceTypeSafeValue<?>) {
+            right = ((ReferenceTypeSafeValue<?>) restriction.getRight()).getData();
+        } else {
+            return null;
+        }
+        return Arrays.asList(((ReferenceTypeSafeValue<?>) restriction.getLeft()).getData(),
+                getRenderedOperator(restriction), right);
+    }
+
+    /**
+     * The operator as it is rendered, a string value with a prefix
+     * or postfix is compared using like instead of equal.
+     */
+    private RestrictionOperator getRenderedOperator(RestrictionImpl<?> restriction) {
+        if (restriction.getOperator() != null && restriction.getRight() instanceof DirectTypeSafeStringValue) {
+            return ((DirectTypeSafeStringValue) restriction.getRight()).getOperator(restriction.getOperator());
+        }
+        return restriction.getOperator();
+    }
+
+    /**
+     * Checks if the restriction compares to a named value. These are not merged or
+     * removed as duplicates, the value may be changed or bound to a frozen query
+     * and must still be rendered as a parameter of its own.
+     */
+    private boolean isNamedValue(RestrictionImpl<?> restriction) {
+        TypeSafeValue<?> right = restriction.getRight();
+        if (!(right instanceof NamedValueEnabled)) {
+            return false;
+        }
+        RestrictionsGroupInternal group = (RestrictionsGroupInternal) restriction.getRestrictionsGroup();
+        return group.getQuery().named().isNamed(right);
+    }
+
+    /**
+     * The bounds of a property within one 'and' term.
+     * Only direct integral values are used, the database compares these the same way
+     * as they are compared in java. Dates may be truncated and decimals rounded
+     * by the database, so these are left to the database.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static class PropertyBounds {
+        private boolean isNull;
+        private boolean isNotNull;
+        private Comparable lower;
+        private boolean lowerInclusive;
+        private Comparable upper;
+        private boolean upperInclusive;
+
+        /**
+         * Narrows the bounds using the restriction.
+         *
+         * @return false when the bounds contradict
+         */
+        public boolean restrict(RestrictionOperator operator, TypeSafeValue<?> right) {
+            if (operator == IS_NULL) {
+                isNull = true;
+            } else if (operator == IS_NOT_NULL) {
+                isNotNull = true;
+            } else if (isBoundValue(right)) {
+                Comparable value = (Comparable) ((DirectTypeSafeValue<?>) right).getValue();
+                switch (operator) {
+                    case EQUAL:
+                        restrictLower(value, true);
+                        restrictUpper(value, true);
+                        break;
+                    case GREATER_THAN:       restrictLower(value, false); break;
+                    case GREATER_THAN_EQUAL: restrictLower(value, true); break;
+                    case LESS_THAN:          restrictUpper(value, false); break;
+                    case LESS_THAN_EQUAL:    restrictUpper(value, true); break;
+                    default:
+                }
+            }
+            if (isNull && (isNotNull || lower != null || upper != null)) {
+                return false;
+            }
+            if (lower != null && upper != null) {
+                int compare = lower.compareTo(upper);
+                return compare < 0 || compare == 0 && lowerInclusive && upperInclusive;
+            }
+            return true;
+        }
+
+        /**
+         * A non null direct integral value, of the same type as the current bounds.
+         */
+        private boolean isBoundValue(TypeSafeValue<?> right) {
+            if (!(right instanceof DirectTypeSafeValue<?>)) {
+                return false;
+            }
+            Object value = ((DirectTypeSafeValue<?>) right).getValue();
+            if (!RestrictionImpl.isIntegralValue(value)) {
+                return false;
+            }
+            return (lower == null || lower.getClass().equals(value.getClass()))
+                    && (upper == null || upper.getClass().equals(value.getClass()));
+        }
+
+        private void restrictLower(Comparable value, boolean inclusive) {
+            int compare = lower == null ? 1: value.compareTo(lower);
+            if (compare > 0 || compare == 0 && !inclusive) {
+                lower = value;
+                lowerInclusive = inclusive;
+            }
+        }
+
+        private void restrictUpper(Comparable value, boolean inclusive) {
+            int compare = upper == null ? -1: value.compareTo(upper);
+            if (compare < 0 || compare == 0 && !inclusive) {
+                upper = value;
+                upperInclusive = inclusive;
+            }
+        }
+    }
+
+    /**
+     * A nested group which still requires brackets after optimization.
+     */
+    private class OptimizedGroup implements HqlQueryValueBuilder {
+        private final List<List<HqlQueryValueBuilder>> terms;
+
+        public OptimizedGroup(List<List<HqlQueryValueBuilder>> terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams params) {
+            HqlQueryValueImpl value = RestrictionsGroupOptimizer.this.toHqlQueryValue(terms, params);
+            if (value.getHql().length() == 0 || countElements(terms) < 2) {
+                return value;
+            }
+            return new HqlQueryValueImpl("(" + value.getHql() + ")", value.getParams());
+        }
+    }
+}
@@ -19,7 +19,7 @@ import be.shad.tsqb.query.copy.CopyContext;
 import be.shad.tsqb.query.copy.Copyable;
 import be.shad.tsqb.values.TypeSafeValue;
 
-public class CompositeRestrictionValuePredicate implements RestrictionPredicate, Copyable {
+public class CompositeRestrictionValuePredicate implements MatchNothingPredicate, Copyable {
     private final RestrictionPredicate[] predicates;
     
     public CompositeRestrictionValuePredicate(RestrictionPredicate... predicates) {
@@ -55,6 +55,20 @@ public class CompositeRestrictionValuePredicate implements RestrictionPredicate,
         return true;
     }
 
+    /**
+     * Delegates to the predicates which can decide a value matches nothing.
+     */
+    @Override
+    public boolean isValueMatchingNothing(TypeSafeValue<?> value) {
+        for(RestrictionPredicate predicate: predicates) {
+            if (predicate instanceof MatchNothingPredicate
+                    && ((MatchNothingPredicate) predicate).isValueMatchingNothing(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Copyable copy(CopyContext context) {
         return null;
@@ -0,0 +1,33 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.restrictions.predicate;
+
+import be.shad.tsqb.values.TypeSafeValue;
+
+/**
+ * A predicate which can decide a value doesn't match anything.
+ * <p>
+ * An 'in' restriction with such a value is always false,
+ * a 'not in' restriction with such a value is always true.
+ */
+public interface MatchNothingPredicate extends RestrictionPredicate {
+
+    /**
+     * @return when true, the value doesn't match anything
+     */
+    boolean isValueMatchingNothing(TypeSafeValue<?> value);
+
+}
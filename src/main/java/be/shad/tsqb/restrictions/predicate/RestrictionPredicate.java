@@ -54,4 +54,9 @@ public interface RestrictionPredicate {
      */
     public static final RestrictionPredicate IGNORE_NEVER = new IgnoreNeverPredicate();
 
+    /**
+     * @see be.shad.tsqb.restrictions.predicate.EmptyCollectionMatchesNothingPredicate
+     */
+    public static final RestrictionPredicate EMPTY_COLLECTION_MATCHES_NOTHING = new EmptyCollectionMatchesNothingPredicate();
+
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+import java.util.Iterator;
+
+/**
+ * Result transformer which can pass its results to a collector while the tuples are read,
+ * so the results don't need to be listed first when they are collected into something else.
+ */
+public interface CollectingResultTransformer {
+
+    /**
+     * Transforms the tuples and passes each result to the collector with the value
+     * of the key property of the result.
+     *
+     * @param keyPropertyPath the property path of the key in the selected result dto,
+     *                        null if the results are collected without key.
+     * @throws IllegalArgumentException when the key property was not selected.
+     */
+    void transformTuples(Iterator<Object[]> tuples, String keyPropertyPath, ResultCollector collector);
+
+    /**
+     * Whether each tuple is transformed to a result of its own, so the tuples
+     * can also be transformed one by one.
+     */
+    boolean isResultPerTuple();
+
+}
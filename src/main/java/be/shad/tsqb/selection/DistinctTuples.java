@@ -0,0 +1,100 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Filters the duplicate tuples of a query while its results are transformed,
+ * so duplicates don't need to be removed by the database with select distinct.
+ * <p>
+ * Entities are compared by instance: the session returns the same instance for
+ * the same identifier, and entities may not implement equals by identifier.
+ * Other values are compared using equals.
+ * <p>
+ * Not thread safe, created per transformed result list.
+ */
+public final class DistinctTuples {
+    private final boolean[] entityIndexes;
+    private final Set<TupleKey> tuples = new HashSet<>();
+
+    /**
+     * @param entityIndexes whether the value at the tuple index is an entity,
+     *                      values at indexes beyond the array are entities.
+     */
+    public DistinctTuples(boolean[] entityIndexes) {
+        this.entityIndexes = entityIndexes;
+    }
+
+    /**
+     * Adds the tuple, the tuple may not be modified afterwards.
+     *
+     * @return false if an equal tuple was added before.
+     */
+    public boolean add(Object[] tuple) {
+        return tuples.add(new TupleKey(tuple));
+    }
+
+    /**
+     * Adds a result, which is either a tuple or the single value of a tuple.
+     *
+     * @return false if an equal result was added before.
+     */
+    public boolean addResult(Object result) {
+        return add(result instanceof Object[] ? (Object[]) result: new Object[] { result });
+    }
+
+    private boolean isEntity(int index) {
+        return index >= entityIndexes.length || entityIndexes[index];
+    }
+
+    private final class TupleKey {
+        private final Object[] values;
+        private final int hash;
+
+        private TupleKey(Object[] values) {
+            this.values = values;
+            int hash = 1;
+            for(int i=0; i < values.length; i++) {
+                Object value = values[i];
+                int valueHash = value == null ? 0: isEntity(i) ? System.identityHashCode(value): value.hashCode();
+                hash = 31 * hash + valueHash;
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            Object[] other = ((TupleKey) obj).values;
+            if (other.length != values.length) {
+                return false;
+            }
+            for(int i=0; i < values.length; i++) {
+                if (isEntity(i) ? values[i] != other[i]: !Objects.equals(values[i], other[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
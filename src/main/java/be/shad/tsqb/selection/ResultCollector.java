@@ -0,0 +1,30 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+/**
+ * Receives the results of a {@link CollectingResultTransformer} as they are transformed.
+ */
+public interface ResultCollector {
+
+    /**
+     * Called once for each result, in the order of the query results.
+     *
+     * @param key the value of the key property of the result, null if no key property was requested.
+     */
+    void collect(Object key, Object result);
+
+}
@@ -19,6 +19,8 @@ import java.lang.reflect.Field;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Tree of values created once per query.
@@ -29,6 +31,17 @@ import java.util.Map.Entry;
  * Works together with TypeSafeQueryResultTransformer in order to select nested values fast.
  */
 public class SelectionTree {
+    /**
+     * The fields found by name per class, they are made accessible when they are found.
+     */
+    private static final ClassValue<ConcurrentMap<String, Field>> FIELDS = 
+            new ClassValue<ConcurrentMap<String, Field>>() {
+        @Override
+        protected ConcurrentMap<String, Field> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     private final LinkedHashMap<Field, SelectionTree> subtrees = new LinkedHashMap<>();
     private final Class<?> resultType;
     private int resultIndex;
@@ -80,7 +93,6 @@ public class SelectionTree {
         Field field = getField(resultType, property);
         SelectionTree subtree = subtrees.get(field);
         if( subtree == null ) {
-            field.setAccessible(true);
             subtree = new SelectionTree(field.getType());
             subtrees.put(field, subtree);
         }
@@ -105,9 +117,21 @@ public class SelectionTree {
     }
     
     /**
-     * Search for the field on the class or one of its super classes.
+     * Search for the field on the class or one of its super classes,
+     * the field is accessible. Fields are searched only once per class.
      */
     public static Field getField(Class<?> clazz, String name) {
+        ConcurrentMap<String, Field> fields = FIELDS.get(clazz);
+        Field field = fields.get(name);
+        if (field == null) {
+            field = findField(clazz, name);
+            field.setAccessible(true);
+            fields.putIfAbsent(name, field);
+        }
+        return field;
+    }
+
+    private static Field findField(Class<?> clazz, String name) {
         Class<?> current = clazz;
         while (current != null) {
             for(Field field: current.getDeclaredFields()) {
@@ -0,0 +1,194 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
+import be.shad.tsqb.selection.group.SelectionTreeGroup;
+import be.shad.tsqb.selection.group.TypeSafeQuerySelectionGroup;
+import be.shad.tsqb.selection.parallel.SelectionMerger;
+
+/**
+ * The part of the result transformation which only depends on the shape of the selections:
+ * the selection trees with their fields, result indexes, identity fields and collection classes.
+ * <p>
+ * Plans are cached by the groups, property paths and tuple indexes of the selections,
+ * so queries selecting into the same dtos don't look up the fields again.
+ * The plan doesn't reference the query, the value transformers and the
+ * selection mergers are kept by the {@link TypeSafeQueryResultTransformer}.
+ */
+final class SelectionTreePlan {
+    private static final int MAX_CACHED_PLANS = 256;
+
+    @SuppressWarnings("serial")
+    private static final Map<List<Object>, SelectionTreePlan> PLANS = Collections.synchronizedMap(
+            new LinkedHashMap<List<Object>, SelectionTreePlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, SelectionTreePlan> eldest) {
+            return size() > MAX_CACHED_PLANS;
+        }
+    });
+
+    /**
+     * Compares by depth (so groups without parents are first) 
+     * and then by alias in case multiple groups with the same depth exist.
+     */
+    private static final Comparator<TypeSafeQuerySelectionGroup> SELECTION_GROUPS_COMPARATOR = 
+            new Comparator<TypeSafeQuerySelectionGroup>() {
+        @Override
+        public int compare(TypeSafeQuerySelectionGroup o1, TypeSafeQuerySelectionGroup o2) {
+            int dc = Integer.compare(depth(o1), depth(o2));
+            if (dc != 0) {
+                return dc;
+            }
+            return o1.getAliasPrefix().compareTo(o2.getAliasPrefix());
+        }
+        
+        private int depth(TypeSafeQuerySelectionGroup group) {
+            TypeSafeQuerySelectionGroup current = group;
+            int depth = 0;
+            while (current.getParent() != null) {
+                current = current.getParent();
+                depth++;
+            }
+            return depth;
+        }
+    };
+
+    private final SelectionTreeGroup[] treeGroups;
+    private final int[] groupSelectionIndexes;
+    private final int resultArraySize;
+
+    /**
+     * Returns the cached plan for selections with the same shape, creates it if there is none.
+     *
+     * @see TypeSafeQueryResultTransformer#TypeSafeQueryResultTransformer(List, int[], List)
+     */
+    static SelectionTreePlan get(List<TypeSafeQuerySelectionProxyData> selectionDatas, int[] tupleIndexes) {
+        List<Object> key = createKey(selectionDatas, tupleIndexes);
+        SelectionTreePlan plan = PLANS.get(key);
+        if (plan == null) {
+            plan = new SelectionTreePlan(selectionDatas, tupleIndexes);
+            PLANS.put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * The key contains the group, property path and tuple index of each selection
+     * and everything of the groups which is used to create the plan.
+     */
+    private static List<Object> createKey(List<TypeSafeQuerySelectionProxyData> selectionDatas, int[] tupleIndexes) {
+        List<Object> key = new ArrayList<>(selectionDatas.size() * 3 + 6);
+        Map<TypeSafeQuerySelectionGroup, Boolean> groups = new IdentityHashMap<>();
+        for(int i=0; i < selectionDatas.size(); i++) {
+            TypeSafeQuerySelectionProxyData selectionData = selectionDatas.get(i);
+            TypeSafeQuerySelectionGroup group = selectionData.getGroup();
+            if (groups.put(group, Boolean.TRUE) == null) {
+                TypeSafeQuerySelectionGroup parent = group.getParent();
+                key.add(Arrays.asList(group.getAliasPrefix(), group.getResultClass(), group.isResultGroup(),
+                        parent == null ? null: parent.getAliasPrefix(), group.getCollectionPropertyPath(),
+                        new HashSet<>(group.getResultIdentifierPropertyPaths())));
+            }
+            key.add(group.getAliasPrefix());
+            key.add(selectionData.getEffectivePropertyPath());
+            key.add(tupleIndexes == null ? i: tupleIndexes[i]);
+        }
+        return key;
+    }
+
+    private SelectionTreePlan(List<TypeSafeQuerySelectionProxyData> selectionDatas, int[] tupleIndexes) {
+        try {
+            // Group selection data by group (transformed into selectionTreeValues):
+            Map<TypeSafeQuerySelectionGroup, List<SelectionTreeValue>> dataByGroup = new HashMap<>();
+            for(int i=0; i < selectionDatas.size(); i++) {
+                TypeSafeQuerySelectionProxyData selectionData = selectionDatas.get(i);
+                List<SelectionTreeValue> groupData = dataByGroup.get(selectionData.getGroup());
+                if (groupData == null) {
+                    groupData = new ArrayList<>();
+                    dataByGroup.put(selectionData.getGroup(), groupData);
+                }
+                int tupleIndex = tupleIndexes == null ? i: tupleIndexes[i];
+                groupData.add(new SelectionTreeValue(tupleIndex, 
+                        selectionData.getEffectivePropertyPath(), i));
+            }
+            
+            // Sort all groups by depth/alias to create groups
+            List<TypeSafeQuerySelectionGroup> selectionGroups = new ArrayList<>(dataByGroup.keySet());
+            Collections.sort(selectionGroups, SELECTION_GROUPS_COMPARATOR);
+            
+            int parentResultIndex = -1;
+            int treeGroupIdx = 1;
+            this.treeGroups = new SelectionTreeGroup[dataByGroup.size()];
+            this.groupSelectionIndexes = new int[dataByGroup.size()];
+            Map<TypeSafeQuerySelectionGroup, SelectionTreeGroup> treeGroupsMap = new HashMap<>();
+            for(TypeSafeQuerySelectionGroup group: selectionGroups) {
+                // Create group (with any parent it may have) and save it for treeGroup iteration
+                List<SelectionTreeValue> groupData = dataByGroup.get(group);
+                SelectionTreeGroup tree = new SelectionTreeGroup(group, groupData, 
+                        treeGroupsMap.get(group.getParent()));
+                // NOTE: A treeGroup may have child SelectionTrees for embedded/composite objects,
+                //       this means the treeGroups is potentially smaller than the result array,
+                //       because the treeGroups only contains explicitly selected dtos.
+                parentResultIndex = tree.assignResultIndexes(parentResultIndex);
+                int idx = tree.isResultGroup() ? 0: treeGroupIdx++;
+                this.treeGroups[idx] = tree;
+                this.groupSelectionIndexes[idx] = groupData.get(0).selectionIndex;
+                treeGroupsMap.put(group, tree);
+            }
+            this.resultArraySize = parentResultIndex + 1;
+        } catch (SecurityException | NoSuchFieldException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The tree groups, the result group first and then the groups in the order they are populated.
+     */
+    SelectionTreeGroup[] getTreeGroups() {
+        return treeGroups;
+    }
+
+    /**
+     * The size of the data array used while transforming.
+     */
+    int getResultArraySize() {
+        return resultArraySize;
+    }
+
+    /**
+     * The selection mergers of the groups of the selection datas,
+     * in the same order as the tree groups.
+     */
+    SelectionMerger<?, ?>[] getSelectionMergers(List<TypeSafeQuerySelectionProxyData> selectionDatas) {
+        SelectionMerger<?, ?>[] mergers = new SelectionMerger<?, ?>[groupSelectionIndexes.length];
+        for(int i=0; i < mergers.length; i++) {
+            mergers[i] = selectionDatas.get(groupSelectionIndexes[i]).getGroup().getSelectionMerger();
+        }
+        return mergers;
+    }
+
+}
@@ -24,12 +24,14 @@ package be.shad.tsqb.selection;
 public class SelectionTreeValue {
     public final int tupleValueIndex;
     public final String propertyPath;
-    public final SelectionValueTransformer<?, ?> valueTransformer;
+    /**
+     * The index of the selection, its value transformer has the same index.
+     */
+    public final int selectionIndex;
     
-    public SelectionTreeValue(int tupleValueIndex, String propertyPath,
-            SelectionValueTransformer<?, ?> valueTransformer) {
+    public SelectionTreeValue(int tupleValueIndex, String propertyPath, int selectionIndex) {
         this.tupleValueIndex = tupleValueIndex;
         this.propertyPath = propertyPath;
-        this.valueTransformer = valueTransformer;
+        this.selectionIndex = selectionIndex;
     }
 }
@@ -15,10 +15,13 @@
  */
 package be.shad.tsqb.selection;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import be.shad.tsqb.data.TypeSafeQueryProxyData;
 import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
@@ -27,6 +30,7 @@ import be.shad.tsqb.hql.HqlQueryBuilder;
 import be.shad.tsqb.proxy.TypeSafeQueryProxy;
 import be.shad.tsqb.query.TypeSafeQueryInternal;
 import be.shad.tsqb.query.copy.CopyContext;
+import be.shad.tsqb.sql.SqlQueryRenderer;
 import be.shad.tsqb.values.DirectTypeSafeValue;
 import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.HqlQueryValue;
@@ -42,9 +46,10 @@ import be.shad.tsqb.values.TypeSafeValue;
  */
 public class TypeSafeQueryProjections implements HqlQueryBuilder {
     private final TypeSafeQueryInternal query;
-    private final Deque<TypeSafeValueProjection> projections = new LinkedList<>();
+    private final Deque<TypeSafeValueProjection> projections = new ArrayDeque<>();
     private SelectionValueTransformer<?, ?> transformerForNextProjection;
     private Class<?> resultClass;
+    private int[] renderedColumns = new int[0];
 
     public TypeSafeQueryProjections(TypeSafeQueryInternal query) {
         this.query = query;
@@ -70,6 +75,16 @@ public class TypeSafeQueryProjections implements HqlQueryBuilder {
         return projections;
     }
 
+    /**
+     * Removes all projections and the result class,
+     * the query will select as if nothing was selected yet.
+     */
+    public void clear() {
+        projections.clear();
+        transformerForNextProjection = null;
+        resultClass = null;
+    }
+
     /**
      * Adds the projection to the projections list.
      * If it is a distinct value, then it is added at the front
@@ -159,12 +174,30 @@ public class TypeSafeQueryProjections implements HqlQueryBuilder {
         addProjection(projection);
     }
 
+    /**
+     * Appends the projections to the select clause and sets the result transformer.
+     * <p>
+     * When the query is minimized, values selected into more than one dto property
+     * are selected once, the transformer uses the same tuple value for each property.
+     */
     @Override
     public void appendTo(HqlQuery query, HqlQueryBuilderParams params) {
         List<TypeSafeQuerySelectionProxyData> selectionDatas = new ArrayList<>(projections.size());
         List<SelectionValueTransformer<?, ?>> transformers = new ArrayList<>(projections.size());
+        Map<String, Integer> tupleIndexesByHql = null;
+        int[] tupleIndexes = null;
+        if (this.query.getRootQuery().isMinimizeQuery()) {
+            tupleIndexesByHql = new HashMap<>();
+            tupleIndexes = new int[projections.size()];
+        }
+        SqlQueryRenderer sqlRenderer = params.getSqlRenderer();
+        int tupleIndex = 0;
         boolean hasTransformer = false;
+        boolean[] entityIndexes = new boolean[projections.size()];
+        int[] columns = new int[projections.size()];
+        int projectionIndex = 0;
         for(TypeSafeValueProjection projection: projections) {
+            int currentProjection = projectionIndex++;
             HqlQueryValue val;
             if( projection.getValue() instanceof DirectTypeSafeValue<?> ) {
                 boolean previous = params.setRequiresLiterals(true);
@@ -176,19 +209,67 @@ public class TypeSafeQueryProjections implements HqlQueryBuilder {
             String alias = "";
             TypeSafeQuerySelectionProxyData selectionData = projection.getSelectionData();
             if( selectionData != null ) {
+                if( tupleIndexesByHql != null && val.getParams().isEmpty() ) {
+                    // the same value without params results in the same tuple value, select it only once:
+                    Integer selectedIndex = tupleIndexesByHql.get(val.getHql());
+                    if( selectedIndex != null ) {
+                        columns[currentProjection] = selectedIndex + 1;
+                        tupleIndexes[selectionDatas.size()] = selectedIndex;
+                        selectionDatas.add(selectionData);
+                        transformers.add(projection.getTransformer());
+                        hasTransformer = hasTransformer || projection.getTransformer() != null;
+                        continue;
+                    }
+                    tupleIndexesByHql.put(val.getHql(), tupleIndex);
+                }
+                if( tupleIndexes != null ) {
+                    tupleIndexes[selectionDatas.size()] = tupleIndex;
+                }
                 selectionDatas.add(selectionData);
                 alias = " as " + selectionData.getAlias();
             }
+            if( sqlRenderer != null ) {
+                alias = sqlRenderer.toSelectAlias(query, projection.getValue(), tupleIndex);
+            }
             transformers.add(projection.getTransformer());
             hasTransformer = hasTransformer || projection.getTransformer() != null;
             query.appendSelect(val.getHql() + alias);
             query.addParams(val.getParams());
+            entityIndexes[tupleIndex] = isEntity(projection.getValue());
+            columns[currentProjection] = tupleIndex + 1;
+            tupleIndex++;
         }
+        renderedColumns = columns;
+        boolean internValues = this.query.getRootQuery().isInternResultValues();
+        // without projections the results are the entities of the query:
+        boolean[] distinctEntityIndexes = !this.query.getRootQuery().isDistinctResults() ? null:
+            Arrays.copyOf(entityIndexes, tupleIndex);
         if( !selectionDatas.isEmpty() ) {
-            query.setResultTransformer(new TypeSafeQueryResultTransformer(selectionDatas, transformers));
-        } else if( hasTransformer ) {
-            query.setResultTransformer(new WithoutAliasesQueryResultTransformer(transformers));
+            query.setResultTransformer(new TypeSafeQueryResultTransformer(
+                    selectionDatas, tupleIndexes, transformers, internValues, distinctEntityIndexes));
+        } else if( hasTransformer || distinctEntityIndexes != null || internValues && !projections.isEmpty() ) {
+            query.setResultTransformer(new WithoutAliasesQueryResultTransformer(
+                    transformers, internValues, distinctEntityIndexes));
+        }
+    }
+
+    /**
+     * The position of the column of a projection in the select clause, starting at 1,
+     * as it was rendered by the last call to appendTo. Projections which select the same
+     * value as a previous projection share its column when the query is minimized.
+     *
+     * @param projectionIndex the index of the projection in {@link #getProjections()}.
+     */
+    public int getRenderedColumn(int projectionIndex) {
+        if (projectionIndex >= renderedColumns.length) {
+            return projectionIndex + 1;
         }
+        return renderedColumns[projectionIndex];
+    }
+
+    private boolean isEntity(TypeSafeValue<?> value) {
+        return value instanceof ReferenceTypeSafeValue<?>
+                && ((ReferenceTypeSafeValue<?>) value).getData().getProxyType().isEntity();
     }
 
 }
@@ -16,11 +16,8 @@
 package be.shad.tsqb.selection;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -29,90 +26,153 @@ import org.hibernate.transform.BasicTransformerAdapter;
 import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
 import be.shad.tsqb.selection.group.SelectionTreeGroup;
 import be.shad.tsqb.selection.group.TypeSafeQuerySelectionGroup;
+import be.shad.tsqb.selection.parallel.SelectionMerger;
+import be.shad.tsqb.selection.view.RowViewLayout;
 
 /**
  * Implementation to set values on nested select dtos.
  * Seems to be faster than the alias to bean result transformer too.
+ * <p>
+ * The selection trees are taken from a cached {@link SelectionTreePlan}, only
+ * the value transformers and selection mergers of the query are kept per instance.
+ * <p>
+ * When the result class is an interface, each row is returned as a view which reads
+ * its values from the tuple instead of copying them into a new dto, see {@link RowViewLayout}.
  */
 @SuppressWarnings({"unchecked", "rawtypes"})
-public class TypeSafeQueryResultTransformer extends BasicTransformerAdapter {
+public class TypeSafeQueryResultTransformer extends BasicTransformerAdapter implements CollectingResultTransformer {
     private static final long serialVersionUID = 4686800769621139636L;
     
     private final SelectionTreeGroup[] treeGroups;
     private final int resultArraySize;
+    private final SelectionValueTransformer[] transformers;
+    private final SelectionMerger[] selectionMergers;
+    private final RowViewLayout viewLayout;
+    private final int[] viewTupleIndexes;
+    private final boolean internValues;
+    private final boolean[] distinctEntityIndexes;
+    private final String[] resultPropertyPaths;
+    private final int[] tupleIndexes;
     
+    public TypeSafeQueryResultTransformer(
+            List<TypeSafeQuerySelectionProxyData> selectionDatas, 
+            List<SelectionValueTransformer<?, ?>> transformers) {
+        this(selectionDatas, null, transformers, false, null);
+    }
+
+    public TypeSafeQueryResultTransformer(
+            List<TypeSafeQuerySelectionProxyData> selectionDatas,
+            int[] tupleIndexes,
+            List<SelectionValueTransformer<?, ?>> transformers) {
+        this(selectionDatas, tupleIndexes, transformers, false, null);
+    }
+
     /**
-     * Compares by depth (so groups without parents are first) 
-     * and then by alias in case multiple groups with the same depth exist.
+     * @param tupleIndexes the tuple index of the value of each selection data,
+     *                     when null the selection data index is used as tuple index.
+     *                     An index may be used by several selection datas when
+     *                     the same value was selected into different properties.
+     * @param internValues whether equal values are replaced by the same instance, see {@link ValueInterner}.
+     * @param distinctEntityIndexes whether each tuple value is an entity, when duplicate tuples are
+     *                              skipped, null otherwise. See {@link DistinctTuples}.
      */
-    private static final Comparator<TypeSafeQuerySelectionGroup> SELECTION_GROUPS_COMPARATOR = 
-            new Comparator<TypeSafeQuerySelectionGroup>() {
-        @Override
-        public int compare(TypeSafeQuerySelectionGroup o1, TypeSafeQuerySelectionGroup o2) {
-            int dc = Integer.compare(depth(o1), depth(o2));
-            if (dc != 0) {
-                return dc;
+    public TypeSafeQueryResultTransformer(
+            List<TypeSafeQuerySelectionProxyData> selectionDatas,
+            int[] tupleIndexes,
+            List<SelectionValueTransformer<?, ?>> transformers,
+            boolean internValues,
+            boolean[] distinctEntityIndexes) {
+        this.internValues = internValues;
+        this.distinctEntityIndexes = distinctEntityIndexes;
+        this.tupleIndexes = tupleIndexes;
+        this.resultPropertyPaths = new String[selectionDatas.size()];
+        for(int i=0; i < resultPropertyPaths.length; i++) {
+            if (selectionDatas.get(i).getGroup().isResultGroup()) {
+                resultPropertyPaths[i] = selectionDatas.get(i).getEffectivePropertyPath();
             }
-            return o1.getAliasPrefix().compareTo(o2.getAliasPrefix());
-        }
-        
-        private int depth(TypeSafeQuerySelectionGroup group) {
-            TypeSafeQuerySelectionGroup current = group;
-            int depth = 0;
-            while (current.getParent() != null) {
-                current = current.getParent();
-                depth++;
+        }
+        this.transformers = transformers.toArray(new SelectionValueTransformer[transformers.size()]);
+        TypeSafeQuerySelectionGroup resultGroup = getResultGroup(selectionDatas);
+        if (resultGroup != null && resultGroup.getResultClass().isInterface()) {
+            this.treeGroups = new SelectionTreeGroup[0];
+            this.resultArraySize = 0;
+            this.selectionMergers = new SelectionMerger[0];
+            this.viewTupleIndexes = createViewTupleIndexes(selectionDatas, tupleIndexes);
+            Map<String, Integer> viewIndexesByPath = new HashMap<>();
+            for(int i=0; i < selectionDatas.size(); i++) {
+                viewIndexesByPath.put(selectionDatas.get(i).getEffectivePropertyPath(),
+                        viewTupleIndexes == null ? tupleIndexes == null ? i: tupleIndexes[i]: i);
             }
-            return depth;
+            this.viewLayout = RowViewLayout.create(resultGroup.getResultClass(), viewIndexesByPath);
+        } else {
+            SelectionTreePlan plan = SelectionTreePlan.get(selectionDatas, tupleIndexes);
+            this.treeGroups = plan.getTreeGroups();
+            this.resultArraySize = plan.getResultArraySize();
+            this.selectionMergers = plan.getSelectionMergers(selectionDatas);
+            this.viewLayout = null;
+            this.viewTupleIndexes = null;
         }
-    };
-    
-    public TypeSafeQueryResultTransformer(
-            List<TypeSafeQuerySelectionProxyData> selectionDatas, 
-            List<SelectionValueTransformer<?, ?>> transformers) {
-        try {
-            // Group selection data by group (transformed into selectionTreeValues):
-            int tupleValueIndex = 0;
-            Iterator<SelectionValueTransformer<?, ?>> valueTransformersIt = transformers.iterator();
-            Map<TypeSafeQuerySelectionGroup, List<SelectionTreeValue>> dataByGroup = new HashMap<>();
-            for(TypeSafeQuerySelectionProxyData selectionData: selectionDatas) {
-                List<SelectionTreeValue> groupData = dataByGroup.get(selectionData.getGroup());
-                if (groupData == null) {
-                    groupData = new LinkedList<>();
-                    dataByGroup.put(selectionData.getGroup(), groupData);
-                }
-                groupData.add(new SelectionTreeValue(tupleValueIndex++, 
-                        selectionData.getEffectivePropertyPath(), 
-                        valueTransformersIt.next()));
+    }
+
+    private TypeSafeQuerySelectionGroup getResultGroup(List<TypeSafeQuerySelectionProxyData> selectionDatas) {
+        for(TypeSafeQuerySelectionProxyData selectionData: selectionDatas) {
+            if (selectionData.getGroup().isResultGroup()) {
+                return selectionData.getGroup();
             }
-            
-            // Sort all groups by depth/alias to create groups
-            List<TypeSafeQuerySelectionGroup> selectionGroups = new ArrayList<>(dataByGroup.keySet());
-            Collections.sort(selectionGroups, SELECTION_GROUPS_COMPARATOR);
-            
-            int parentResultIndex = -1;
-            int treeGroupIdx = 1;
-            this.treeGroups = new SelectionTreeGroup[dataByGroup.size()];
-            Map<TypeSafeQuerySelectionGroup, SelectionTreeGroup> treeGroupsMap = new HashMap<>();
-            for(TypeSafeQuerySelectionGroup group: selectionGroups) {
-                // Create group (with any parent it may have) and save it for treeGroup iteration
-                SelectionTreeGroup tree = new SelectionTreeGroup(group, dataByGroup.get(group), 
-                        treeGroupsMap.get(group.getParent()));
-                // NOTE: A treeGroup may have child SelectionTrees for embedded/composite objects,
-                //       this means the treeGroups is potentially smaller than the result array,
-                //       because the treeGroups only contains explicitly selected dtos.
-                parentResultIndex = tree.assignResultIndexes(parentResultIndex);
-                if (tree.getGroup().isResultGroup()) {
-                    this.treeGroups[0] = tree;
-                } else {
-                    this.treeGroups[treeGroupIdx++] = tree;
-                }
-                treeGroupsMap.put(group, tree);
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the selections can be read by a view, only the values of the result group
+     * can be read, without identity fields or selection mergers.
+     * <p>
+     * The views read the tuple directly, unless values need to be transformed.
+     * The transformed values are copied into an array per row then, in order of
+     * the selections, and the returned tuple indexes are used to copy them.
+     */
+    private int[] createViewTupleIndexes(List<TypeSafeQuerySelectionProxyData> selectionDatas, int[] tupleIndexes) {
+        TypeSafeQuerySelectionGroup resultGroup = getResultGroup(selectionDatas);
+        for(TypeSafeQuerySelectionProxyData selectionData: selectionDatas) {
+            if (selectionData.getGroup() != resultGroup) {
+                throw new UnsupportedOperationException("Subselections can't be used when "
+                        + "the results are selected into interface views: " + selectionData);
+            }
+        }
+        if (!resultGroup.getResultIdentifierPropertyPaths().isEmpty() || resultGroup.getSelectionMerger() != null) {
+            throw new UnsupportedOperationException("Interface views are created for "
+                    + "each row, they can't be merged by identity or selection merger.");
+        }
+        boolean hasTransformer = false;
+        for(SelectionValueTransformer<?, ?> transformer: transformers) {
+            hasTransformer = hasTransformer || transformer != null;
+        }
+        if (!hasTransformer) {
+            return null;
+        }
+        int[] viewTupleIndexes = new int[selectionDatas.size()];
+        for(int i=0; i < viewTupleIndexes.length; i++) {
+            viewTupleIndexes[i] = tupleIndexes == null ? i: tupleIndexes[i];
+        }
+        return viewTupleIndexes;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Not the case when results are merged based on their identity fields or duplicates are skipped.
+     */
+    @Override
+    public boolean isResultPerTuple() {
+        if (distinctEntityIndexes != null) {
+            return false;
+        }
+        for(SelectionTreeGroup treeGroup: treeGroups) {
+            if (treeGroup.hasIdentityFields()) {
+                return false;
             }
-            this.resultArraySize = parentResultIndex + 1;
-        } catch (SecurityException | NoSuchFieldException e) {
-            throw new RuntimeException(e);
         }
+        return true;
     }
 
     /**
@@ -132,28 +192,105 @@ public class TypeSafeQueryResultTransformer extends BasicTransformerAdapter {
             // only one value was selected, nothing needs to be done
             return list;
         }
-        
+        final List result = new ArrayList(list.size());
+        transformTuples(list.iterator(), null, new ResultCollector() {
+            @Override
+            public void collect(Object key, Object value) {
+                result.add(value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The key property must be a property of the result group, its value is read
+     * from the first tuple of the result and transformed if it has a value transformer.
+     */
+    @Override
+    public void transformTuples(Iterator<Object[]> tuples, String keyPropertyPath, ResultCollector collector) {
+        int keyIndex = getKeySelectionIndex(keyPropertyPath);
+        DistinctTuples distinct = distinctEntityIndexes == null ? null: new DistinctTuples(distinctEntityIndexes);
+        if (viewLayout != null) {
+            transformToViews(tuples, keyIndex, distinct, collector);
+            return;
+        }
+
         // prepare result array and set up dataArray to contain the current
         // value objects and identity trees
-        List result = new ArrayList(list.size());
         SelectionTreeData[] data = new SelectionTreeData[resultArraySize];
         for(int i=0; i < resultArraySize; i++) {
             data[i] = new SelectionTreeData();
         }
 
+        ValueInterner interner = internValues ? new ValueInterner(): null;
         try {
-            for(Object obj: list) {
-                for(SelectionTreeGroup treeGroup: treeGroups) {
-                    treeGroup.createFromTuple(data, (Object[]) obj);
+            while (tuples.hasNext()) {
+                Object[] tuple = tuples.next();
+                if (distinct != null && !distinct.add(tuple)) {
+                    continue;
+                }
+                for(int i=0; i < treeGroups.length; i++) {
+                    treeGroups[i].createFromTuple(data, tuple, transformers, selectionMergers[i], interner);
                 }
                 if (!data[0].isDuplicate()) {
                     // only include main result selection if it was not duplicate.
-                    result.add(data[0].getCurrentValue());
+                    collector.collect(getKey(tuple, keyIndex), data[0].getCurrentValue());
                 }
             }
         } catch (IllegalArgumentException | IllegalAccessException | InstantiationException e) {
             throw new RuntimeException(e);
         }
-        return result;
+    }
+
+    private int getKeySelectionIndex(String keyPropertyPath) {
+        if (keyPropertyPath == null) {
+            return -1;
+        }
+        for(int i=0; i < resultPropertyPaths.length; i++) {
+            if (keyPropertyPath.equals(resultPropertyPaths[i])) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("The key property [%s] "
+                + "was not selected into the result.", keyPropertyPath));
+    }
+
+    private Object getKey(Object[] tuple, int keyIndex) {
+        if (keyIndex < 0) {
+            return null;
+        }
+        Object key = tuple[tupleIndexes == null ? keyIndex: tupleIndexes[keyIndex]];
+        return transformers[keyIndex] == null ? key: transformers[keyIndex].convert(key);
+    }
+
+    /**
+     * Creates a view per tuple, the transformed values are copied when there are transformers.
+     */
+    private void transformToViews(Iterator<Object[]> tuples, int keyIndex,
+            DistinctTuples distinct, ResultCollector collector) {
+        ValueInterner interner = internValues ? new ValueInterner(): null;
+        while (tuples.hasNext()) {
+            Object[] tuple = tuples.next();
+            if (distinct != null && !distinct.add(tuple)) {
+                continue;
+            }
+            Object key = getKey(tuple, keyIndex);
+            if (viewTupleIndexes != null) {
+                Object[] values = new Object[viewTupleIndexes.length];
+                for(int i=0; i < values.length; i++) {
+                    values[i] = tuple[viewTupleIndexes[i]];
+                    if (transformers[i] != null) {
+                        values[i] = transformers[i].convert(values[i]);
+                    }
+                }
+                tuple = values;
+            }
+            if (interner != null) {
+                interner.internAll(tuple);
+            }
+            collector.collect(key, viewLayout.createView(tuple));
+        }
     }
 }
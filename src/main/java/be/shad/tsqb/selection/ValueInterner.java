@@ -0,0 +1,87 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+
+/**
+ * Replaces equal immutable values by the same instance while results are transformed,
+ * so repeated values such as town names or codes are retained only once.
+ * <p>
+ * The values are kept in a direct mapped table of fixed size: a value replaces
+ * the value with the same hash slot, so the table never grows and each lookup
+ * costs one equals at most. Values are only replaced by values of the same class.
+ * <p>
+ * Dates are mutable, the same date instance is shared by all results with that date
+ * when values are interned, so the results should not modify them.
+ * <p>
+ * Not thread safe, an interner is created per transformed result list.
+ */
+public final class ValueInterner {
+    private static final int DEFAULT_SIZE = 4096;
+
+    private final Object[] table;
+    private final int mask;
+
+    public ValueInterner() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size the number of table slots, rounded up to a power of two.
+     */
+    public ValueInterner(int size) {
+        int slots = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        this.table = new Object[slots];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Returns an equal value which was interned before, or the value itself
+     * when it was not interned before or can't be interned.
+     */
+    public Object intern(Object value) {
+        if (value == null || !isInternable(value.getClass())) {
+            return value;
+        }
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        Object interned = table[slot];
+        if (interned != null && interned.getClass() == value.getClass() && interned.equals(value)) {
+            return interned;
+        }
+        table[slot] = value;
+        return value;
+    }
+
+    /**
+     * Interns the values of the array in place.
+     */
+    public void internAll(Object[] values) {
+        for(int i=0; i < values.length; i++) {
+            values[i] = intern(values[i]);
+        }
+    }
+
+    private static boolean isInternable(Class<?> type) {
+        return type == String.class || type == Long.class || type == Integer.class
+                || type == BigDecimal.class || type == Double.class || type == Short.class
+                || type == Byte.class || type == Float.class || type == Character.class
+                || type == BigInteger.class || Date.class.isAssignableFrom(type);
+    }
+}
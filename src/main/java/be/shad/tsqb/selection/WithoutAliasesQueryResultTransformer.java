@@ -15,26 +15,45 @@
  */
 package be.shad.tsqb.selection;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 
 import org.hibernate.transform.BasicTransformerAdapter;
 
 /**
  * Support value converter when working without a selection dto.
+ * Interns the values of the result list and skips duplicate results
+ * when this was enabled on the query.
  */
 @SuppressWarnings({ "unchecked", "rawtypes" })
-public class WithoutAliasesQueryResultTransformer extends BasicTransformerAdapter {
+public class WithoutAliasesQueryResultTransformer extends BasicTransformerAdapter implements CollectingResultTransformer {
     private static final long serialVersionUID = 942223288493516089L;
     
     private final SelectionValueTransformer[] transformers;
+    private final boolean internValues;
+    private final boolean[] distinctEntityIndexes;
 
     public WithoutAliasesQueryResultTransformer(List<SelectionValueTransformer<?, ?>> transformers) {
+        this(transformers, false, null);
+    }
+
+    /**
+     * @param internValues whether equal values are replaced by the same instance, see {@link ValueInterner}.
+     * @param distinctEntityIndexes whether each tuple value is an entity, when duplicate results are
+     *                              skipped, null otherwise. See {@link DistinctTuples}.
+     */
+    public WithoutAliasesQueryResultTransformer(List<SelectionValueTransformer<?, ?>> transformers,
+            boolean internValues, boolean[] distinctEntityIndexes) {
         this.transformers = transformers.toArray(new SelectionValueTransformer[transformers.size()]);
+        this.internValues = internValues;
+        this.distinctEntityIndexes = distinctEntityIndexes;
     }
     
     @Override
     public Object transformTuple(Object[] tuple, String[] aliases) {
-        for(int i=0; i < tuple.length; i++) {
+        for(int i=0; i < tuple.length && i < transformers.length; i++) {
             if (transformers[i] != null) {
                 tuple[i] = transformers[i].convert(tuple[i]);
             }
@@ -42,4 +61,87 @@ public class WithoutAliasesQueryResultTransformer extends BasicTransformerAdapte
         return tuple.length == 1 ? tuple[0]: tuple;
     }
 
+    @Override
+    public List transformList(List list) {
+        if (distinctEntityIndexes == null) {
+            if (internValues) {
+                ValueInterner interner = new ValueInterner();
+                for(ListIterator it = list.listIterator(); it.hasNext();) {
+                    it.set(intern(interner, it.next()));
+                }
+            }
+            return list;
+        }
+        final List results = new ArrayList(list.size());
+        transformResults(list.iterator(), new ResultCollector() {
+            @Override
+            public void collect(Object key, Object result) {
+                results.add(result);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Skips duplicate results and interns the values of the results which are collected.
+     */
+    private void transformResults(Iterator results, ResultCollector collector) {
+        ValueInterner interner = internValues ? new ValueInterner(): null;
+        DistinctTuples distinct = distinctEntityIndexes == null ? null: new DistinctTuples(distinctEntityIndexes);
+        while (results.hasNext()) {
+            Object result = results.next();
+            if (distinct != null && !distinct.addResult(result)) {
+                continue;
+            }
+            collector.collect(null, interner == null ? result: intern(interner, result));
+        }
+    }
+
+    private Object intern(ValueInterner interner, Object result) {
+        if (result instanceof Object[]) {
+            interner.internAll((Object[]) result);
+            return result;
+        }
+        return interner.intern(result);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Not the case when duplicate results are skipped.
+     */
+    @Override
+    public boolean isResultPerTuple() {
+        return distinctEntityIndexes == null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The results are not selected into a dto, so they can only be collected without key.
+     */
+    @Override
+    public void transformTuples(final Iterator<Object[]> tuples, String keyPropertyPath, ResultCollector collector) {
+        if (keyPropertyPath != null) {
+            throw new IllegalArgumentException(String.format("The key property [%s] can't be "
+                    + "used, the values were not selected into a dto.", keyPropertyPath));
+        }
+        transformResults(new Iterator() {
+            @Override
+            public boolean hasNext() {
+                return tuples.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return transformTuple(tuples.next(), null);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }, collector);
+    }
+
 }
@@ -17,7 +17,6 @@ package be.shad.tsqb.selection.group;
 
 import static java.lang.String.format;
 
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -30,15 +29,20 @@ import be.shad.tsqb.selection.SelectionTree;
 import be.shad.tsqb.selection.SelectionTreeData;
 import be.shad.tsqb.selection.SelectionTreeValue;
 import be.shad.tsqb.selection.SelectionValueTransformer;
+import be.shad.tsqb.selection.ValueInterner;
 import be.shad.tsqb.selection.parallel.SelectionMerger;
 
 /**
  * The root of a selection tree which will select into a dto.
+ * <p>
+ * Doesn't reference the selection group it was created for, so it can be reused
+ * for other queries with the same selections. The value transformers and the
+ * selection merger are passed when the tuples are transformed.
  */
 @SuppressWarnings({ "unchecked", "rawtypes" })
 public class SelectionTreeGroup extends SelectionTree {
 
-    private TypeSafeQuerySelectionGroup group;
+    private final boolean resultGroup;
 
     private final SelectionTreeGroup parent;
     private final Field parentCollectionField;
@@ -56,22 +60,15 @@ public class SelectionTreeGroup extends SelectionTree {
             List<SelectionTreeValue> tupleValues,
             SelectionTreeGroup parent) throws NoSuchFieldException, SecurityException {
         super(group.getResultClass());
-        this.group = group;
+        this.resultGroup = group.isResultGroup();
         this.parent = parent;
 
         Set<String> identityPaths = group.getResultIdentifierPropertyPaths();
         identityFields = new SelectionTreeField[identityPaths.size()];
         otherFields = new SelectionTreeField[tupleValues.size() - identityFields.length];
 
-        int fieldsCount = tupleValues.size();
-        if (group.getCollectionPropertyPath() != null) {
-            fieldsCount++;
-        }
-
-        int fieldIndex = 0;
         int otherFieldsIndex = 0;
         int identityFieldsIndex = 0;
-        Field[] fields = new Field[fieldsCount];
         for(SelectionTreeValue value: tupleValues) {
             SelectionTreeField field = createSelectionTreeField(value);
             if (identityPaths.contains(value.propertyPath)) {
@@ -79,21 +76,16 @@ public class SelectionTreeGroup extends SelectionTree {
             } else {
                 otherFields[otherFieldsIndex++] = field;
             }
-            fields[fieldIndex++] = field.field;
         }
 
         if (group.getCollectionPropertyPath() != null) {
             SubtreeField collectionField = getSubtreeField(parent, group.getCollectionPropertyPath());
             parentCollectionField = collectionField.field;
             collectionClass = determineCollectionClassToUse(collectionField.field.getType());
-            fields[fieldIndex] = parentCollectionField;
         } else {
             parentCollectionField = null;
             collectionClass = null;
         }
-
-        // set the entire array accessible at once (for this object):
-        AccessibleObject.setAccessible(fields, true);
     }
 
     /**
@@ -129,7 +121,7 @@ public class SelectionTreeGroup extends SelectionTree {
      */
     private SelectionTreeField createSelectionTreeField(SelectionTreeValue value) {
         SubtreeField subtreeField = getSubtreeField(this, value.propertyPath);
-        return new SelectionTreeField(subtreeField.subtree, value.valueTransformer,
+        return new SelectionTreeField(subtreeField.subtree, value.selectionIndex,
                 subtreeField.field, value.tupleValueIndex);
     }
 
@@ -152,9 +144,15 @@ public class SelectionTreeGroup extends SelectionTree {
     }
 
     /**
+     * Creates the result value of this group for the tuple, or reuses an existing one
+     * if the identity fields match, and adds or merges it into the parent value.
      *
+     * @param transformers the value transformers, by selection index.
+     * @param selectionMerger the merger of the group, null if the group has none.
+     * @param interner interns the values set on the result value, null if values are not interned.
      */
-    public void createFromTuple(SelectionTreeData[] dataArray, Object[] tuple)
+    public void createFromTuple(SelectionTreeData[] dataArray, Object[] tuple,
+            SelectionValueTransformer[] transformers, SelectionMerger selectionMerger, ValueInterner interner)
             throws IllegalArgumentException, IllegalAccessException, InstantiationException {
         // populate 'new instances' of this and composite/embedded objects
         Object resultValue = getResultType().newInstance();
@@ -188,7 +186,7 @@ public class SelectionTreeGroup extends SelectionTree {
                 identityExists = false;
             }
             for(SelectionTreeField field: identityFields) {
-                Object value = setField(dataArray, field, tuple);
+                Object value = setField(dataArray, field, tuple, transformers, interner);
                 if (nullIdentity && value != null) {
                     nullIdentity = false;
                 }
@@ -218,13 +216,13 @@ public class SelectionTreeGroup extends SelectionTree {
 
             // object didn't exist, set remaining fields:
             for(SelectionTreeField field: otherFields) {
-                setField(dataArray, field, tuple);
+                setField(dataArray, field, tuple, transformers, interner);
             }
         } else {
             // object didn't exist, set remaining fields:
             boolean nullValue = true;
             for(SelectionTreeField field: otherFields) {
-                Object value = setField(dataArray, field, tuple);
+                Object value = setField(dataArray, field, tuple, transformers, interner);
                 if (nullValue && value != null) {
                     nullValue = false;
                 }
@@ -238,7 +236,6 @@ public class SelectionTreeGroup extends SelectionTree {
         }
 
         if (parent != null) {
-            SelectionMerger selectionMerger = group.getSelectionMerger();
             if (selectionMerger != null) {
                 // subselect value merged result dto:
                 selectionMerger.mergeIntoResult(parentValue, resultValue);
@@ -249,31 +246,46 @@ public class SelectionTreeGroup extends SelectionTree {
         }
     }
 
-    private Object setField(SelectionTreeData[] dataArray, SelectionTreeField field, Object[] tuple)
+    private Object setField(SelectionTreeData[] dataArray, SelectionTreeField field, Object[] tuple,
+            SelectionValueTransformer[] transformers, ValueInterner interner)
             throws IllegalArgumentException, IllegalAccessException, InstantiationException {
         Object value = tuple[field.tupleValueIndex];
-        if (field.valueTransformer != null) {
-            value = field.valueTransformer.convert(value);
+        SelectionValueTransformer valueTransformer = transformers[field.selectionIndex];
+        if (valueTransformer != null) {
+            value = valueTransformer.convert(value);
+        }
+        if (interner != null) {
+            value = interner.intern(value);
         }
         field.field.set(dataArray[field.valueTree.getResultIndex()].getCurrentValue(), value);
         return value;
     }
 
-    public TypeSafeQuerySelectionGroup getGroup() {
-        return group;
+    /**
+     * Whether the values of this group appear in the returned list.
+     */
+    public boolean isResultGroup() {
+        return resultGroup;
+    }
+
+    /**
+     * Whether values of this group are merged when their identity fields are equal.
+     */
+    public boolean hasIdentityFields() {
+        return identityFields.length > 0;
     }
 
     private final static class SelectionTreeField {
-        final SelectionValueTransformer valueTransformer;
+        final int selectionIndex;
         final SelectionTree valueTree;
         final int tupleValueIndex;
         final Field field;
 
         public SelectionTreeField(SelectionTree valueTree,
-                SelectionValueTransformer valueTransformer,
+                int selectionIndex,
                 Field field, int tupleValueIndex) {
             this.valueTree = valueTree;
-            this.valueTransformer = valueTransformer;
+            this.selectionIndex = selectionIndex;
             this.field = field;
             this.tupleValueIndex = tupleValueIndex;
         }
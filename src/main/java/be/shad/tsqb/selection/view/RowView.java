@@ -0,0 +1,54 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection.view;
+
+/**
+ * Base class of the generated views of an interface result type. The getters
+ * of a view read the values from the tuple of the row, a view of a nested interface
+ * property is created when its getter is called and reads from the same tuple.
+ * <p>
+ * Views are read-only, setters throw an {@link UnsupportedOperationException}.
+ */
+public abstract class RowView {
+    private final Object[] tuple;
+    private final RowViewLayout layout;
+
+    protected RowView(Object[] tuple, RowViewLayout layout) {
+        this.tuple = tuple;
+        this.layout = layout;
+    }
+
+    /**
+     * The value of the property, null if the property wasn't selected.
+     */
+    protected final Object value(int property) {
+        int index = layout.getTupleIndex(property);
+        return index < 0 ? null: tuple[index];
+    }
+
+    /**
+     * A view of the nested property, null if none of its properties were selected.
+     */
+    protected final Object nested(int property) {
+        RowViewLayout nestedLayout = layout.getNestedLayout(property);
+        return nestedLayout == null ? null: nestedLayout.createView(tuple);
+    }
+
+    @Override
+    public String toString() {
+        return layout.toString(tuple);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection.view;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+/**
+ * Generates the view class of an interface result type using javassist.
+ * <p>
+ * The view class extends {@link RowView} and implements each getter of the interface
+ * by reading the property by its index in the sorted getter properties, other methods
+ * throw an {@link UnsupportedOperationException}. Methods of {@link Object} which are
+ * redeclared by the interface are not generated, the implementation of {@link RowView} is used.
+ * <p>
+ * The generated classes are cached to create them only once per interface. The cache is a
+ * {@link ClassValue}, so the interface and its view class don't outlive their class loader.
+ */
+final class RowViewClass {
+    private static final ClassValue<RowViewClass> VIEW_CLASSES = new ClassValue<RowViewClass>() {
+        @Override
+        protected RowViewClass computeValue(Class<?> viewInterface) {
+            return new RowViewClass(viewInterface);
+        }
+    };
+
+    private final Class<?> viewInterface;
+    private final List<String> properties = new ArrayList<>();
+    private final List<Class<?>> propertyTypes = new ArrayList<>();
+    private final Constructor<?> constructor;
+
+    /**
+     * Synchronized so the view class of an interface is only generated once,
+     * defining the same class twice fails.
+     */
+    static RowViewClass get(Class<?> viewInterface) {
+        synchronized (VIEW_CLASSES) {
+            return VIEW_CLASSES.get(viewInterface);
+        }
+    }
+
+    private RowViewClass(Class<?> viewInterface) {
+        if (!viewInterface.isInterface()) {
+            throw new IllegalArgumentException(String.format(
+                    "Views can only be created for interfaces, [%s] is not an interface.", viewInterface.getName()));
+        }
+        this.viewInterface = viewInterface;
+        Map<String, Method> getters = new TreeMap<>();
+        Map<String, Method> otherMethods = new HashMap<>();
+        for(Method method: viewInterface.getMethods()) {
+            if (!Modifier.isAbstract(method.getModifiers()) || isObjectMethod(method)) {
+                continue;
+            }
+            String property = getPropertyName(method);
+            if (property != null) {
+                getters.put(property, method);
+            } else {
+                otherMethods.put(method.getName() + signature(method.getParameterTypes()), method);
+            }
+        }
+        for(Map.Entry<String, Method> getter: getters.entrySet()) {
+            properties.add(getter.getKey());
+            propertyTypes.add(getter.getValue().getReturnType());
+        }
+        try {
+            this.constructor = createClass(getters.values(), otherMethods.values()).
+                    getConstructor(Object[].class, RowViewLayout.class);
+        } catch (NotFoundException | CannotCompileException | NoSuchMethodException e) {
+            throw new RuntimeException("Failed to create the view class of " + viewInterface.getName(), e);
+        }
+    }
+
+    /**
+     * Whether the method is declared by Object, such as toString, equals and hashCode.
+     */
+    private static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The property name of a getter, null if the method is not a getter.
+     */
+    private static String getPropertyName(Method method) {
+        if (method.getParameterTypes().length > 0) {
+            return null;
+        }
+        String name = method.getName();
+        int start;
+        if (name.startsWith("get") && name.length() > 3 && method.getReturnType() != void.class) {
+            start = 3;
+        } else if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+            start = 2;
+        } else {
+            return null;
+        }
+        return name.substring(start, start + 1).toLowerCase() + name.substring(start + 1);
+    }
+
+    private Class<?> createClass(Collection<Method> getters, Collection<Method> otherMethods)
+            throws NotFoundException, CannotCompileException {
+        ClassPool pool = new ClassPool(true);
+        pool.appendClassPath(new LoaderClassPath(RowView.class.getClassLoader()));
+        pool.appendClassPath(new LoaderClassPath(viewInterface.getClassLoader()));
+        CtClass viewClass = pool.makeClass(viewInterface.getName() + "$RowView");
+        viewClass.setSuperclass(pool.get(RowView.class.getName()));
+        viewClass.addInterface(pool.get(viewInterface.getName()));
+        viewClass.addConstructor(CtNewConstructor.make(new CtClass[] {
+                pool.get(Object[].class.getName()), pool.get(RowViewLayout.class.getName()) },
+                new CtClass[0], "{ super($1, $2); }", viewClass));
+
+        int property = 0;
+        for(Method getter: getters) {
+            String body;
+            Class<?> type = getter.getReturnType();
+            if (isNested(property)) {
+                body = String.format("{ return (%s) nested(%d); }", typeName(type), property);
+            } else if (type.isPrimitive()) {
+                body = String.format("{ Object v = value(%d); if (v == null) { return %s; } return %s; }",
+                        property, type == boolean.class ? "false": "0", unbox(type, "v"));
+            } else {
+                body = String.format("{ return (%s) value(%d); }", typeName(type), property);
+            }
+            addMethod(pool, viewClass, getter, body);
+            property++;
+        }
+        for(Method method: otherMethods) {
+            addMethod(pool, viewClass, method, String.format("{ throw new UnsupportedOperationException(\""
+                    + "%s can't be called on a read-only view of %s.\"); }", method.getName(), viewInterface.getName()));
+        }
+        return viewClass.toClass(viewInterface.getClassLoader(), viewInterface.getProtectionDomain());
+    }
+
+    private static void addMethod(ClassPool pool, CtClass viewClass, Method method, String body)
+            throws NotFoundException, CannotCompileException {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        CtClass[] parameters = new CtClass[parameterTypes.length];
+        for(int i=0; i < parameters.length; i++) {
+            parameters[i] = pool.get(typeName(parameterTypes[i]));
+        }
+        viewClass.addMethod(CtNewMethod.make(Modifier.PUBLIC, pool.get(typeName(method.getReturnType())),
+                method.getName(), parameters, new CtClass[0], body, viewClass));
+    }
+
+    private static String unbox(Class<?> type, String variable) {
+        if (type == boolean.class) {
+            return String.format("((Boolean) %s).booleanValue()", variable);
+        } else if (type == char.class) {
+            return String.format("((Character) %s).charValue()", variable);
+        }
+        return String.format("((Number) %s).%sValue()", variable, type.getName());
+    }
+
+    private static String typeName(Class<?> type) {
+        return type.isArray() ? typeName(type.getComponentType()) + "[]": type.getName();
+    }
+
+    private static String signature(Class<?>[] parameterTypes) {
+        StringBuilder sb = new StringBuilder("(");
+        for(Class<?> parameterType: parameterTypes) {
+            sb.append(parameterType.getName()).append(';');
+        }
+        return sb.append(')').toString();
+    }
+
+    Class<?> getViewInterface() {
+        return viewInterface;
+    }
+
+    Constructor<?> getConstructor() {
+        return constructor;
+    }
+
+    /**
+     * The properties of the getters, sorted by name.
+     */
+    List<String> getProperties() {
+        return properties;
+    }
+
+    Class<?> getPropertyType(int property) {
+        return propertyTypes.get(property);
+    }
+
+    /**
+     * Whether the property is an interface of which a nested view is created.
+     * Interfaces of the jdk, such as collections, are read as values.
+     */
+    boolean isNested(int property) {
+        Class<?> type = propertyTypes.get(property);
+        return type.isInterface() && !type.getName().startsWith("java.");
+    }
+}
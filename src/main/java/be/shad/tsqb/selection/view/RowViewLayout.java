@@ -0,0 +1,115 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection.view;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Maps the properties of a generated view class to the tuple indexes of their values.
+ * Created once per query, the views of all rows share it.
+ */
+public final class RowViewLayout {
+    private final RowViewClass viewClass;
+    private final int[] tupleIndexes;
+    private final RowViewLayout[] nestedLayouts;
+
+    private RowViewLayout(RowViewClass viewClass) {
+        this.viewClass = viewClass;
+        List<String> properties = viewClass.getProperties();
+        this.tupleIndexes = new int[properties.size()];
+        this.nestedLayouts = new RowViewLayout[properties.size()];
+        for(int i=0; i < tupleIndexes.length; i++) {
+            tupleIndexes[i] = -1;
+        }
+    }
+
+    /**
+     * Creates the layout for the view of the interface.
+     *
+     * @param tupleIndexesByPath the tuple index of each selected property path, nested
+     *                           properties are separated with dots.
+     * @throws IllegalArgumentException when a path is not a property of the interface.
+     */
+    public static RowViewLayout create(Class<?> viewInterface, Map<String, Integer> tupleIndexesByPath) {
+        RowViewLayout layout = new RowViewLayout(RowViewClass.get(viewInterface));
+        Map<String, Map<String, Integer>> nestedPaths = new HashMap<>();
+        for(Entry<String, Integer> entry: tupleIndexesByPath.entrySet()) {
+            String path = entry.getKey();
+            int dot = path.indexOf('.');
+            String property = dot < 0 ? path: path.substring(0, dot);
+            int propertyIndex = layout.viewClass.getProperties().indexOf(property);
+            if (propertyIndex < 0 || (dot < 0) == layout.viewClass.isNested(propertyIndex)) {
+                throw new IllegalArgumentException(String.format("Property [%s] can't be read "
+                        + "from a view of [%s].", path, viewInterface.getName()));
+            }
+            if (dot < 0) {
+                layout.tupleIndexes[propertyIndex] = entry.getValue();
+            } else {
+                Map<String, Integer> nested = nestedPaths.get(property);
+                if (nested == null) {
+                    nested = new HashMap<>();
+                    nestedPaths.put(property, nested);
+                }
+                nested.put(path.substring(dot + 1), entry.getValue());
+            }
+        }
+        for(Entry<String, Map<String, Integer>> entry: nestedPaths.entrySet()) {
+            int propertyIndex = layout.viewClass.getProperties().indexOf(entry.getKey());
+            layout.nestedLayouts[propertyIndex] = create(
+                    layout.viewClass.getPropertyType(propertyIndex), entry.getValue());
+        }
+        return layout;
+    }
+
+    int getTupleIndex(int property) {
+        return tupleIndexes[property];
+    }
+
+    RowViewLayout getNestedLayout(int property) {
+        return nestedLayouts[property];
+    }
+
+    /**
+     * Creates a view which reads its values from the tuple.
+     */
+    public Object createView(Object[] tuple) {
+        try {
+            return viewClass.getConstructor().newInstance(tuple, this);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    String toString(Object[] tuple) {
+        StringBuilder sb = new StringBuilder(viewClass.getViewInterface().getSimpleName()).append('[');
+        List<String> properties = viewClass.getProperties();
+        for(int i=0; i < tupleIndexes.length; i++) {
+            if (tupleIndexes[i] >= 0) {
+                sb.append(properties.get(i)).append('=').append(tuple[tupleIndexes[i]]).append(", ");
+            } else if (nestedLayouts[i] != null) {
+                sb.append(properties.get(i)).append('=').append(nestedLayouts[i].toString(tuple)).append(", ");
+            }
+        }
+        if (sb.charAt(sb.length() - 1) == ' ') {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.hibernate.SQLQuery;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.type.Type;
+
+import be.shad.tsqb.hql.HqlQuery;
+
+/**
+ * Query rendered to native sql, the select, from, where, ... parts
+ * contain sql instead of hql, see {@link #getSql()}.
+ * <p>
+ * Keeps track of the entities and scalars which are selected so hibernate
+ * can map the result set without inspecting the result set metadata.
+ */
+public class SqlQuery extends HqlQuery {
+    private final Map<String, String> entities = new LinkedHashMap<>();
+    private final Map<String, Type> scalars = new LinkedHashMap<>();
+
+    public Map<String, String> getEntities() {
+        return entities;
+    }
+
+    public Map<String, Type> getScalars() {
+        return scalars;
+    }
+
+    /**
+     * Adds an entity which is selected when no values are selected.
+     */
+    public void addEntity(String alias, String entityName) {
+        entities.put(alias, entityName);
+    }
+
+    /**
+     * Adds a selected column with the type to read it with.
+     */
+    public void addScalar(String columnAlias, Type type) {
+        scalars.put(columnAlias, type);
+    }
+
+    public String getSql() {
+        return getHql();
+    }
+
+    /**
+     * Creates the hibernate sql query with the selected scalars or entities,
+     * the params still need to be bound.
+     */
+    public SQLQuery createSQLQuery(SharedSessionContract session) {
+        SQLQuery query = session.createSQLQuery(getSql());
+        if (scalars.isEmpty()) {
+            for(Entry<String, String> entity: entities.entrySet()) {
+                query.addEntity(entity.getKey(), entity.getValue());
+            }
+        } else {
+            for(Entry<String, Type> scalar: scalars.entrySet()) {
+                query.addScalar(scalar.getKey(), scalar.getValue());
+            }
+        }
+        return query;
+    }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.sql;
+
+import static java.lang.String.format;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.QueryableCollection;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.hibernate.sql.JoinFragment;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.joins.TypeSafeQueryJoin;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+import be.shad.tsqb.values.HqlQueryBuilderParams;
+import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
+import be.shad.tsqb.values.HqlQueryValue;
+import be.shad.tsqb.values.HqlQueryValueImpl;
+import be.shad.tsqb.values.ReferenceTypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValue;
+
+/**
+ * Renders a query to native sql instead of hql, so hibernate doesn't need to parse
+ * and translate the hql before it can be executed.
+ * <p>
+ * The query model is walked the same way as when hql is rendered, the renderer is passed
+ * along with the params and is used to resolve the tables and columns using the hibernate
+ * metadata. Joins are rendered by the join fragment of the dialect and are resolved
+ * from the association mappings. The result transformer of the query is kept as is,
+ * the selected columns are read using the hibernate types of the selected values.
+ * <p>
+ * Only query shapes of which all values can be resolved to columns are supported:
+ * <ul>
+ * <li>entities mapped to a single table without inheritance,</li>
+ * <li>joins on many to one associations referencing the primary key
+ *     and on one to many collections, without fetching,</li>
+ * <li>values using properties of joined entities or the identifier of a non joined entity.</li>
+ * </ul>
+ * Functions are rendered as they would be in hql and params are bound with the type hibernate 
+ * guesses from their value, unless they are compared to a property, then they are bound with
+ * the type of the property.
+ * An {@link UnsupportedOperationException} is thrown when the query uses anything else,
+ * the query should be rendered to hql in that case.
+ */
+public class SqlQueryRenderer {
+    private final SessionFactoryImplementor sessionFactory;
+
+    public SqlQueryRenderer(SessionFactory sessionFactory) {
+        this.sessionFactory = (SessionFactoryImplementor) sessionFactory;
+    }
+
+    /**
+     * Converts the query to an sql query. When no values are selected,
+     * the entities which would be selected by hql are selected.
+     */
+    public SqlQuery toSqlQuery(TypeSafeRootQuery query) {
+        SqlQuery sqlQuery = ((TypeSafeRootQueryInternal) query).toHqlQuery(
+                new SqlQuery(), new HqlQueryBuilderParamsImpl(this));
+        if (sqlQuery.getScalars().isEmpty()) {
+            for(String alias: sqlQuery.getEntities().keySet()) {
+                sqlQuery.appendSelect("{" + alias + ".*}");
+            }
+        }
+        return sqlQuery;
+    }
+
+    /**
+     * Appends the table of the root entity and the joins to the from clause.
+     * The entities are added to the query in case it is the sql query itself,
+     * and not a subquery.
+     */
+    public void appendFrom(HqlQuery query, TypeSafeQueryProxyData root, 
+            List<TypeSafeQueryJoin<?>> joins, HqlQueryBuilderParams params) {
+        HqlQueryValueImpl from = new HqlQueryValueImpl();
+        from.appendHql(getPersister(root).getTableName()).append(" ").append(root.getAlias());
+        addEntity(query, root);
+
+        JoinFragment joinFragment = sessionFactory.getDialect().createOuterJoinFragment();
+        for(TypeSafeQueryJoin<?> join: joins) {
+            TypeSafeQueryProxyData data = join.getData();
+            HqlQueryValue withValue = join.getRestrictions().toHqlQueryValue(params);
+            String on = null;
+            if (withValue.getHql().length() > 0) {
+                on = "(" + withValue.getHql() + ")";
+                from.addParams(withValue.getParams());
+            }
+            addJoin(joinFragment, data, on);
+            addEntity(query, data);
+        }
+        if (joinFragment.toWhereFragmentString().trim().length() > 0) {
+            throw new UnsupportedOperationException(format("The dialect [%s] doesn't render joins "
+                    + "in the from clause, which is not supported.", sessionFactory.getDialect()));
+        }
+        from.appendHql(joinFragment.toFromFragmentString());
+        query.appendFrom(from.getHql());
+        query.addParams(from.getParams());
+    }
+
+    /**
+     * Adds the join to the fragment, the columns to join
+     * are resolved using the mapping of the association.
+     */
+    private void addJoin(JoinFragment joinFragment, TypeSafeQueryProxyData data, String on) {
+        TypeSafeQueryProxyData owner = data.getParent();
+        String property = data.getPropertyPath();
+        if (owner.getProxyType().isComposite()) {
+            property = owner.getCompositePropertyPath() + "." + property;
+            owner = owner.getCompositeTypeEntityParent();
+        }
+        SingleTableEntityPersister ownerPersister = getPersister(owner);
+        SingleTableEntityPersister persister = getPersister(data);
+        Type type = ownerPersister.getPropertyType(property);
+        String[] ownerColumns;
+        String[] columns;
+        if (type.isCollectionType()) {
+            CollectionType collectionType = (CollectionType) type;
+            QueryableCollection collection = (QueryableCollection) 
+                    sessionFactory.getCollectionPersister(collectionType.getRole());
+            if (!collection.isOneToMany() || collectionType.getLHSPropertyName() != null) {
+                throw new UnsupportedOperationException(format("Only one to many collections "
+                        + "referencing the owner's identifier can be joined, [%s] can't be joined.", data));
+            }
+            ownerColumns = ownerPersister.getIdentifierColumnNames();
+            columns = collection.getKeyColumnNames();
+        } else {
+            ownerColumns = ownerPersister.getPropertyColumnNames(property);
+            if (ownerColumns.length == 0 || !((EntityType) type).isReferenceToPrimaryKey()) {
+                throw new UnsupportedOperationException(format("Only associations with a foreign key "
+                        + "referencing the primary key can be joined, [%s] can't be joined.", data));
+            }
+            columns = persister.getIdentifierColumnNames();
+        }
+        joinFragment.addJoin(persister.getTableName(), data.getAlias(), 
+                qualify(owner.getAlias(), ownerColumns), columns, 
+                toSqlJoinType(data), on);
+    }
+
+    private String[] qualify(String alias, String[] columns) {
+        String[] qualified = new String[columns.length];
+        for(int i=0; i < columns.length; i++) {
+            qualified[i] = alias + "." + columns[i];
+        }
+        return qualified;
+    }
+
+    private org.hibernate.sql.JoinType toSqlJoinType(TypeSafeQueryProxyData data) {
+        JoinType joinType = data.getEffectiveJoinType();
+        switch (joinType) {
+            case Inner: return org.hibernate.sql.JoinType.INNER_JOIN;
+            case Left: return org.hibernate.sql.JoinType.LEFT_OUTER_JOIN;
+            case Right: return org.hibernate.sql.JoinType.RIGHT_OUTER_JOIN;
+            default:
+        }
+        throw new UnsupportedOperationException(format("JoinType [%s] of [%s] "
+                + "can't be rendered to sql, entities can't be fetched.", joinType, data));
+    }
+
+    /**
+     * Adds the entity to the sql query, subqueries don't select entities.
+     */
+    private void addEntity(HqlQuery query, TypeSafeQueryProxyData data) {
+        if (query instanceof SqlQuery) {
+            ((SqlQuery) query).addEntity(data.getAlias(), getPersister(data).getEntityName());
+        }
+    }
+
+    /**
+     * Resolves the qualified column of a property, the property must be a property 
+     * of a joined entity or the identifier of an entity which isn't joined.
+     */
+    public String toColumn(TypeSafeQueryProxyData data) {
+        if (data.getProxyType().isEntity() || data.getProxyType().isComposite()) {
+            throw new UnsupportedOperationException(format("Entity or composite value [%s] "
+                    + "can't be rendered to sql, use its properties instead.", data));
+        }
+        return toColumn(data.getParent(), data.getPropertyPath());
+    }
+
+    private String toColumn(TypeSafeQueryProxyData owner, String property) {
+        if (owner.getProxyType().isComposite()) {
+            return toColumn(owner.getCompositeTypeEntityParent(), 
+                    owner.getCompositePropertyPath() + "." + property);
+        }
+        if (owner.getParent() != null && (owner.getJoinType() == null 
+                || owner.getEffectiveJoinType() == JoinType.None)) {
+            // the identifier of an entity which isn't joined is the foreign key of its owner:
+            if (!property.equals(owner.getIdentifierPath())) {
+                throw new UnsupportedOperationException(format("Property [%s] of [%s] can't be rendered "
+                        + "to sql, the entity must be joined.", property, owner));
+            }
+            return toColumn(owner.getParent(), owner.getPropertyPath());
+        }
+        String[] columns = getPersister(owner).getPropertyColumnNames(property);
+        if (columns.length != 1) {
+            throw new UnsupportedOperationException(format("Property [%s] of [%s] is mapped to "
+                    + "%d columns, only single column properties can be rendered to sql.", 
+                    property, owner, columns.length));
+        }
+        return owner.getAlias() + "." + columns[0];
+    }
+
+    /**
+     * Creates the column alias of a value selected by the sql query and
+     * adds the type to read the column with. Values selected in subqueries 
+     * don't need an alias.
+     */
+    public String toSelectAlias(HqlQuery query, TypeSafeValue<?> value, int index) {
+        if (!(query instanceof SqlQuery)) {
+            return "";
+        }
+        // the result transformer uses the tuple index, so generated
+        // aliases are used to prevent clashes with reserved words.
+        String columnAlias = "col_" + index + "_";
+        ((SqlQuery) query).addScalar(columnAlias, getType(value));
+        return " as " + columnAlias;
+    }
+
+    /**
+     * The type of a property is retrieved from the mapping, other
+     * values use the basic type of their value class.
+     */
+    private Type getType(TypeSafeValue<?> value) {
+        if (value instanceof ReferenceTypeSafeValue<?>) {
+            TypeSafeQueryProxyData data = ((ReferenceTypeSafeValue<?>) value).getData();
+            TypeSafeQueryProxyData owner = data.getParent();
+            String property = data.getPropertyPath();
+            if (owner.getProxyType().isComposite()) {
+                property = owner.getCompositePropertyPath() + "." + property;
+                owner = owner.getCompositeTypeEntityParent();
+            }
+            return getPersister(owner).getPropertyType(property);
+        }
+        Type type = sessionFactory.getTypeHelper().basic(value.getValueClass());
+        if (type == null) {
+            throw new UnsupportedOperationException(format("No basic type is known for [%s], "
+                    + "it can't be selected when rendering sql.", value.getValueClass()));
+        }
+        return type;
+    }
+
+    /**
+     * Retrieves the persister of the data's entity, only entities 
+     * mapped to a single table without inheritance are supported.
+     */
+    private SingleTableEntityPersister getPersister(TypeSafeQueryProxyData data) {
+        Object persister = sessionFactory.getClassMetadata(data.getPropertyType());
+        if (!(persister instanceof SingleTableEntityPersister)) {
+            throw new UnsupportedOperationException(format("Entity [%s] is not mapped "
+                    + "to a single table and can't be rendered to sql.", data.getPropertyType()));
+        }
+        SingleTableEntityPersister singleTablePersister = (SingleTableEntityPersister) persister;
+        if (singleTablePersister.isInherited() || singleTablePersister.isPolymorphic()
+                || singleTablePersister.getTableSpan() != 1) {
+            throw new UnsupportedOperationException(format("Entity [%s] is part of an inheritance "
+                    + "hierarchy or uses secondary tables and can't be rendered to sql.", data.getPropertyType()));
+        }
+        return singleTablePersister;
+    }
+
+}
@@ -15,7 +15,7 @@
  */
 package be.shad.tsqb.values;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import be.shad.tsqb.data.TypeSafeQueryProxyData;
@@ -30,7 +30,7 @@ import be.shad.tsqb.restrictions.RestrictionsGroupInternal;
  * Represents a case when() then ... (else ...) end.
  */
 public class CaseTypeSafeValue<T> extends TypeSafeValueImpl<T> implements OnGoingCaseWhen<T>, TypeSafeValueContainer {
-    private List<OnGoingCaseImpl<T>> cases = new LinkedList<>();
+    private List<OnGoingCaseImpl<T>> cases = new ArrayList<>();
 
     /**
      * Copy constructor
@@ -15,7 +15,7 @@
  */
 package be.shad.tsqb.values;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import be.shad.tsqb.query.TypeSafeQuery;
@@ -28,7 +28,7 @@ import be.shad.tsqb.query.copy.Copyable;
  * value in the list which is not null is selected.
  */
 public class CoalesceTypeSafeValue<T> extends TypeSafeValueImpl<T> implements TypeSafeValueContainer {
-    private List<TypeSafeValue<T>> values = new LinkedList<>();
+    private List<TypeSafeValue<T>> values = new ArrayList<>();
 
     /**
      * Copy constructor
@@ -56,7 +56,7 @@ public class CoalesceTypeSafeValue<T> extends TypeSafeValueImpl<T> implements Ty
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams parameters) {
         StringBuilder coalesce = new StringBuilder();
-        List<Object> params = new LinkedList<>();
+        List<Object> params = new ArrayList<>();
         for(TypeSafeValue<T> value: values) {
             if( coalesce.length() > 0 ) {
                 coalesce.append(",");
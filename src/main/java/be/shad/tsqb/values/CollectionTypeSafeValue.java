@@ -15,9 +15,9 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 import be.shad.tsqb.NamedParameter;
@@ -36,18 +36,17 @@ public class CollectionTypeSafeValue<T> extends TypeSafeValueImpl<T> implements
     /**
      * Copy constructor
      */
-    @SuppressWarnings("unchecked")
     protected CollectionTypeSafeValue(CopyContext context, CollectionTypeSafeValue<T> original) {
         super(context, original);
         if (original.values != null) {
-            try {
-                values = original.values.getClass().newInstance();
-            } catch (InstantiationException | IllegalAccessException e) {
-                throw new RuntimeException("Couldn't create same "
-                        + "collection as existing collection.", e);
-            }
-            for(T value: original.values){
-                values.add(context.getOrOriginal(value));
+            // the values are never modified, only replaced, so they
+            // are shared unless one of the values has a copy:
+            values = original.values;
+            for(T value: original.values) {
+                if (context.getOrOriginal(value) != value) {
+                    values = copyValues(context, original.values);
+                    break;
+                }
             }
         }
     }
@@ -83,6 +82,8 @@ public class CollectionTypeSafeValue<T> extends TypeSafeValueImpl<T> implements
             throw new IllegalArgumentException("Collection is empty when transforming to query");
         }
         if (params.isRequiresLiterals()) {
+            // the values are inlined, even when literals are parameterized,
+            // a collection parameter can't be cast to let hibernate infer its type:
             StringBuilder sb = new StringBuilder("(");
             for(Object val: values) {
                 if( sb.length() > 1 ) {
@@ -93,8 +94,8 @@ public class CollectionTypeSafeValue<T> extends TypeSafeValueImpl<T> implements
             sb.append(")");
             return new HqlQueryValueImpl(sb.toString());
         } else {
-            String name = params.createNamedParameter();
-            return new HqlQueryValueImpl(new StringBuilder("(:").append(name).append(")").toString(), new NamedParameter(name, values));
+            String name = params.createNamedParameter(this);
+            return new HqlQueryValueImpl(new StringBuilder("(:").append(name).append(")").toString(), new NamedParameter(name, values, params.getParameterType()));
         }
     }
 
@@ -118,7 +119,25 @@ public class CollectionTypeSafeValue<T> extends TypeSafeValueImpl<T> implements
             this.values = null;
             return;
         }
+        this.values = checkNamedValue(namedValue);
+    }
 
+    /**
+     * The collection bound to the query must not be null or empty.
+     */
+    @Override
+    public Object toNamedParameterValue(Object namedValue) {
+        if (namedValue == null) {
+            throw new IllegalArgumentException("Collection is null when binding it to the query");
+        }
+        List<T> values = checkNamedValue(namedValue);
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Collection is empty when binding it to the query");
+        }
+        return values;
+    }
+
+    private List<T> checkNamedValue(Object namedValue) {
         Collection<?> values = null;
         if (namedValue instanceof Collection<?>) {
             values = (Collection<?>) namedValue;
@@ -126,7 +145,7 @@ public class CollectionTypeSafeValue<T> extends TypeSafeValueImpl<T> implements
             values = Collections.singleton(namedValue);
         }
 
-        List<T> namedValues = new LinkedList<T>();
+        List<T> namedValues = new ArrayList<T>(values.size());
         for(Object value: values) {
             if (value == null) {
                 throw new IllegalArgumentException(String.format("Null value in "
@@ -138,7 +157,22 @@ public class CollectionTypeSafeValue<T> extends TypeSafeValueImpl<T> implements
             }
             namedValues.add(getValueClass().cast(value));
         }
-        this.values = namedValues;
+        return namedValues;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<T> copyValues(CopyContext context, Collection<T> originalValues) {
+        Collection<T> values;
+        try {
+            values = originalValues.getClass().newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException("Couldn't create same "
+                    + "collection as existing collection.", e);
+        }
+        for(T value: originalValues){
+            values.add(context.getOrOriginal(value));
+        }
+        return values;
     }
 
     @Override
@@ -97,7 +97,19 @@ public class DirectTypeSafeStringValue extends DirectTypeSafeValue<String> imple
      */
     @Override
     public String getValue() {
-        String wrapped = super.getValue();
+        return applyFlags(super.getValue());
+    }
+
+    /**
+     * Applies the string flags to the value bound to the query.
+     */
+    @Override
+    public Object toNamedParameterValue(Object value) {
+        return applyFlags((String) super.toNamedParameterValue(value));
+    }
+
+    private String applyFlags(String value) {
+        String wrapped = value;
         if (wrapped != null) {
             wrapped = prefix + wrapped + postfix;
             if (upper) {
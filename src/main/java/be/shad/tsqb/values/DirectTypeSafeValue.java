@@ -63,21 +63,41 @@ public class DirectTypeSafeValue<T> extends TypeSafeValueImpl<T> implements Name
         if (value == null) {
             throw new IllegalStateException("Value is null when transforming to query");
         }
-        if (params.isRequiresLiterals()) {
+        if (params.isRequiresLiterals() && !params.isParameterizeLiterals()) {
             return new HqlQueryValueImpl(query.getHelper().toLiteral(getValue()));
-        } else {
-            String name = params.createNamedParameter();
-            return new HqlQueryValueImpl(":" + name, new NamedParameter(name, getValue()));
         }
+        String name = params.createNamedParameter(this);
+        if (params.isRequiresLiterals()) {
+            // the cast tells hibernate the type of the parameter, it can't infer it here:
+            return new HqlQueryValueImpl(String.format("cast(:%s as %s)", name,
+                    query.getHelper().getResolvedTypeName(getValueClass())),
+                    new NamedParameter(name, getValue()));
+        }
+        return new HqlQueryValueImpl(":" + name, new NamedParameter(name, getValue(), params.getParameterType()));
     }
 
     @Override
     public void setNamedValue(Object value) {
+        this.value = checkNamedValue(value);
+    }
+
+    /**
+     * A query parameter can't be null.
+     */
+    @Override
+    public Object toNamedParameterValue(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value is null when binding it to the query");
+        }
+        return checkNamedValue(value);
+    }
+
+    private T checkNamedValue(Object value) {
         if (value != null && !getValueClass().isAssignableFrom(value.getClass())) {
             throw new IllegalArgumentException(String.format("The value must be of type "
                     + "[%s] but was of type [%s].", getValueClass(), value.getClass()));
         }
-        this.value = getValueClass().cast(value);
+        return getValueClass().cast(value);
     }
 
     @Override
@@ -15,10 +15,19 @@
  */
 package be.shad.tsqb.values;
 
+import org.hibernate.type.Type;
+
+import be.shad.tsqb.sql.SqlQueryRenderer;
+
 public interface HqlQueryBuilderParams {
     
     String createNamedParameter();
 
+    /**
+     * Creates a named parameter for the value of a named value enabled value.
+     */
+    String createNamedParameter(NamedValueEnabled value);
+
     /**
      * When set, values need to be transformed to literals.
      */
@@ -28,5 +37,28 @@ public interface HqlQueryBuilderParams {
      * Returns the previous value.
      */
     boolean setRequiresLiterals(boolean requiresLiterals);
+
+    /**
+     * When set, values which require literals are bound as parameters
+     * cast to their type instead, so the hql doesn't change with the values.
+     */
+    boolean isParameterizeLiterals();
+
+    /**
+     * The hibernate type to bind parameters with, the type of the property
+     * the value is compared to. Null when hibernate should guess the type.
+     */
+    Type getParameterType();
+
+    /**
+     * Returns the previous value.
+     */
+    Type setParameterType(Type parameterType);
+
+    /**
+     * The renderer which resolves tables and columns when the query
+     * is rendered to native sql, null when hql is rendered.
+     */
+    SqlQueryRenderer getSqlRenderer();
     
 }
@@ -15,9 +15,37 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.type.Type;
+
+import be.shad.tsqb.query.AliasTable;
+import be.shad.tsqb.sql.SqlQueryRenderer;
+
 public class HqlQueryBuilderParamsImpl implements HqlQueryBuilderParams {
+    private final SqlQueryRenderer sqlRenderer;
     private int namedParamCount = 1;
     private boolean requiresLiterals;
+    private boolean parameterizeLiterals;
+    private Type parameterType;
+    private Map<NamedValueEnabled, List<String>> namedValueParameters;
+
+    public HqlQueryBuilderParamsImpl() {
+        this(null);
+    }
+
+    public HqlQueryBuilderParamsImpl(SqlQueryRenderer sqlRenderer) {
+        this.sqlRenderer = sqlRenderer;
+    }
+
+    @Override
+    public SqlQueryRenderer getSqlRenderer() {
+        return sqlRenderer;
+    }
     
     @Override
     public boolean isRequiresLiterals() {
@@ -30,9 +58,66 @@ public class HqlQueryBuilderParamsImpl implements HqlQueryBuilderParams {
         return previous;
     }
 
+    @Override
+    public boolean isParameterizeLiterals() {
+        return parameterizeLiterals;
+    }
+
+    public void setParameterizeLiterals(boolean parameterizeLiterals) {
+        this.parameterizeLiterals = parameterizeLiterals;
+    }
+
+    @Override
+    public Type getParameterType() {
+        return parameterType;
+    }
+
+    @Override
+    public Type setParameterType(Type parameterType) {
+        Type previous = this.parameterType;
+        this.parameterType = parameterType;
+        return previous;
+    }
+
     @Override
     public String createNamedParameter() {
-        return "np" + namedParamCount++;
+        return AliasTable.NAMED_PARAMETERS.get(namedParamCount++);
+    }
+
+    @Override
+    public String createNamedParameter(NamedValueEnabled value) {
+        String name = createNamedParameter();
+        if (namedValueParameters != null) {
+            List<String> names = namedValueParameters.get(value);
+            if (names == null) {
+                names = new ArrayList<>(1);
+                namedValueParameters.put(value, names);
+            }
+            names.add(name);
+        }
+        return name;
+    }
+
+    /**
+     * Keep track of the parameters created for named value enabled values
+     * from now on, used when a query is frozen so the values can be rebound.
+     */
+    public void trackNamedValueParameters() {
+        if (namedValueParameters == null) {
+            namedValueParameters = new IdentityHashMap<>();
+        }
+    }
+
+    /**
+     * @return the names of the parameters created for the value
+     *         while tracking, empty if there are none.
+     */
+    public List<String> getNamedValueParameters(NamedValueEnabled value) {
+        List<String> names = namedValueParameters == null ? null: namedValueParameters.get(value);
+        if (names == null) {
+            return Collections.emptyList();
+        }
+        return names;
     }
 
 }
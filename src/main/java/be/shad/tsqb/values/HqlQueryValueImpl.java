@@ -15,8 +15,9 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 import be.shad.tsqb.query.copy.CopyContext;
@@ -27,7 +28,10 @@ import be.shad.tsqb.query.copy.Copyable;
  * convenient methods to append to them.
  */
 public class HqlQueryValueImpl implements HqlQueryValue, Copyable {
-    private List<Object> params = new LinkedList<>();
+    /**
+     * Allocated when the first param is added, most values don't have params.
+     */
+    private List<Object> params;
     private StringBuilder hql;
     
     /**
@@ -77,8 +81,11 @@ public class HqlQueryValueImpl implements HqlQueryValue, Copyable {
      */
     protected HqlQueryValueImpl(CopyContext context, HqlQueryValueImpl original) {
         this.hql = original.hql;
-        for(Object param: original.params) {
-            params.add(context.getOrOriginal(param));
+        if (original.params != null) {
+            params = new ArrayList<>(original.params.size());
+            for(Object param: original.params) {
+                params.add(context.getOrOriginal(param));
+            }
         }
     }
 
@@ -96,15 +103,28 @@ public class HqlQueryValueImpl implements HqlQueryValue, Copyable {
     }
     
     public Collection<Object> getParams() {
+        if (params == null) {
+            return Collections.emptyList();
+        }
         return params;
     }
     
     public void addParam(Object param) {
+        if (params == null) {
+            params = new ArrayList<>(2);
+        }
         params.add(param);
     }
 
     public void addParams(Collection<Object> params) {
-        this.params.addAll(params);
+        if (params.isEmpty()) {
+            return;
+        }
+        if (this.params == null) {
+            this.params = new ArrayList<>(params);
+        } else {
+            this.params.addAll(params);
+        }
     }
 
     @Override
@@ -23,5 +23,14 @@ public interface NamedValueEnabled {
      * be checked explicitely for type safety.
      */
     void setNamedValue(Object value);
+
+    /**
+     * Checks the value the same way as {@link #setNamedValue(Object)} and
+     * converts it to the value of the query parameter, without changing this value.
+     * Used to bind a value to a frozen query.
+     *
+     * @throws IllegalArgumentException when the value can't be bound.
+     */
+    Object toNamedParameterValue(Object value);
     
 }
@@ -15,8 +15,8 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 import be.shad.tsqb.query.TypeSafeQuery;
@@ -34,8 +34,8 @@ public class OperationTypeSafeValue<T> extends TypeSafeValueImpl<T> implements T
         WhenMoreThanOne;
     }
     
-    private List<TypeSafeValue<? extends T>> values = new LinkedList<>();
-    private List<String> operations = new LinkedList<>();
+    private List<TypeSafeValue<? extends T>> values = new ArrayList<>();
+    private List<String> operations = new ArrayList<>();
     private OperationTypeSafeValueBracketsPolicy bracketsPolicy;
 
     /**
@@ -19,6 +19,7 @@ import be.shad.tsqb.data.TypeSafeQueryProxyData;
 import be.shad.tsqb.query.TypeSafeQuery;
 import be.shad.tsqb.query.copy.CopyContext;
 import be.shad.tsqb.query.copy.Copyable;
+import be.shad.tsqb.sql.SqlQueryRenderer;
 
 /**
  * The proxy data represents a getter on one of the proxies
@@ -35,12 +36,14 @@ public class ReferenceTypeSafeValue<T> extends TypeSafeValueImpl<T> {
     protected ReferenceTypeSafeValue(CopyContext context, ReferenceTypeSafeValue<T> original) {
         super(context, original);
         this.data = context.get(original.data);
+        this.data.markReferenced();
     }
     
     @SuppressWarnings("unchecked")
     public ReferenceTypeSafeValue(TypeSafeQuery query, TypeSafeQueryProxyData data) {
         super(query, (Class<T>) data.getPropertyType());
         this.data = data;
+        data.markReferenced();
     }
     
     public TypeSafeQueryProxyData getData() {
@@ -49,6 +52,10 @@ public class ReferenceTypeSafeValue<T> extends TypeSafeValueImpl<T> {
     
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams params) {
+        SqlQueryRenderer sqlRenderer = params.getSqlRenderer();
+        if (sqlRenderer != null) {
+            return new HqlQueryValueImpl(sqlRenderer.toColumn(data));
+        }
         return new HqlQueryValueImpl(data.getAlias());
     }
     
@@ -42,7 +42,7 @@ public class TypeSafeValueFunctions {
     }
 
     public TypeSafeValue<Long> count() {
-        return new CustomTypeSafeValue<>(query, Long.class, "count(*)");
+        return new CountTypeSafeValue(query, new CustomTypeSafeValue<>(query, Object.class, "*"));
     }
     
     public <VAL> TypeSafeValue<Long> countDistinct(VAL val) {
@@ -17,6 +17,9 @@ package be.shad.tsqb.dto;
 
 import java.util.List;
 
+import be.shad.tsqb.proxy.TypeSafeQueryDto;
+
+@TypeSafeQueryDto
 public class PersonDto implements HasId {
     private Long id;
     private int personAge;
@@ -0,0 +1,42 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dto;
+
+import be.shad.tsqb.domain.people.Person.Sex;
+
+public interface PersonView extends HasId {
+
+    void setId(Long id);
+
+    String getName();
+
+    void setName(String name);
+
+    int getAge();
+
+    void setAge(int age);
+
+    Sex getSex();
+
+    void setSex(Sex sex);
+
+    boolean isMarried();
+
+    void setMarried(boolean married);
+
+    TownView getTown();
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.test.TypeSafeQueryTest;
+import be.shad.tsqb.values.DirectTypeSafeValue;
+import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
+
+/**
+ * Tests the package protected frozen query creation, see FrozenQueryTest for the frozen query usage.
+ */
+public class FrozenQueryParamsTest extends TypeSafeQueryTest {
+
+    /**
+     * A named value parameter which is not part of the rendered params can't be bound,
+     * it must not fall back to the first param.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testParameterMissingFromHqlRejected() {
+        query.from(Person.class);
+        DirectTypeSafeValue<?> value = (DirectTypeSafeValue<?>) query.toValue(5);
+        HqlQuery hqlQuery = query.toHqlQuery();
+
+        HqlQueryBuilderParamsImpl params = new HqlQueryBuilderParamsImpl();
+        params.trackNamedValueParameters();
+        params.createNamedParameter(value);
+        new FrozenQuery(hqlQuery, params, Collections.<String, Object>singletonMap("value", value),
+                -1, -1, new TypeSafeQueryHints());
+    }
+
+}
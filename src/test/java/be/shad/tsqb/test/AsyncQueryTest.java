@@ -0,0 +1,172 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.AsyncTypeSafeQueryDao;
+import be.shad.tsqb.dao.result.QueryResult;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.query.FrozenQuery;
+
+public class AsyncQueryTest extends TypeSafeQueryTest {
+    private ExecutorService executor;
+    private AsyncTypeSafeQueryDao asyncDao;
+
+    /**
+     * Commits the test data, the async queries are executed in their own sessions.
+     */
+    @Override
+    public void initialize() {
+        super.initialize();
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestTownWithPeople(new HashSet<>(asList("Josh", "Emma", "John")));
+        getSessionFactory().getCurrentSession().getTransaction().commit();
+        getSessionFactory().getCurrentSession().beginTransaction();
+
+        executor = Executors.newFixedThreadPool(4);
+        asyncDao = new AsyncTypeSafeQueryDao(getSessionFactory(), getTypeSafeQueryDao(), executor, 2);
+    }
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testQueriesExecutedConcurrently() throws Exception {
+        List<Future<QueryResult<String>>> futures = new ArrayList<>();
+        for(String prefix: asList("Jo", "Em", "X", "J")) {
+            Person person = query.from(Person.class);
+            query.where(person.getName()).startsWith(prefix);
+            query.select(person.getName());
+            query.orderBy().asc(person.getName());
+            futures.add(asyncDao.<String>doQueryAsync(query));
+            query.reset();
+        }
+        assertEquals(asList("John", "Josh"), futures.get(0).get().getResults());
+        assertEquals(asList("Emma"), futures.get(1).get().getResults());
+        assertTrue(futures.get(2).get().isEmpty());
+        assertEquals(asList("John", "Josh"), futures.get(3).get().getResults());
+        assertEquals(2, asyncDao.getAvailableSlots());
+    }
+
+    @Test
+    public void testEntitiesSelected() throws Exception {
+        query.from(Town.class);
+        Town town = asyncDao.<Town>doQueryAsync(query).get().getFirstResult();
+        assertEquals("TestTown", town.getName());
+    }
+
+    @Test
+    public void testFrozenQueryWithNamedValues() throws Exception {
+        Person person = query.from(Person.class);
+        query.where(person.getName()).startsWith().named("prefix", "Jo");
+        query.select(person.getName());
+        query.orderBy().asc(person.getName());
+        FrozenQuery frozen = query.freeze();
+
+        Future<QueryResult<String>> jo = asyncDao.doQueryAsync(frozen, null);
+        Future<QueryResult<String>> em = asyncDao.doQueryAsync(frozen,
+                Collections.<String, Object>singletonMap("prefix", "Em"));
+        assertEquals(asList("John", "Josh"), jo.get().getResults());
+        assertEquals(asList("Emma"), em.get().getResults());
+    }
+
+    @Test
+    public void testCancelledBeforeExecution() throws Exception {
+        final List<Runnable> submitted = new ArrayList<>();
+        AsyncTypeSafeQueryDao queueingDao = new AsyncTypeSafeQueryDao(getSessionFactory(),
+                getTypeSafeQueryDao(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                submitted.add(command);
+            }
+        }, 1);
+        query.from(Town.class);
+        Future<QueryResult<Town>> future = queueingDao.doQueryAsync(query);
+        assertTrue(future.cancel(true));
+        submitted.get(0).run();
+        assertTrue(future.isCancelled());
+        assertEquals(1, queueingDao.getAvailableSlots());
+    }
+
+    /**
+     * Queries which have to wait for a slot are not submitted to the executor,
+     * they are submitted when a query completes.
+     */
+    @Test
+    public void testQueuedQueriesNotSubmitted() throws Exception {
+        final List<Runnable> submitted = new ArrayList<>();
+        AsyncTypeSafeQueryDao queueingDao = new AsyncTypeSafeQueryDao(getSessionFactory(),
+                getTypeSafeQueryDao(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                submitted.add(command);
+            }
+        }, 1);
+        query.from(Town.class);
+        Future<QueryResult<Town>> first = queueingDao.doQueryAsync(query);
+        Future<QueryResult<Town>> second = queueingDao.doQueryAsync(query);
+        assertEquals(1, submitted.size());
+        assertEquals(0, queueingDao.getAvailableSlots());
+
+        submitted.get(0).run();
+        assertEquals("TestTown", first.get().getFirstResult().getName());
+        assertEquals(2, submitted.size());
+        submitted.get(1).run();
+        assertEquals("TestTown", second.get().getFirstResult().getName());
+        assertEquals(1, queueingDao.getAvailableSlots());
+    }
+
+    @Test
+    public void testCancelledWhileQueued() throws Exception {
+        final List<Runnable> submitted = new ArrayList<>();
+        AsyncTypeSafeQueryDao queueingDao = new AsyncTypeSafeQueryDao(getSessionFactory(),
+                getTypeSafeQueryDao(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                submitted.add(command);
+            }
+        }, 1);
+        query.from(Town.class);
+        Future<QueryResult<Town>> first = queueingDao.doQueryAsync(query);
+        Future<QueryResult<Town>> queued = queueingDao.doQueryAsync(query);
+        assertTrue(queued.cancel(true));
+
+        submitted.get(0).run();
+        assertEquals(1, first.get().getResults().size());
+        submitted.get(1).run();
+        assertTrue(queued.isCancelled());
+        assertEquals(1, queueingDao.getAvailableSlots());
+    }
+
+}
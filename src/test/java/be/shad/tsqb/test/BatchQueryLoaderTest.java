@@ -0,0 +1,150 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.dao.BatchQueryLoader;
+import be.shad.tsqb.dao.BatchQueryLoader.BatchedResult;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+
+public class BatchQueryLoaderTest extends TypeSafeQueryTest {
+    private Person josh;
+    private Person emma;
+    private Person john;
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        josh = creator.createTestPerson(town, "Josh");
+        emma = creator.createTestPerson(town, "Emma");
+        john = creator.createTestPerson(town, "John");
+    }
+
+    /**
+     * Creates a loader which loads the person dtos by id.
+     */
+    private BatchQueryLoader<Long, PersonDto> createLoader(int maxBatchSize) {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        dto.setThePersonsName(person.getName());
+        query.where(person.getId()).in().named("ids", Collections.<Long>emptyList());
+        return new BatchQueryLoader<>(getTypeSafeQueryDao(), query, "ids", maxBatchSize, dto, dto.getId());
+    }
+
+    @Test
+    public void testPendingKeysLoadedWithOneQuery() {
+        BatchQueryLoader<Long, PersonDto> loader = createLoader(10);
+        BatchedResult<PersonDto> joshResult = loader.load(josh.getId());
+        BatchedResult<PersonDto> emmaResult = loader.load(emma.getId());
+        BatchedResult<PersonDto> unknownResult = loader.load(-1L);
+        assertEquals(3, loader.getPendingCount());
+        assertFalse(joshResult.isLoaded());
+
+        assertEquals("Emma", emmaResult.getFirstResult().getThePersonsName());
+        assertTrue(joshResult.isLoaded());
+        assertEquals("Josh", joshResult.getFirstResult().getThePersonsName());
+        assertNull(unknownResult.getFirstResult());
+        assertEquals(1, loader.getQueryCount());
+        assertEquals(0, loader.getPendingCount());
+    }
+
+    /**
+     * The keys are bound to a copy of the query, the query of the caller keeps its named value.
+     */
+    @Test
+    public void testQueryNotChanged() {
+        BatchQueryLoader<Long, PersonDto> loader = createLoader(10);
+        query.named().setValue("ids", Collections.singletonList(-1L));
+        assertEquals("Josh", loader.load(josh.getId()).getFirstResult().getThePersonsName());
+        NamedParameter ids = (NamedParameter) query.toHqlQuery().getParams().iterator().next();
+        assertEquals(Collections.singletonList(-1L), ids.getValue());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testResultsCantBeModified() {
+        BatchQueryLoader<Long, PersonDto> loader = createLoader(10);
+        loader.load(josh.getId()).getResults().clear();
+    }
+
+    /**
+     * The results are grouped by the selected keys, keys of another type would never match.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyOfOtherTypeRejected() {
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        BatchQueryLoader<Object, PersonDto> loader = (BatchQueryLoader) createLoader(10);
+        loader.load(josh.getId().intValue());
+    }
+
+    @Test
+    public void testBatchesLimitedToMaxBatchSize() {
+        BatchQueryLoader<Long, PersonDto> loader = createLoader(2);
+        BatchedResult<PersonDto> joshResult = loader.load(josh.getId());
+        BatchedResult<PersonDto> emmaResult = loader.load(emma.getId());
+        BatchedResult<PersonDto> johnResult = loader.load(john.getId());
+        loader.dispatch();
+
+        assertEquals(2, loader.getQueryCount());
+        assertEquals("Josh", joshResult.getFirstResult().getThePersonsName());
+        assertEquals("Emma", emmaResult.getFirstResult().getThePersonsName());
+        assertEquals("John", johnResult.getFirstResult().getThePersonsName());
+    }
+
+    @Test
+    public void testDuplicateKeysQueriedOnce() {
+        BatchQueryLoader<Long, PersonDto> loader = createLoader(10);
+        BatchedResult<PersonDto> first = loader.load(josh.getId());
+        BatchedResult<PersonDto> second = loader.load(josh.getId());
+        assertEquals(1, loader.getPendingCount());
+
+        assertEquals(1, first.getResults().size());
+        assertEquals(first.getResults(), second.getResults());
+        assertEquals(1, loader.getQueryCount());
+    }
+
+    @Test
+    public void testLoadAfterDispatchQueriedAgain() {
+        BatchQueryLoader<Long, PersonDto> loader = createLoader(10);
+        loader.load(josh.getId()).getResults();
+        BatchedResult<PersonDto> later = loader.load(emma.getId());
+        assertEquals("Emma", later.getFirstResult().getThePersonsName());
+        assertEquals(2, loader.getQueryCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyMustBeSelectedGetter() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        query.where(person.getId()).in().named("ids", Collections.<Long>emptyList());
+        new BatchQueryLoader<>(getTypeSafeQueryDao(), query, "ids", 10, dto, 5L);
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import be.shad.tsqb.dao.TypeSafeQueryDaoImpl;
+import be.shad.tsqb.dao.cache.InFlightQueries;
+import be.shad.tsqb.dao.cache.InFlightQueries.RowLoader;
+import be.shad.tsqb.domain.people.Person;
+
+public class CoalescedQueryTest extends TypeSafeQueryTest {
+    private final InFlightQueries inFlightQueries = new InFlightQueries();
+    private final List<Object> key = asList((Object) "hql");
+
+    /**
+     * Loads the rows once the latch is released, counting the loads.
+     */
+    private RowLoader blockingLoader(final CountDownLatch latch, final AtomicInteger loads, final Object value) {
+        return new RowLoader() {
+            @Override
+            public List<Object[]> load() {
+                loads.incrementAndGet();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return Collections.singletonList(new Object[] { value });
+            }
+        };
+    }
+
+    /**
+     * Starts a thread loading the rows, the first row of each load is added to the results.
+     */
+    private Thread startLoad(final RowLoader loader, final List<Object[]> results) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                List<Object[]> rows = inFlightQueries.load(key, loader);
+                synchronized (results) {
+                    results.add(rows.get(0));
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Starts the first load and two loads which join it, releases the first load
+     * once both joined and waits for all loads to complete.
+     */
+    private List<Object[]> loadCoalesced(RowLoader loader, CountDownLatch latch) throws InterruptedException {
+        List<Object[]> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        threads.add(startLoad(loader, results));
+        while (inFlightQueries.getInFlightCount() == 0) {
+            Thread.sleep(1);
+        }
+        threads.add(startLoad(loader, results));
+        threads.add(startLoad(loader, results));
+        while (inFlightQueries.getCoalescedCount() < 2) {
+            Thread.sleep(1);
+        }
+        latch.countDown();
+        for(Thread thread: threads) {
+            thread.join();
+        }
+        return results;
+    }
+
+    @Test
+    public void testRowsOfFirstLoadShared() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        RowLoader loader = blockingLoader(latch, loads, "Josh");
+        List<Object[]> results = loadCoalesced(loader, latch);
+
+        assertEquals(1, loads.get());
+        assertEquals(3, results.size());
+        for(Object[] row: results) {
+            assertArrayEquals(new Object[] { "Josh" }, row);
+        }
+        assertNotSame(results.get(1), results.get(2));
+        assertEquals(0, inFlightQueries.getInFlightCount());
+    }
+
+    @Test
+    public void testRowsWithEntitiesLoadedByEachThread() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        RowLoader loader = blockingLoader(latch, loads, new Person());
+        List<Object[]> results = loadCoalesced(loader, latch);
+
+        assertEquals(3, loads.get());
+        assertEquals(3, results.size());
+    }
+
+    @Test
+    public void testRowsLoadedAfterMaxWait() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<Object[]> results = new ArrayList<>();
+        Thread first = startLoad(blockingLoader(latch, loads, "Josh"), results);
+        while (inFlightQueries.getInFlightCount() == 0) {
+            Thread.sleep(1);
+        }
+        List<Object[]> rows = inFlightQueries.load(key, blockingLoader(new CountDownLatch(0), loads, "Emma"), 10);
+        latch.countDown();
+        first.join();
+
+        assertEquals(2, loads.get());
+        assertArrayEquals(new Object[] { "Emma" }, rows.get(0));
+        assertArrayEquals(new Object[] { "Josh" }, results.get(0));
+    }
+
+    @Test
+    public void testInterruptedWhileWaiting() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Thread first = startLoad(blockingLoader(latch, loads, "Josh"), new ArrayList<Object[]>());
+        while (inFlightQueries.getInFlightCount() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.currentThread().interrupt();
+        try {
+            inFlightQueries.load(key, blockingLoader(latch, loads, "Emma"));
+            fail("The interrupted load should stop waiting.");
+        } catch (IllegalStateException e) {
+            assertTrue(Thread.interrupted());
+        } finally {
+            latch.countDown();
+            first.join();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testCoalescedQueryResults() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestTownWithPeople(new HashSet<>(asList("Josh", "Emma")));
+
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.orderBy().asc(person.getName());
+        query.getHints().setCoalesced(true);
+        validate("select hobj1.name from Person hobj1 order by hobj1.name");
+        assertEquals(asList("Emma", "Josh"), doQueryResult);
+
+        InFlightQueries daoFlights = ((TypeSafeQueryDaoImpl) getTypeSafeQueryDao()).getInFlightQueries();
+        assertEquals(0, daoFlights.getInFlightCount());
+        assertEquals(0, daoFlights.getCoalescedCount());
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.TownDetailsDto;
+import be.shad.tsqb.query.JoinType;
+
+public class DistinctResultsTest extends TypeSafeQueryTest {
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        new TestDataCreator(getSessionFactory()).createTestTownWithPeople(
+                new HashSet<>(Arrays.asList("Josh", "Albert", "Jessica")));
+        getSessionFactory().getCurrentSession().flush();
+        getSessionFactory().getCurrentSession().clear();
+        query.setDistinctResults(true);
+    }
+
+    @Test
+    public void testFetchJoinedEntitiesDistinct() {
+        Town town = query.from(Town.class);
+        query.join(town.getInhabitants(), JoinType.LeftFetch);
+        validate(" from Town hobj1 left join fetch hobj1.inhabitants hobj2");
+        assertEquals(1, doQueryResult.size());
+        assertEquals(3, ((Town) doQueryResult.get(0)).getInhabitants().size());
+    }
+
+    @Test
+    public void testSelectedEntitiesDistinct() {
+        Town town = query.from(Town.class);
+        query.join(town.getInhabitants());
+        query.select(town);
+        validate("select hobj1 from Town hobj1 join hobj1.inhabitants hobj2");
+        assertEquals(1, doQueryResult.size());
+    }
+
+    @Test
+    public void testDtosDistinct() {
+        Town town = query.from(Town.class);
+        query.join(town.getInhabitants());
+        TownDetailsDto dto = query.select(TownDetailsDto.class);
+        dto.setId(town.getId());
+        dto.setName(town.getName());
+        validate("select hobj1.id as id, hobj1.name as name from Town hobj1 join hobj1.inhabitants hobj2");
+        assertEquals(1, doQueryResult.size());
+    }
+
+    @Test
+    public void testDifferentValuesKept() {
+        Town town = query.from(Town.class);
+        Person inhabitant = query.join(town.getInhabitants());
+        query.select(town.getName());
+        query.select(inhabitant.getName());
+        validate("select hobj1.name, hobj2.name from Town hobj1 join hobj1.inhabitants hobj2");
+        assertEquals(3, doQueryResult.size());
+    }
+
+    @Test
+    public void testSameValuesDistinct() {
+        Town town = query.from(Town.class);
+        query.join(town.getInhabitants());
+        query.select(town.getName());
+        validate("select hobj1.name from Town hobj1 join hobj1.inhabitants hobj2");
+        assertEquals(Arrays.asList("TestTown"), doQueryResult);
+    }
+
+    @Test
+    public void testDistinctResultsCopied() {
+        assertTrue(query.copy().isDistinctResults());
+        query.reset();
+        assertFalse(query.isDistinctResults());
+    }
+}
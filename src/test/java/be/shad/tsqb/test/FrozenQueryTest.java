@@ -0,0 +1,196 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Person.Sex;
+import be.shad.tsqb.query.FrozenQuery;
+import be.shad.tsqb.values.CaseTypeSafeValue;
+
+public class FrozenQueryTest extends TypeSafeQueryTest {
+
+    @Test
+    public void testFrozenQueryUnaffectedByChanges() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(20);
+        query.select(person.getName());
+        FrozenQuery frozen = query.freeze();
+
+        query.where(person.getName()).eq("Josh");
+        query.setMaxResults(5);
+        assertEquals("select hobj1.name from Person hobj1 where hobj1.age > :np1", frozen.getHql());
+        assertEquals(1, frozen.getParams().size());
+        assertEquals(-1, frozen.getMaxResults());
+    }
+
+    @Test
+    public void testFrozenQueryExecutedWithBoundValues() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+        creator.createTestPerson(town, "Emily");
+
+        Person person = query.from(Person.class);
+        query.where(person.getName()).startsWith().named("prefix", "Jo");
+        query.select(person.getName());
+        FrozenQuery frozen = query.freeze();
+
+        List<String> defaultResults = getTypeSafeQueryDao().<String>doQuery(frozen).getResults();
+        assertEquals(asList("Josh"), defaultResults);
+
+        Map<String, Object> namedValues = Collections.<String, Object>singletonMap("prefix", "Em");
+        List<String> boundResults = getTypeSafeQueryDao().<String>doQuery(frozen, namedValues).getResults();
+        assertEquals(asList("Emily"), boundResults);
+    }
+
+    @Test
+    public void testBindConcurrently() throws Exception {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt().named("minAge", 1);
+        query.where(person.getName()).in().named("names", asList("A", "B"));
+        final FrozenQuery frozen = query.freeze();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Object>>> futures = new ArrayList<>();
+            for(int i=0; i < 100; i++) {
+                final int age = i;
+                futures.add(executor.submit(new Callable<List<Object>>() {
+                    @Override
+                    public List<Object> call() {
+                        return frozen.getParams(Collections.<String, Object>singletonMap("minAge", age));
+                    }
+                }));
+            }
+            for(int i=0; i < futures.size(); i++) {
+                List<Object> params = futures.get(i).get();
+                assertEquals(i, ((NamedParameter) params.get(0)).getValue());
+                assertEquals(asList("A", "B"), ((NamedParameter) params.get(1)).getValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, ((NamedParameter) frozen.getParams().get(0)).getValue());
+    }
+
+    @Test
+    public void testBoundValueKeepsPropertyType() {
+        Person person = query.from(Person.class);
+        query.where(person.getSex()).eq().named("sex", Sex.Male);
+        FrozenQuery frozen = query.freeze();
+
+        List<Object> params = frozen.getParams(Collections.<String, Object>singletonMap("sex", Sex.Female));
+        NamedParameter param = (NamedParameter) params.get(0);
+        assertEquals(Sex.Female, param.getValue());
+        assertEquals(Sex.class, param.getType().getReturnedClass());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCollectionShapeChangeRejected() {
+        Person person = query.from(Person.class);
+        query.where(person.getName()).in().named("names", asList("A", "B"));
+        query.freeze().getParams(Collections.<String, Object>singletonMap("names", asList("A")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongValueTypeRejected() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt().named("minAge", 1);
+        query.freeze().getParams(Collections.<String, Object>singletonMap("minAge", "one"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownNameRejected() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(1);
+        query.freeze().getParams(Collections.<String, Object>singletonMap("minAge", 2));
+    }
+
+    @Test
+    public void testFrozenHintsUnaffectedByChanges() {
+        query.from(Person.class);
+        query.getHints().setTimeout(5);
+        FrozenQuery frozen = query.freeze();
+        query.getHints().setTimeout(10);
+        assertEquals(Integer.valueOf(5), frozen.getHints().getTimeout());
+        try {
+            frozen.getHints().setTimeout(10);
+            fail("The hints of a frozen query can't be changed.");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(Integer.valueOf(5), frozen.getHints().getTimeout());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLiteralNamedValueNotBindable() {
+        Person person = query.from(Person.class);
+        CaseTypeSafeValue<Long> caseWhen = query.hqlFunction().caseWhen(Long.class);
+        caseWhen.is(10L).when(person.getName()).startsWith().named("prefix", "An");
+        caseWhen.is(20L).otherwise();
+        query.select(caseWhen);
+        query.freeze().getParams(Collections.<String, Object>singletonMap("prefix", "Jo"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSqlQueryNotFrozen() {
+        query.from(Person.class);
+        query.setRenderSql(true);
+        query.freeze();
+    }
+
+    @Test
+    public void testOptimizedNamedValuesBindable() {
+        query.setOptimizeRestrictions(true);
+        Person person = query.from(Person.class);
+        query.where(person.getName()).eq().named("a", "x").or(person.getName()).eq().named("b", "y");
+        FrozenQuery frozen = query.freeze();
+        assertEquals(" from Person hobj1 where hobj1.name = :np1 or hobj1.name = :np2", frozen.getHql());
+
+        List<Object> params = frozen.getParams(Collections.<String, Object>singletonMap("a", "z"));
+        assertEquals("z", ((NamedParameter) params.get(0)).getValue());
+        assertEquals("y", ((NamedParameter) params.get(1)).getValue());
+    }
+
+    @Test
+    public void testOptimizedDuplicateNamedValueBindable() {
+        query.setOptimizeRestrictions(true);
+        Person person = query.from(Person.class);
+        query.where(person.getName()).eq("x").and(person.getName()).eq().named("a", "x");
+        FrozenQuery frozen = query.freeze();
+        assertEquals(" from Person hobj1 where hobj1.name = :np1 and hobj1.name = :np2", frozen.getHql());
+
+        List<Object> params = frozen.getParams(Collections.<String, Object>singletonMap("a", "z"));
+        assertEquals("z", ((NamedParameter) params.get(1)).getValue());
+    }
+
+}
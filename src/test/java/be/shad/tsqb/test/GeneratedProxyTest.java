@@ -0,0 +1,94 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import javassist.util.proxy.MethodHandler;
+import javassist.util.proxy.ProxyObject;
+
+import org.junit.Test;
+
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.dto.TownDetailsDto;
+import be.shad.tsqb.proxy.TypeSafeQueryPropertyHandler;
+
+public class GeneratedProxyTest extends TypeSafeQueryTest {
+
+    @Test
+    public void testGeneratedEntityProxyUsed() {
+        Person person = query.from(Person.class);
+        assertEquals("be.shad.tsqb.domain.people.Person_TypeSafeQueryProxy", person.getClass().getName());
+        query.where(person.getAge()).gt(20);
+        validate(" from Person hobj1 where hobj1.age > :np1", 20);
+    }
+
+    @Test
+    public void testGeneratedSelectionProxyUsed() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        assertEquals("be.shad.tsqb.dto.PersonDto_TypeSafeQuerySelectionProxy", dto.getClass().getName());
+        dto.setPersonAge(person.getAge());
+        validate("select hobj1.age as personAge from Person hobj1");
+    }
+
+    @Test
+    public void testRuntimeProxyUsedWithoutGeneratedClass() {
+        Person person = query.from(Person.class);
+        TownDetailsDto dto = query.select(TownDetailsDto.class);
+        assertFalse(dto.getClass().getName().endsWith("_TypeSafeQuerySelectionProxy"));
+        dto.setName(person.getName());
+        validate("select hobj1.name as name from Person hobj1");
+    }
+
+    @Test
+    public void testPropertiesDispatchedWithoutMethod() throws Exception {
+        final List<String> calls = new ArrayList<>();
+        PersonDto dto = (PersonDto) query.select(PersonDto.class).getClass().newInstance();
+        ((ProxyObject) dto).setHandler(new PropertyRecorder() {
+            @Override
+            public Object getProperty(String propertyName, Class<?> propertyType) {
+                calls.add("get " + propertyName + " " + propertyType.getName());
+                return 5;
+            }
+
+            @Override
+            public void setProperty(String propertyName, Class<?> propertyType, Object value) {
+                calls.add("set " + propertyName + " " + propertyType.getName() + " " + value);
+            }
+        });
+        dto.setPersonAge(dto.getPersonAge());
+        assertEquals(asList("get personAge int", "set personAge int 5"), calls);
+    }
+
+    /**
+     * Fails when a method is dispatched, only the properties are expected to be called.
+     */
+    private abstract static class PropertyRecorder implements MethodHandler, TypeSafeQueryPropertyHandler {
+        @Override
+        public Object invoke(Object self, Method thisMethod, Method proceed, Object[] args) {
+            throw new AssertionError("Method dispatched: " + thisMethod);
+        }
+    }
+
+}
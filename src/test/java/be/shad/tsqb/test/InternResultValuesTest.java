@@ -0,0 +1,105 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.selection.ValueInterner;
+
+public class InternResultValuesTest extends TypeSafeQueryTest {
+
+    @Before
+    public void createPeople() {
+        new TestDataCreator(getSessionFactory()).createTestTownWithPeople(
+                new HashSet<>(Arrays.asList("Josh", "Albert", "Jessica")));
+        query.setInternResultValues(true);
+    }
+
+    @Test
+    public void testDtoValuesInterned() {
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown());
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(person.getName());
+        dto.getTownDetails().setName(town.getName());
+
+        List<PersonDto> results = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(3, results.size());
+        assertEquals("TestTown", results.get(0).getTownDetails().getName());
+        assertSame(results.get(0).getTownDetails().getName(), results.get(1).getTownDetails().getName());
+        assertSame(results.get(0).getTownDetails().getName(), results.get(2).getTownDetails().getName());
+    }
+
+    @Test
+    public void testTupleValuesInterned() {
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown());
+        query.select(town.getName());
+        query.select(person.getName());
+
+        List<Object[]> results = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(3, results.size());
+        assertSame(results.get(0)[0], results.get(1)[0]);
+        assertSame(results.get(0)[0], results.get(2)[0]);
+    }
+
+    @Test
+    public void testSingleValuesInterned() {
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown());
+        query.select(town.getName());
+
+        List<String> results = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(3, results.size());
+        assertSame(results.get(0), results.get(2));
+    }
+
+    @Test
+    public void testInternResultValuesCopied() {
+        assertTrue(query.copy().isInternResultValues());
+        query.reset();
+        assertFalse(query.isInternResultValues());
+    }
+
+    @Test
+    public void testInternerOnlyReplacesEqualValuesOfTheSameClass() {
+        ValueInterner interner = new ValueInterner(16);
+        String value = new String("a");
+        assertSame(value, interner.intern(value));
+        assertSame(value, interner.intern(new String("a")));
+        Date date = new Date(0);
+        Timestamp timestamp = new Timestamp(0);
+        assertSame(date, interner.intern(date));
+        assertSame(timestamp, interner.intern(timestamp));
+        Object object = new Object();
+        assertSame(object, interner.intern(object));
+    }
+}
@@ -15,17 +15,40 @@
  */
 package be.shad.tsqb.test;
 
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import org.junit.Test;
+
 import be.shad.tsqb.domain.Town;
 import be.shad.tsqb.domain.people.Person;
 import be.shad.tsqb.domain.people.Relation;
 import be.shad.tsqb.dto.LoadTestDto;
 import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.query.TypeSafeRootQuery;
 import be.shad.tsqb.query.TypeSafeSubQuery;
 
 public class LoadTest extends TypeSafeQueryTest {
+
+    /**
+     * Upper bound for the bytes allocated to build and render the load test query,
+     * relative to the bytes allocated for a minimal query measured in the same run.
+     * The absolute numbers depend on the jvm, the ratio was about 8.3 before the
+     * query model allocations were reduced and is about 5.6 after.
+     */
+    private static final double ALLOCATED_BYTES_PER_QUERY_RATIO = 7;
+
+    /**
+     * Upper bound for the bytes allocated to copy the load test query, relative to
+     * the bytes allocated to build and render it again in the same run.
+     * The ratio was about 0.8 before copies shared immutable state and is about 0.35 after.
+     */
+    private static final double ALLOCATED_BYTES_PER_COPY_RATIO = 0.5;
     
     public static final void main(String[] argv) {
         LoadTest loadTest = new LoadTest();
@@ -34,38 +57,128 @@ public class LoadTest extends TypeSafeQueryTest {
     }
 
     public void loadTest() {
-        Collection<String> names = new ArrayList<>();
-        for(int i=0; i < 500; i++) {
-            names.add("name" + i);
-        }
-
+        Collection<String> names = createNames();
         int n = 100000;
         long time = System.currentTimeMillis();
         HqlQuery last = null;
         for(int i=0; i < n; i++) {
-            query = createQuery();
-            Town town = query.from(Town.class);
-            Person inhabitant = query.join(town.getInhabitants());
-            Relation childRelation = query.join(inhabitant.getChildRelations());
-            
-            query.where(childRelation.getChild().getTown().getName()).eq(town.getName());
-            query.groupBy(town.getName());
-            
-            TypeSafeSubQuery<Long> subquery = query.subquery(long.class);
-            Person personCnt = subquery.from(Person.class);
-            subquery.where(personCnt.getAge()).gte(50).
-                       and(personCnt.getName()).in(names);
-            subquery.select(query.hqlFunction().count().select());
-            
-            LoadTestDto dto = query.select(LoadTestDto.class);
-            dto.setTownName(town.getName());
-            dto.setMaxAge(query.hqlFunction().max(childRelation.getChild().getAge()).select());
-            dto.setFiftyPlusCount(subquery.select());
-            
-            last = query.toHqlQuery();
+            last = buildLoadTestQuery(names);
         }
         time = (System.currentTimeMillis() - time);
         logger.debug(time / (double) n + "ms/query\n" + last.toFormattedString());
     }
+
+    /**
+     * Builds and renders the load test query repeatedly and checks the average
+     * number of bytes allocated by the current thread per query stays within budget
+     * compared to building and rendering a minimal query.
+     */
+    @Test
+    public void testAllocatedBytesPerQuery() {
+        long perMinimalQuery = allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                buildMinimalQuery();
+            }
+        });
+        final Collection<String> names = createNames();
+        long perQuery = allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                buildLoadTestQuery(names);
+            }
+        });
+        logger.debug(perQuery + " bytes/query, " + perMinimalQuery + " bytes/minimal query");
+        assertTrue(perQuery + " bytes allocated per query, " + perMinimalQuery + " per minimal query",
+                perQuery <= perMinimalQuery * ALLOCATED_BYTES_PER_QUERY_RATIO);
+    }
+
+    /**
+     * Copies the load test query repeatedly and checks the average
+     * number of bytes allocated by the current thread per copy stays within budget
+     * compared to building and rendering the query again.
+     */
+    @Test
+    public void testAllocatedBytesPerCopy() {
+        final Collection<String> names = createNames();
+        long perQuery = allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                buildLoadTestQuery(names);
+            }
+        });
+        final TypeSafeRootQuery original = query;
+        long perCopy = allocatedBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                original.copy();
+            }
+        });
+        logger.debug(perCopy + " bytes/copy, " + perQuery + " bytes/query");
+        assertTrue(perCopy + " bytes allocated per copy, " + perQuery + " per query",
+                perCopy <= perQuery * ALLOCATED_BYTES_PER_COPY_RATIO);
+    }
+
+    /**
+     * Warms up and then measures the average number of bytes allocated by a run,
+     * the test is skipped when the jvm can't measure allocations.
+     */
+    private long allocatedBytesPerRun(Runnable run) {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        int n = 2000;
+        for(int i=0; i < n; i++) {
+            run.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId);
+        for(int i=0; i < n; i++) {
+            run.run();
+        }
+        return (allocationBean.getThreadAllocatedBytes(threadId) - allocated) / n;
+    }
+
+    private Collection<String> createNames() {
+        Collection<String> names = new ArrayList<>();
+        for(int i=0; i < 500; i++) {
+            names.add("name" + i);
+        }
+        return names;
+    }
+
+    private HqlQuery buildMinimalQuery() {
+        query = createQuery();
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gte(50);
+        query.select(person.getName());
+        return query.toHqlQuery();
+    }
+
+    private HqlQuery buildLoadTestQuery(Collection<String> names) {
+        query = createQuery();
+        Town town = query.from(Town.class);
+        Person inhabitant = query.join(town.getInhabitants());
+        Relation childRelation = query.join(inhabitant.getChildRelations());
+        
+        query.where(childRelation.getChild().getTown().getName()).eq(town.getName());
+        query.groupBy(town.getName());
+        
+        TypeSafeSubQuery<Long> subquery = query.subquery(long.class);
+        Person personCnt = subquery.from(Person.class);
+        subquery.where(personCnt.getAge()).gte(50).
+                   and(personCnt.getName()).in(names);
+        subquery.select(query.hqlFunction().count().select());
+        
+        LoadTestDto dto = query.select(LoadTestDto.class);
+        dto.setTownName(town.getName());
+        dto.setMaxAge(query.hqlFunction().max(childRelation.getChild().getAge()).select());
+        dto.setFiftyPlusCount(subquery.select());
+        
+        return query.toHqlQuery();
+    }
     
 }
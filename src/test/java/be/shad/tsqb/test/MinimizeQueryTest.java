@@ -0,0 +1,148 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Relation;
+import be.shad.tsqb.dto.TownDetailsDto;
+import be.shad.tsqb.ordering.OrderByProjection;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeSubQuery;
+
+public class MinimizeQueryTest extends TypeSafeQueryTest {
+
+    @Before
+    public void enableMinimizeQuery() {
+        query.setMinimizeQuery(true);
+    }
+
+    @Test
+    public void testUnusedLeftJoinRemoved() {
+        Person person = query.from(Person.class);
+        query.join(person.getTown(), JoinType.Left);
+        query.select(person.getName());
+        validate("select hobj1.name from Person hobj1");
+    }
+
+    /**
+     * Without a select, the joined entities are part of the results, so the join is kept.
+     */
+    @Test
+    public void testUnusedLeftJoinKeptWithoutSelect() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestPerson(creator.createTestTown(), "Josh");
+
+        Person person = query.from(Person.class);
+        query.join(person.getTown(), JoinType.Left);
+        validate(" from Person hobj1 left join hobj1.town hobj2");
+
+        assertEquals(1, doQueryResult.size());
+        Object[] row = (Object[]) doQueryResult.get(0);
+        assertEquals(2, row.length);
+        assertTrue(row[0] instanceof Person);
+        assertTrue(row[1] instanceof Town);
+    }
+
+    @Test
+    public void testUsedLeftJoinKept() {
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown(), JoinType.Left);
+        query.where(town.getName()).eq("Rome");
+        query.select(person.getName());
+        validate("select hobj1.name from Person hobj1 left join hobj1.town hobj2 where hobj2.name = :np1", "Rome");
+    }
+
+    @Test
+    public void testNestedUnusedLeftJoinsRemoved() {
+        Person person = query.from(Person.class);
+        Person spouse = query.join(person.getSpouse(), JoinType.Left);
+        query.join(spouse.getTown());
+        query.select(person.getName());
+        validate("select hobj1.name from Person hobj1");
+    }
+
+    @Test
+    public void testParentOfUsedLeftJoinKept() {
+        Person person = query.from(Person.class);
+        Person spouse = query.join(person.getSpouse(), JoinType.Left);
+        Town town = query.join(spouse.getTown());
+        query.select(town.getName());
+        validate("select hobj3.name from Person hobj1 left join hobj1.spouse hobj2 left join hobj2.town hobj3");
+    }
+
+    @Test
+    public void testInnerAndCollectionJoinsKept() {
+        Person person = query.from(Person.class);
+        query.join(person.getTown(), JoinType.Inner);
+        query.join(person.getChildRelations(), JoinType.Left);
+        query.select(person.getName());
+        validate("select hobj1.name from Person hobj1 join hobj1.town hobj2 left join hobj1.childRelations hobj3");
+    }
+
+    @Test
+    public void testLeftJoinWithRestrictionsKept() {
+        Person person = query.from(Person.class);
+        Relation relation = query.join(person.getChildRelations(), JoinType.Left);
+        Person child = query.join(relation.getChild(), JoinType.Left);
+        query.joinWith(child).where(child.getAge()).gt(5);
+        query.select(person.getName());
+        validate("select hobj1.name from Person hobj1 left join hobj1.childRelations hobj2 "
+                + "left join hobj2.child hobj3 with hobj3.age > :np1", 5);
+    }
+
+    @Test
+    public void testDuplicateProjectionsSelectedOnce() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestTown();
+
+        Town town = query.from(Town.class);
+        TownDetailsDto dto = query.select(TownDetailsDto.class);
+        dto.setName(town.getName());
+        dto.setCustomString(town.getName());
+        dto.setId(town.getId());
+        validate("select hobj1.name as name, hobj1.id as id from Town hobj1");
+
+        assertEquals(1, doQueryResult.size());
+        TownDetailsDto result = (TownDetailsDto) doQueryResult.get(0);
+        assertEquals("TestTown", result.getName());
+        assertEquals("TestTown", result.getCustomString());
+    }
+
+    @Test
+    public void testOrderBySubQueryAfterDuplicateProjections() {
+        Town town = query.from(Town.class);
+        TypeSafeSubQuery<Long> inhabitants = query.subquery(Long.class);
+        Person person = inhabitants.from(Person.class);
+        inhabitants.where(person.getTown().getId()).eq(town.getId());
+        inhabitants.select(inhabitants.hqlFunction().count());
+
+        TownDetailsDto dto = query.select(TownDetailsDto.class);
+        dto.setName(town.getName());
+        dto.setCustomString(town.getName());
+        dto.setInhabitants(inhabitants.select());
+        query.orderBy().by(new OrderByProjection(query, "inhabitants", true));
+        validate("select hobj1.name as name, (select count(*) from Person hobj2 where hobj2.town.id = hobj1.id) "
+                + "as inhabitants from Town hobj1 order by 2 desc");
+    }
+
+}
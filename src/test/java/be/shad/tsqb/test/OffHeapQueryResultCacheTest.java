@@ -0,0 +1,188 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.TypeSafeQueryDao;
+import be.shad.tsqb.dao.TypeSafeQueryDaoImpl;
+import be.shad.tsqb.dao.cache.OffHeapQueryResultCache;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Person.Sex;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.dto.TownDto;
+import be.shad.tsqb.query.TypeSafeQueryInternal;
+import be.shad.tsqb.selection.collection.IdentityFieldProvider;
+
+public class OffHeapQueryResultCacheTest extends TypeSafeQueryTest {
+    private OffHeapQueryResultCache cache;
+    private TypeSafeQueryDao cachingDao;
+    private TestDataCreator creator;
+
+    @Before
+    public void createCachingDao() {
+        cache = new OffHeapQueryResultCache(1024 * 1024);
+        cachingDao = new TypeSafeQueryDaoImpl(getSessionFactory(),
+                ((TypeSafeQueryInternal) query).getHelper(), cache);
+        creator = new TestDataCreator(getSessionFactory());
+    }
+
+    private List<Object> key(String name) {
+        return OffHeapQueryResultCache.createKey(name, Collections.emptyList(), -1, -1);
+    }
+
+    @Test
+    public void testRowsDecodedAsEncoded() {
+        Timestamp timestamp = new Timestamp(1000L);
+        timestamp.setNanos(123456789);
+        Object[] row = new Object[] { "Josh", -5, Long.MAX_VALUE, 2.5d, true, 
+                new BigDecimal("-12.345"), new Date(0L), timestamp, Sex.Female, null };
+        assertTrue(cache.put(key("rows"), Collections.singletonList(row)));
+
+        List<Object[]> decoded = cache.get(key("rows"));
+        assertEquals(1, decoded.size());
+        assertArrayEquals(row, decoded.get(0));
+        assertNotSame(decoded.get(0), cache.get(key("rows")).get(0));
+        assertEquals(2, cache.getHitCount());
+        assertTrue(cache.getBytes() > 0);
+    }
+
+    /**
+     * The key keeps a copy of the params, changing a param afterwards doesn't change the cached key.
+     */
+    @Test
+    public void testParamChangedAfterCaching() {
+        Date date = new Date(1000L);
+        List<Object> params = asList((Object) date, asList(new Date(2000L)));
+        cache.put(OffHeapQueryResultCache.createKey("rows", params, -1, -1),
+                Collections.singletonList(new Object[] { "Josh" }));
+        date.setTime(5000L);
+
+        assertNull(cache.get(OffHeapQueryResultCache.createKey("rows", params, -1, -1)));
+        List<Object> originalParams = asList((Object) new Date(1000L), asList(new Date(2000L)));
+        assertEquals("Josh", cache.get(OffHeapQueryResultCache.createKey("rows", originalParams, -1, -1)).get(0)[0]);
+    }
+
+    @Test
+    public void testUnsupportedValuesNotCached() {
+        Object[] row = new Object[] { new Object() };
+        assertFalse(cache.put(key("rows"), Collections.singletonList(row)));
+        assertNull(cache.get(key("rows")));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        cache = new OffHeapQueryResultCache(10);
+        Object[] row = new Object[] { "abcdef" };
+        cache.put(key("first"), Collections.singletonList(row));
+        cache.put(key("second"), Collections.singletonList(row));
+        assertNull(cache.get(key("first")));
+        assertEquals("abcdef", cache.get(key("second")).get(0)[0]);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1, cache.getEntryCount());
+        assertTrue(cache.getBytes() <= 10);
+    }
+
+    @Test
+    public void testResultCachedQueryUsesCache() {
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(person.getName());
+        query.getHints().setResultCached(true);
+
+        List<PersonDto> results = cachingDao.doQueryResults(query);
+        assertEquals(1, results.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getEntryCount());
+
+        // the cached rows are returned, the new person isn't queried:
+        creator.createTestPerson(town, "Emily");
+        List<PersonDto> cachedResults = cachingDao.doQueryResults(query);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cachedResults.size());
+        assertEquals("Josh", cachedResults.get(0).getThePersonsName());
+        assertNotSame(results.get(0), cachedResults.get(0));
+
+        cache.clear();
+        assertEquals(2, cachingDao.doQueryResults(query).size());
+    }
+
+    @Test
+    public void testCollectionSubselectTransformedFromCache() {
+        creator.createTestTownWithPeople(new HashSet<>(asList("Gert", "Geraldine", "Josh")));
+
+        Town town = query.from(Town.class);
+        Person inhabitant = query.join(town.getInhabitants());
+        query.where(inhabitant.getName()).startsWith("G");
+        TownDto townDto = query.select(TownDto.class, new IdentityFieldProvider<TownDto>() {
+            @Override
+            protected Object getIdentifier(TownDto resultProxy) {
+                return resultProxy.getId();
+            }
+        });
+        townDto.setId(town.getId());
+        PersonDto personDto = query.select(townDto.getInhabitants(), PersonDto.class, null);
+        personDto.setThePersonsName(inhabitant.getName());
+        query.getHints().setResultCached(true);
+
+        cachingDao.doQueryResults(query);
+        List<TownDto> results = cachingDao.doQueryResults(query);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, results.size());
+        assertEquals(2, results.get(0).getInhabitants().size());
+    }
+
+    @Test
+    public void testQueryWithoutHintNotCached() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        cachingDao.doQueryResults(query);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testEntityResultsNotCached() {
+        creator.createTestPerson(creator.createTestTown(), "Josh");
+        query.from(Person.class);
+        query.getHints().setResultCached(true);
+        assertEquals(1, cachingDao.doQueryResults(query).size());
+        assertEquals(0, cache.getEntryCount());
+    }
+
+}
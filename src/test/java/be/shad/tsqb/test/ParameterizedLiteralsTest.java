@@ -0,0 +1,124 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.values.CaseTypeSafeValue;
+
+public class ParameterizedLiteralsTest extends TypeSafeQueryTest {
+
+    @Before
+    public void enableParameterizeLiterals() {
+        query.setParameterizeLiterals(true);
+    }
+
+    @Test
+    public void testArithmeticValueBound() {
+        Person person = query.from(Person.class);
+        query.select(query.getArithmeticsBuilder().value(person.getId()).add(10d));
+        validate("select (hobj1.id + cast(:np1 as double)) from Person hobj1", 10d);
+    }
+
+    @Test
+    public void testOtherNumberTypeBound() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).isZero();
+        validate(" from Person hobj1 where hobj1.age = cast(:np1 as double)", 0d);
+    }
+
+    @Test
+    public void testComparedToCastValueBound() {
+        Person person = query.from(Person.class);
+        query.whereString(query.hqlFunction().cast(person.getAge(), String.class)).startsWith("10");
+        validate(" from Person hobj1 where cast(hobj1.age as string) like cast(:np1 as string)", "10%");
+    }
+
+    @Test
+    public void testSelectedDirectValueBound() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestPerson(creator.createTestTown(), "Josh");
+
+        query.from(Person.class);
+        query.select(query.toValue("Constant"));
+        validate("select cast(:np1 as string) from Person hobj1", "Constant");
+        assertEquals(Collections.singletonList("Constant"), doQueryResult);
+    }
+
+    @Test
+    public void testCaseValuesBoundAndRebindable() {
+        Person person = query.from(Person.class);
+        CaseTypeSafeValue<Long> caseWhen = query.hqlFunction().caseWhen(Long.class);
+        caseWhen.is(10L).when(person.getName()).startsWith().named("prefix", "An");
+        caseWhen.is(20L).otherwise();
+        query.select(caseWhen);
+        validate("select (case when (hobj1.name like cast(:np2 as string)) then cast(:np1 as long) "
+                + "else cast(:np3 as long) end) from Person hobj1", "An%", 10L, 20L);
+
+        List<Object> params = query.freeze().getParams(Collections.<String, Object>singletonMap("prefix", "Jo"));
+        assertEquals("Jo%", ((NamedParameter) params.get(0)).getValue());
+    }
+
+    @Test
+    public void testCaseCollectionValuesInlined() {
+        Person person = query.from(Person.class);
+        CaseTypeSafeValue<Long> caseWhen = query.hqlFunction().caseWhen(Long.class);
+        caseWhen.is(10L).when(person.getName()).in(Arrays.asList("Josh", "Emma"));
+        caseWhen.is(20L).otherwise();
+        query.select(caseWhen);
+        validate("select (case when (hobj1.name in ('Josh', 'Emma')) then cast(:np1 as long) "
+                + "else cast(:np2 as long) end) from Person hobj1", 10L, 20L);
+    }
+
+    @Test
+    public void testHqlStableAcrossValues() {
+        Person person = query.from(Person.class);
+        query.select(query.getArithmeticsBuilder().value(person.getAge()).multiply(2));
+        String hql = query.toHqlQuery().getHql();
+
+        query.reset();
+        query.setParameterizeLiterals(true);
+        person = query.from(Person.class);
+        query.select(query.getArithmeticsBuilder().value(person.getAge()).multiply(3));
+        assertEquals(hql, query.toHqlQuery().getHql());
+    }
+
+    @Test
+    public void testParameterizeLiteralsCopied() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).isZero();
+        assertEquals(" from Person hobj1 where hobj1.age = cast(:np1 as double)",
+                query.copy().toHqlQuery().getHql());
+    }
+
+    @Test
+    public void testParameterizeLiteralsReset() {
+        query.reset();
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).isZero();
+        validate(" from Person hobj1 where hobj1.age = 0.0");
+    }
+
+}
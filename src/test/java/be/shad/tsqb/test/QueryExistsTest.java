@@ -0,0 +1,83 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.query.JoinType;
+
+public class QueryExistsTest extends TypeSafeQueryTest {
+
+    @Test
+    public void testExistsWithData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestPerson(creator.createTestTown(), "Josh");
+
+        Person person = query.from(Person.class);
+        query.where(person.getName()).eq("Josh");
+
+        assertTrue(getTypeSafeQueryDao().doQueryExists(query));
+    }
+
+    @Test
+    public void testNotExists() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestPerson(creator.createTestTown(), "Josh");
+
+        Person person = query.from(Person.class);
+        query.where(person.getName()).eq("Bob");
+
+        assertFalse(getTypeSafeQueryDao().doQueryExists(query));
+    }
+
+    @Test
+    public void testExistsWithFetchJoin() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestPerson(creator.createTestTown(), "Josh");
+
+        Town town = query.from(Town.class);
+        Person inhabitant = query.join(town.getInhabitants(), JoinType.LeftFetch);
+        query.where(inhabitant.getName()).eq("Josh");
+
+        assertTrue(getTypeSafeQueryDao().doQueryExists(query));
+        validate(" from Town hobj1 left join fetch hobj1.inhabitants hobj2 where hobj2.name = :np1", "Josh");
+    }
+
+    /**
+     * The projections, order bys and paging of the original query must remain untouched.
+     */
+    @Test
+    public void testExistsDoesNotChangeQuery() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(person.getName());
+        query.where(person.getAge()).gt(18);
+        query.orderBy().desc(person.getName());
+        query.setMaxResults(20);
+
+        assertFalse(getTypeSafeQueryDao().doQueryExists(query));
+        assertEquals(20, query.getMaxResults());
+        validate("select hobj1.name as thePersonsName from Person hobj1 where hobj1.age > :np1 order by hobj1.name desc", 18);
+    }
+
+}
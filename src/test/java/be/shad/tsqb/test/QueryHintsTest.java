@@ -0,0 +1,79 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.query.TypeSafeQueryHints;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+
+public class QueryHintsTest extends TypeSafeQueryTest {
+
+    @Test
+    public void testReadOnlyEntities() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestPerson(creator.createTestTown(), "Josh");
+        Session session = getSessionFactory().getCurrentSession();
+        session.flush();
+        session.clear();
+
+        query.from(Person.class);
+        query.getHints().setReadOnly(true);
+        List<Person> persons = getTypeSafeQueryDao().doQueryResults(query);
+
+        assertEquals(1, persons.size());
+        assertTrue(session.isReadOnly(persons.get(0)));
+    }
+
+    @Test
+    public void testAllHints() {
+        Person person = query.from(Person.class);
+        query.where(person.getName()).eq("Josh");
+        TypeSafeQueryHints hints = query.getHints();
+        hints.setFetchSize(100);
+        hints.setReadOnly(false);
+        hints.setTimeout(5);
+        hints.setFlushMode(FlushMode.MANUAL);
+        hints.setCacheable(true);
+        hints.setCacheRegion("persons");
+        hints.setComment("find persons by name");
+        validate(" from Person hobj1 where hobj1.name = :np1", "Josh");
+    }
+
+    @Test
+    public void testHintsCopied() {
+        query.from(Person.class);
+        query.getHints().setFetchSize(100);
+        query.getHints().setComment("all persons");
+
+        TypeSafeRootQuery copy = query.copy();
+        assertNotSame(query.getHints(), copy.getHints());
+        assertEquals(Integer.valueOf(100), copy.getHints().getFetchSize());
+        assertEquals("all persons", copy.getHints().getComment());
+        assertFalse(copy.getHints().isCacheable());
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.TypeSafeQueryDao;
+import be.shad.tsqb.dao.TypeSafeQueryFactory;
+import be.shad.tsqb.dao.TypeSafeQueryRegistry;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.exceptions.QueryWarmUpException;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+
+public class QueryRegistryTest extends TypeSafeQueryTest {
+    private TypeSafeQueryRegistry registry;
+    private AtomicInteger createdQueries;
+
+    @Before
+    public void createRegistry() {
+        registry = new TypeSafeQueryRegistry(getSessionFactory(), getTypeSafeQueryDao());
+        createdQueries = new AtomicInteger();
+    }
+
+    private class PersonsByTownQueryFactory implements TypeSafeQueryFactory {
+        private final boolean renderSql;
+
+        public PersonsByTownQueryFactory(boolean renderSql) {
+            this.renderSql = renderSql;
+        }
+
+        @Override
+        public TypeSafeRootQuery createQuery(TypeSafeQueryDao dao) {
+            createdQueries.incrementAndGet();
+            TypeSafeRootQuery query = dao.createQuery();
+            Person person = query.from(Person.class);
+            Town town = query.join(person.getTown());
+            query.where(town.getName()).eq("Rome");
+
+            PersonDto dto = query.select(PersonDto.class);
+            dto.setId(person.getId());
+            dto.setThePersonsName(person.getName());
+            query.setRenderSql(renderSql);
+            return query;
+        }
+    }
+
+    @Test
+    public void testQueriesWarmedUp() {
+        registry.register("personsByTown", new PersonsByTownQueryFactory(false));
+        registry.register("personsByTownSql", new PersonsByTownQueryFactory(true));
+        registry.registerRecordedHql(asList("select hobj1.name from Town hobj1 where hobj1.id = :np1"));
+        registry.warmUp(2);
+        assertEquals(2, createdQueries.get());
+    }
+
+    @Test
+    public void testFailingFactoryReported() {
+        registry.register("failing", new TypeSafeQueryFactory() {
+            @Override
+            public TypeSafeRootQuery createQuery(TypeSafeQueryDao dao) {
+                TypeSafeRootQuery query = dao.createQuery();
+                Person person = query.from(Person.class);
+                query.where(person.getName()).eq((String) null);
+                return query;
+            }
+        });
+        try {
+            registry.warmUp(2);
+        } catch (QueryWarmUpException e) {
+            assertTrue(e.getMessage().contains("[failing]"));
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            return;
+        }
+        throw new AssertionError("Expected the warm up to fail.");
+    }
+
+    @Test(expected=QueryWarmUpException.class)
+    public void testBrokenRecordedHqlFails() {
+        registry.register("personsByTown", new PersonsByTownQueryFactory(false));
+        registry.registerRecordedHql(asList("select hobj1.unknownProperty from Town hobj1"));
+        registry.warmUp(1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDuplicateNameRejected() {
+        registry.register("personsByTown", new PersonsByTownQueryFactory(false));
+        registry.register("personsByTown", new PersonsByTownQueryFactory(true));
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static be.shad.tsqb.values.HqlQueryValueImpl.hql;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import be.shad.tsqb.dao.TypeSafeRootQueryPool;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.dto.PersonView;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+
+public class QueryResetTest extends TypeSafeQueryTest {
+
+    @Test
+    public void testResetQueryBuildsFromScratch() {
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown(), JoinType.Left);
+        query.where(town.getName()).eq("Rome");
+        query.groupBy(person.getName());
+        query.orderBy().desc(person.getName());
+        query.select(person.getName());
+        query.setMaxResults(10);
+        query.setMinimizeQuery(true);
+        query.getHints().setCacheable(true);
+
+        query.reset();
+        assertEquals(-1, query.getMaxResults());
+        assertFalse(query.isMinimizeQuery());
+        assertFalse(query.getHints().isCacheable());
+
+        Person other = query.from(Person.class);
+        query.where(other.getAge()).gt(20);
+        validate(" from Person hobj1 where hobj1.age > :np1", 20);
+    }
+
+    @Test
+    public void testProxiesReusedAfterReset() {
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown());
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(town.getName());
+        query.toHqlQuery();
+
+        query.reset();
+        Person resetPerson = query.from(Person.class);
+        Town resetTown = query.join(resetPerson.getTown());
+        PersonDto resetDto = query.select(PersonDto.class);
+        assertSame(person, resetPerson);
+        assertSame(town, resetTown);
+        assertSame(dto, resetDto);
+
+        resetDto.setPersonAge(resetPerson.getAge());
+        validate("select hobj1.age as personAge from Person hobj1 join hobj1.town hobj2");
+    }
+
+    @Test
+    public void testInterfaceProxiesReusedAfterReset() {
+        query.from(Person.class);
+        PersonView view = query.select(PersonView.class);
+        for(int i=0; i < 5; i++) {
+            query.reset();
+            query.from(Person.class);
+            assertSame(view, query.select(PersonView.class));
+        }
+    }
+
+    @Test
+    public void testSubqueryProxiesReusedAfterReset() {
+        Person person = query.from(Person.class);
+        Person subqueryPerson = query.subquery(Long.class).from(Person.class);
+        query.reset();
+
+        Person resetPerson = query.from(Person.class);
+        Person resetSubqueryPerson = query.subquery(Long.class).from(Person.class);
+        assertNotSame(resetPerson, resetSubqueryPerson);
+        assertSame(subqueryPerson, resetPerson);
+        assertSame(person, resetSubqueryPerson);
+    }
+
+    @Test
+    public void testCopyDoesNotShareProxies() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(20);
+        TypeSafeRootQuery copy = query.copy();
+        query.reset();
+
+        Person resetPerson = query.from(Person.class);
+        query.where(resetPerson.getName()).eq("Rome");
+        validate(copy, hql(" from Person hobj1 where hobj1.age > :np1", 20));
+        validate(" from Person hobj1 where hobj1.name = :np1", "Rome");
+    }
+
+    @Test
+    public void testPooledQueriesReused() {
+        TypeSafeRootQueryPool pool = new TypeSafeRootQueryPool(getTypeSafeQueryDao(), 1);
+        TypeSafeRootQuery first = pool.borrow();
+        TypeSafeRootQuery second = pool.borrow();
+        assertNotSame(first, second);
+
+        Person person = first.from(Person.class);
+        first.select(person.getName());
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.getIdleCount());
+
+        TypeSafeRootQuery reused = pool.borrow();
+        assertSame(first, reused);
+        reused.from(Town.class);
+        validate(reused, hql(" from Town hobj1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPoolSizeMustBePositive() {
+        new TypeSafeRootQueryPool(getTypeSafeQueryDao(), 0);
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static be.shad.tsqb.dao.result.QueryResultCollectors.counting;
+import static be.shad.tsqb.dao.result.QueryResultCollectors.groupingBy;
+import static be.shad.tsqb.dao.result.QueryResultCollectors.toLongMap;
+import static be.shad.tsqb.dao.result.QueryResultCollectors.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import be.shad.tsqb.dao.result.LongResultMap;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.HasId;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.dto.TownDto;
+import be.shad.tsqb.selection.collection.IdentityFieldProvider;
+
+public class QueryResultCollectorTest extends TypeSafeQueryTest {
+    private Town rome;
+    private Town paris;
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        rome = creator.createTestTownWithPeople(new HashSet<>(Arrays.asList("Josh", "Albert", "Jessica")));
+        rome.setName("Rome");
+        paris = creator.createTestTownWithPeople(new HashSet<>(Arrays.asList("Pierre")));
+        paris.setName("Paris");
+        getSessionFactory().getCurrentSession().flush();
+    }
+
+    private PersonDto selectPeople() {
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown());
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        dto.setThePersonsName(person.getName());
+        dto.getTownDetails().setName(town.getName());
+        return dto;
+    }
+
+    @Test
+    public void testToMap() {
+        PersonDto dto = selectPeople();
+        Map<Long, PersonDto> people = getTypeSafeQueryDao().doQuery(query, toMap(query, dto, dto.getId()));
+        assertEquals(4, people.size());
+        for(Map.Entry<Long, PersonDto> entry: people.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue().getId());
+        }
+    }
+
+    @Test
+    public void testGroupingByNestedProperty() {
+        PersonDto dto = selectPeople();
+        Map<String, List<PersonDto>> people = getTypeSafeQueryDao().doQuery(query,
+                groupingBy(query, dto, dto.getTownDetails().getName()));
+        assertEquals(2, people.size());
+        assertEquals(3, people.get("Rome").size());
+        assertEquals("Pierre", people.get("Paris").get(0).getThePersonsName());
+    }
+
+    @Test
+    public void testToLongMap() {
+        PersonDto dto = selectPeople();
+        LongResultMap<PersonDto> people = getTypeSafeQueryDao().doQuery(query, toLongMap(query, dto, dto.getId()));
+        assertEquals(4, people.size());
+        for(long id: people.keys()) {
+            assertEquals(Long.valueOf(id), people.get(id).getId());
+        }
+    }
+
+    @Test
+    public void testCounting() {
+        PersonDto dto = selectPeople();
+        Map<String, Long> counts = getTypeSafeQueryDao().doQuery(query,
+                counting(query, dto, dto.getTownDetails().getName()));
+        assertEquals(Long.valueOf(3L), counts.get("Rome"));
+        assertEquals(Long.valueOf(1L), counts.get("Paris"));
+    }
+
+    @Test
+    public void testMergedResultsCollectedOnce() {
+        Town town = query.from(Town.class);
+        Person inhabitant = query.join(town.getInhabitants());
+        TownDto townDto = query.select(TownDto.class, new IdentityFieldProvider<HasId>() {
+            @Override
+            protected Object getIdentifier(HasId resultProxy) {
+                return resultProxy.getId();
+            }
+        });
+        townDto.setId(town.getId());
+        query.select(townDto.getInhabitants(), PersonDto.class, null).setThePersonsName(inhabitant.getName());
+
+        Map<Long, TownDto> towns = getTypeSafeQueryDao().doQuery(query, toMap(query, townDto, townDto.getId()));
+        assertEquals(2, towns.size());
+        assertEquals(3, towns.get(rome.getId()).getInhabitants().size());
+        assertEquals(1, towns.get(paris.getId()).getInhabitants().size());
+    }
+
+    @Test
+    public void testUnsatisfiableQueryCollectsNothing() {
+        PersonDto dto = selectPeople();
+        query.where(query.toValue(1L)).eq(2L);
+        assertTrue(getTypeSafeQueryDao().doQuery(query, toMap(query, dto, dto.getId())).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyMustBeSelected() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(person.getName());
+        getTypeSafeQueryDao().doQuery(query, toMap(query, dto, dto.getId()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyMustBeSelectionGetter() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        toMap(query, dto, person.getId());
+    }
+}
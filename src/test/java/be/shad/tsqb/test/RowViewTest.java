@@ -0,0 +1,184 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Person.Sex;
+import be.shad.tsqb.dto.PersonView;
+import be.shad.tsqb.dto.TownView;
+import be.shad.tsqb.selection.SelectionValueTransformer;
+import be.shad.tsqb.selection.collection.ResultIdentifierBinder;
+import be.shad.tsqb.selection.collection.ResultIdentifierBinding;
+
+public class RowViewTest extends TypeSafeQueryTest {
+
+    private Person createPerson() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        Person person = creator.createTestPerson(town, "Josh");
+        person.setAge(31);
+        person.setSex(Sex.Male);
+        person.setMarried(true);
+        getSessionFactory().getCurrentSession().flush();
+        return person;
+    }
+
+    @Test
+    public void testSelectIntoView() {
+        Person created = createPerson();
+        Person person = query.from(Person.class);
+        PersonView view = query.select(PersonView.class);
+        view.setId(person.getId());
+        view.setName(person.getName());
+        view.setAge(person.getAge());
+        view.setSex(person.getSex());
+        view.setMarried(person.isMarried());
+        validate("select hobj1.id as id, hobj1.name as name, hobj1.age as age, "
+                + "hobj1.sex as sex, hobj1.married as married from Person hobj1");
+
+        PersonView result = (PersonView) doQueryResult.get(0);
+        assertEquals(created.getId(), result.getId());
+        assertEquals("Josh", result.getName());
+        assertEquals(31, result.getAge());
+        assertEquals(Sex.Male, result.getSex());
+        assertEquals(true, result.isMarried());
+        assertNull(result.getTown());
+    }
+
+    @Test
+    public void testNestedView() {
+        Person created = createPerson();
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown());
+        PersonView view = query.select(PersonView.class);
+        view.setName(person.getName());
+        view.getTown().setId(town.getId());
+        view.getTown().setName(town.getName());
+        validate("select hobj1.name as name, hobj2.id as town_id, hobj2.name as town_name "
+                + "from Person hobj1 join hobj1.town hobj2");
+
+        PersonView result = (PersonView) doQueryResult.get(0);
+        TownView townView = result.getTown();
+        assertEquals(created.getTown().getId(), townView.getId());
+        assertEquals("TestTown", townView.getName());
+        assertEquals(0, result.getAge());
+        assertNull(result.getId());
+        assertEquals("PersonView[name=Josh, town=TownView[id=" + townView.getId() + ", name=TestTown]]",
+                result.toString());
+    }
+
+    @Test
+    public void testRedeclaredObjectMethodsNotReadOnly() {
+        createPerson();
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown());
+        PersonView view = query.select(PersonView.class);
+        view.getTown().setName(town.getName());
+
+        PersonView result = getTypeSafeQueryDao().doQueryFirstResult(query);
+        TownView townView = result.getTown();
+        assertEquals("TownView[name=TestTown]", townView.toString());
+        Set<TownView> townViews = new HashSet<>();
+        assertTrue(townViews.add(townView));
+        assertTrue(townViews.contains(townView));
+    }
+
+    @Test
+    public void testTransformedValueInView() {
+        createPerson();
+        Person person = query.from(Person.class);
+        PersonView view = query.select(PersonView.class);
+        view.setName(query.select(String.class, person.getName(),
+                new SelectionValueTransformer<String, String>() {
+            @Override
+            public String convert(String a) {
+                return "Mr. " + a;
+            }
+        }));
+        view.setAge(person.getAge());
+
+        List<PersonView> results = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals("Mr. Josh", results.get(0).getName());
+        assertEquals(31, results.get(0).getAge());
+    }
+
+    @Test
+    public void testSameValueSelectedTwiceInMinimizedQuery() {
+        createPerson();
+        query.setMinimizeQuery(true);
+        Person person = query.from(Person.class);
+        PersonView view = query.select(PersonView.class);
+        view.setName(person.getName());
+        view.getTown().setName(person.getName());
+        validate("select hobj1.name as name from Person hobj1");
+
+        PersonView result = (PersonView) doQueryResult.get(0);
+        assertEquals("Josh", result.getName());
+        assertEquals("Josh", result.getTown().getName());
+    }
+
+    @Test
+    public void testViewClassReused() {
+        createPerson();
+        Person person = query.from(Person.class);
+        query.select(PersonView.class).setName(person.getName());
+        Object first = getTypeSafeQueryDao().doQueryFirstResult(query);
+
+        query.reset();
+        person = query.from(Person.class);
+        query.select(PersonView.class).setAge(person.getAge());
+        PersonView second = getTypeSafeQueryDao().doQueryFirstResult(query);
+        assertSame(first.getClass(), second.getClass());
+        assertEquals(31, second.getAge());
+        assertNull(second.getName());
+        assertFalse(second.isMarried());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewIsReadOnly() {
+        createPerson();
+        Person person = query.from(Person.class);
+        query.select(PersonView.class).setName(person.getName());
+        PersonView result = getTypeSafeQueryDao().doQueryFirstResult(query);
+        result.setName("Albert");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIdentityMergedViewsNotSupported() {
+        Person person = query.from(Person.class);
+        PersonView view = query.select(PersonView.class, new ResultIdentifierBinder<PersonView>() {
+            @Override
+            public void bind(ResultIdentifierBinding binding, PersonView dto) {
+                binding.bind(dto.getId());
+            }
+        });
+        view.setId(person.getId());
+        query.toHqlQuery();
+    }
+}
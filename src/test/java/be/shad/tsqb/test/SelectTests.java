@@ -15,6 +15,8 @@
  */
 package be.shad.tsqb.test;
 
+import static org.junit.Assert.assertEquals;
+
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -484,4 +486,32 @@ public class SelectTests extends TypeSafeQueryTest {
 
         validate("select hobj1.age as personAge, hobj1.name as thePersonsName from Person hobj1");
     }
+
+    /**
+     * Queries selecting into the same dto properties share the selection trees,
+     * each query still uses its own value transformers.
+     */
+    @Test
+    public void selectSameShapeWithDifferentTransformers() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        creator.createTestPerson(creator.createTestTown(), "Josh");
+
+        assertEquals("A:Josh", selectPrefixedName("A:"));
+        assertEquals("B:Josh", selectPrefixedName("B:"));
+    }
+
+    private String selectPrefixedName(final String prefix) {
+        query.reset();
+        Person person = query.from(Person.class);
+        PersonDto personDto = query.select(PersonDto.class);
+        personDto.setThePersonsName(query.select(String.class, person.getName(),
+                new SelectionValueTransformer<String, String>() {
+            @Override
+            public String convert(String a) {
+                return prefix + a;
+            }
+        }));
+        PersonDto result = getTypeSafeQueryDao().doQueryFirstResult(query);
+        return result.getThePersonsName();
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.shad.tsqb.dao.result.QueryResult;
+import be.shad.tsqb.dao.result.SpilledQueryResult;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Person.Sex;
+import be.shad.tsqb.dto.PersonDto;
+
+public class SpilledQueryResultTest extends TypeSafeQueryTest {
+    private static final int PEOPLE = 200;
+
+    private void createPeople() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        for(int i=0; i < PEOPLE; i++) {
+            Person person = creator.createTestPerson(town, "Person" + i);
+            person.setAge(i);
+            person.setSex(i % 2 == 0 ? Sex.Male: Sex.Female);
+        }
+        getSessionFactory().getCurrentSession().flush();
+    }
+
+    private PersonDto selectPeople() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        dto.setThePersonsName(person.getName());
+        dto.setPersonAge(person.getAge());
+        query.orderBy().asc(person.getAge());
+        return dto;
+    }
+
+    @Test
+    public void testResultsSpilledPastRowBudget() {
+        createPeople();
+        selectPeople();
+        query.getHints().setMaxRowsInMemory(10);
+
+        QueryResult<PersonDto> result = getTypeSafeQueryDao().doQuery(query);
+        assertTrue(result instanceof SpilledQueryResult);
+        try {
+            List<PersonDto> people = result.getResults();
+            assertEquals(PEOPLE, people.size());
+            assertEquals("Person0", result.getFirstResult().getThePersonsName());
+            assertEquals(137, people.get(137).getPersonAge());
+            assertEquals("Person64", people.get(64).getThePersonsName());
+            assertEquals(PEOPLE - 1, people.get(PEOPLE - 1).getPersonAge());
+
+            int age = 0;
+            for(PersonDto dto: people) {
+                assertEquals(age, dto.getPersonAge());
+                assertEquals("Person" + age++, dto.getThePersonsName());
+            }
+            assertEquals(PEOPLE, age);
+        } finally {
+            ((SpilledQueryResult<PersonDto>) result).close();
+        }
+        try {
+            result.getFirstResult();
+            fail("Closed results can't be read.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The spill file is deleted once it is mapped, even when the result is never closed.
+     */
+    @Test
+    public void testSpillFileDeletedWhenMapped() {
+        createPeople();
+        selectPeople();
+        query.getHints().setMaxRowsInMemory(10);
+
+        int spillFiles = countSpillFiles();
+        QueryResult<PersonDto> result = getTypeSafeQueryDao().doQuery(query);
+        assertTrue(result instanceof SpilledQueryResult);
+        assertEquals(spillFiles, countSpillFiles());
+        assertEquals(PEOPLE - 1, result.getResults().get(PEOPLE - 1).getPersonAge());
+    }
+
+    private int countSpillFiles() {
+        File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        return tmpDir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith("tsqb-results") && name.endsWith(".rows");
+            }
+        }).length;
+    }
+
+    @Test
+    public void testResultsSpilledPastByteBudget() {
+        createPeople();
+        Person person = query.from(Person.class);
+        query.select(person.getSex());
+        query.select(person.getName());
+        query.orderBy().asc(person.getAge());
+        query.getHints().setMaxBytesInMemory(256L);
+
+        QueryResult<Object[]> result = getTypeSafeQueryDao().doQuery(query);
+        assertTrue(result instanceof SpilledQueryResult);
+        List<Object[]> rows = new ArrayList<>(result.getResults());
+        ((SpilledQueryResult<Object[]>) result).close();
+        assertEquals(PEOPLE, rows.size());
+        assertEquals(Sex.Female, rows.get(3)[0]);
+        assertEquals("Person3", rows.get(3)[1]);
+    }
+
+    @Test
+    public void testResultsWithinBudgetNotSpilled() {
+        createPeople();
+        selectPeople();
+        query.getHints().setMaxRowsInMemory(PEOPLE);
+
+        QueryResult<PersonDto> result = getTypeSafeQueryDao().doQuery(query);
+        assertFalse(result instanceof SpilledQueryResult);
+        assertEquals(PEOPLE, result.getResults().size());
+        assertEquals("Person199", result.getResults().get(PEOPLE - 1).getThePersonsName());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testEntitiesNotSpilled() {
+        createPeople();
+        query.from(Person.class);
+        query.getHints().setMaxRowsInMemory(10);
+        getTypeSafeQueryDao().doQuery(query);
+    }
+
+    @Test
+    public void testSpillHintsCopied() {
+        query.getHints().setMaxRowsInMemory(10);
+        query.getHints().setMaxBytesInMemory(1024L);
+        assertEquals(Integer.valueOf(10), query.copy().getHints().getMaxRowsInMemory());
+        assertEquals(Long.valueOf(1024L), query.copy().getHints().getMaxBytesInMemory());
+    }
+}
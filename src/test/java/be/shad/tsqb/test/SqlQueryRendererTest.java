@@ -0,0 +1,150 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.House;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Person.Sex;
+import be.shad.tsqb.dto.TownDetailsDto;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.sql.SqlQuery;
+import be.shad.tsqb.sql.SqlQueryRenderer;
+
+public class SqlQueryRendererTest extends TypeSafeQueryTest {
+    private SqlQueryRenderer renderer;
+
+    @Before
+    public void createTestData() {
+        renderer = new SqlQueryRenderer(getSessionFactory());
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh").setSex(Sex.Male);
+        creator.createTestPerson(town, "Emily").setSex(Sex.Female);
+        getSessionFactory().getCurrentSession().flush();
+        query.setRenderSql(true);
+    }
+
+    private void validateSql(String expectedSql) {
+        SqlQuery sqlQuery = renderer.toSqlQuery(query);
+        assertEquals(expectedSql, sqlQuery.getSql());
+    }
+
+    @Test
+    public void testSelectEntity() {
+        Person person = query.from(Person.class);
+        query.where(person.getName()).eq("Josh");
+        validateSql("select {hobj1.*} from Person hobj1 where hobj1.name = :np1");
+
+        List<Person> results = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(1, results.size());
+        assertEquals("Josh", results.get(0).getName());
+    }
+
+    @Test
+    public void testEnumParamBoundWithPropertyType() {
+        Person person = query.from(Person.class);
+        query.where(person.getSex()).eq(Sex.Female);
+        query.select(person.getName());
+        validateSql("select hobj1.name as col_0_ from Person hobj1 where hobj1.sex = :np1");
+
+        List<String> results = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(asList("Emily"), results);
+    }
+
+    @Test
+    public void testSelectDtoWithCollectionJoin() {
+        Town town = query.from(Town.class);
+        Person inhabitant = query.join(town.getInhabitants());
+        query.where(inhabitant.getName()).eq("Emily");
+
+        TownDetailsDto dto = query.select(TownDetailsDto.class);
+        dto.setName(town.getName());
+        dto.setCustomString(inhabitant.getName());
+        validateSql("select hobj1.name as col_0_, hobj2.name as col_1_ from Town hobj1 "
+                + "inner join Person hobj2 on hobj1.id=hobj2.TownId where hobj2.name = :np1");
+
+        List<TownDetailsDto> results = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(1, results.size());
+        assertEquals("TestTown", results.get(0).getName());
+        assertEquals("Emily", results.get(0).getCustomString());
+    }
+
+    @Test
+    public void testSelectMappedTypeWithLeftJoinRestrictions() {
+        Person person = query.from(Person.class);
+        Town town = query.join(person.getTown(), JoinType.Left);
+        query.joinWith(town).where(town.getName()).eq("TestTown");
+        query.where(person.getName()).eq("Emily");
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> entities = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(1, entities.size());
+        assertEquals("Emily", ((Person) entities.get(0)[0]).getName());
+        assertEquals("TestTown", ((Town) entities.get(0)[1]).getName());
+
+        query.select(person.getName());
+        query.select(person.getSex());
+        validateSql("select hobj1.name as col_0_, hobj1.sex as col_1_ from Person hobj1 "
+                + "left outer join Town hobj2 on hobj1.TownId=hobj2.id and (hobj2.name = :np1) "
+                + "where hobj1.name = :np2");
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> values = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(1, values.size());
+        assertEquals(Sex.Female, values.get(0)[1]);
+    }
+
+    @Test
+    public void testSelectIdentifierOfNotJoinedEntity() {
+        Person person = query.from(Person.class);
+        query.select(person.getTown().getId());
+        query.orderBy().desc(person.getName());
+        validateSql("select hobj1.TownId as col_0_ from Person hobj1 order by hobj1.name desc");
+
+        List<Long> results = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(2, results.size());
+        assertEquals(Long.valueOf(1L), results.get(0));
+    }
+
+    @Test
+    public void testCountIsReadAsLong() {
+        Person person = query.from(Person.class);
+        query.select(query.hqlFunction().count());
+        query.where(person.getName()).in(asList("Josh", "Emily"));
+
+        List<Long> results = getTypeSafeQueryDao().doQueryResults(query);
+        assertEquals(Long.valueOf(2L), results.get(0));
+    }
+
+    /**
+     * House uses joined inheritance.
+     */
+    @Test(expected=UnsupportedOperationException.class)
+    public void testInheritanceNotSupported() {
+        query.from(House.class);
+        renderer.toSqlQuery(query);
+    }
+
+}
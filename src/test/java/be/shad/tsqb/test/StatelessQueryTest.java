@@ -0,0 +1,126 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.result.QueryResultHandler;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+
+public class StatelessQueryTest extends TypeSafeQueryTest {
+    private StatelessSession statelessSession;
+
+    /**
+     * Creates test data and opens a stateless session on the connection
+     * of the current session, so the uncommitted test data can be read.
+     */
+    @Before
+    public void createTestDataAndOpenStatelessSession() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+        creator.createTestPerson(town, "Emily");
+        Session session = getSessionFactory().getCurrentSession();
+        session.flush();
+        statelessSession = getSessionFactory().openStatelessSession(
+                ((SessionImplementor) session).connection());
+    }
+
+    @After
+    public void closeStatelessSession() {
+        statelessSession.close();
+    }
+
+    @Test
+    public void testScrollEntities() {
+        Person person = query.from(Person.class);
+        query.orderBy().asc(person.getName());
+
+        final List<Person> persons = new ArrayList<>();
+        getTypeSafeQueryDao().doQueryStateless(statelessSession, query, new QueryResultHandler<Person>() {
+            @Override
+            public void handle(Person result) {
+                persons.add(result);
+            }
+        });
+        assertEquals(2, persons.size());
+        assertEquals("Emily", persons.get(0).getName());
+        assertEquals("Josh", persons.get(1).getName());
+        assertFalse(getSessionFactory().getCurrentSession().contains(persons.get(0)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testDistinctResultsNotSupported() {
+        query.from(Person.class);
+        query.setDistinctResults(true);
+        getTypeSafeQueryDao().doQueryStateless(statelessSession, query, new QueryResultHandler<Person>() {
+            @Override
+            public void handle(Person result) {
+            }
+        });
+    }
+
+    @Test
+    public void testScrollDtos() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        dto.setThePersonsName(person.getName());
+        query.orderBy().desc(person.getName());
+
+        final List<PersonDto> dtos = new ArrayList<>();
+        getTypeSafeQueryDao().doQueryStateless(statelessSession, query, new QueryResultHandler<PersonDto>() {
+            @Override
+            public void handle(PersonDto result) {
+                dtos.add(result);
+            }
+        });
+        assertEquals(2, dtos.size());
+        assertEquals("Josh", dtos.get(0).getThePersonsName());
+        assertEquals("Emily", dtos.get(1).getThePersonsName());
+    }
+
+    @Test
+    public void testScrollValues() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.where(person.getName()).eq("Josh");
+
+        final List<String> names = new ArrayList<>();
+        getTypeSafeQueryDao().doQueryStateless(statelessSession, query, new QueryResultHandler<String>() {
+            @Override
+            public void handle(String result) {
+                names.add(result);
+            }
+        });
+        assertEquals(1, names.size());
+        assertEquals("Josh", names.get(0));
+    }
+
+}
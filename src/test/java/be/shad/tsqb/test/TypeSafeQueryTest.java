@@ -85,6 +85,10 @@ public class TypeSafeQueryTest {
         return sessionFactory;
     }
 
+    public TypeSafeQueryDao getTypeSafeQueryDao() {
+        return typeSafeQueryDao;
+    }
+
     protected TypeSafeRootQuery createQuery() {
         return typeSafeQueryDao.createQuery();
     }
@@ -0,0 +1,152 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static be.shad.tsqb.restrictions.RestrictionsGroupImpl.group;
+import static be.shad.tsqb.restrictions.predicate.RestrictionPredicate.EMPTY_COLLECTION_MATCHES_NOTHING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.TypeSafeQueryDao;
+import be.shad.tsqb.dao.TypeSafeQueryDaoImpl;
+import be.shad.tsqb.domain.Building;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.FunctionsDto;
+import be.shad.tsqb.query.TypeSafeQueryInternal;
+import be.shad.tsqb.restrictions.RestrictionsGroup;
+import be.shad.tsqb.restrictions.RestrictionsGroupImpl;
+import be.shad.tsqb.restrictions.RestrictionsGroupOptimizer;
+
+public class UnsatisfiableQueryTest extends TypeSafeQueryTest {
+    /**
+     * Dao without session factory, fails when a query is executed.
+     */
+    private TypeSafeQueryDao noSessionDao;
+
+    @Before
+    public void createNoSessionDao() {
+        noSessionDao = new TypeSafeQueryDaoImpl(null, ((TypeSafeQueryInternal) query).getHelper());
+    }
+
+    @Test
+    public void testEmptyInMatchesNothing() {
+        Person person = query.from(Person.class);
+        query.where(person.getName()).in(Collections.<String>emptyList(), EMPTY_COLLECTION_MATCHES_NOTHING);
+        assertTrue(noSessionDao.doQuery(query).isEmpty());
+        validate(" from Person hobj1 where 1 = 0");
+    }
+
+    @Test
+    public void testEmptyNotInMatchesEverything() {
+        Person person = query.from(Person.class);
+        query.where(person.getName()).notIn(Collections.<String>emptyList(), EMPTY_COLLECTION_MATCHES_NOTHING);
+        validate(" from Person hobj1 where 1 = 1");
+    }
+
+    @Test
+    public void testDifferentDirectValuesEqual() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.where(query.toValue(5L)).eq(6L);
+        assertTrue(noSessionDao.doQuery(query).isEmpty());
+    }
+
+    @Test
+    public void testContradictingBounds() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(50).and(person.getAge()).lt(20);
+        assertTrue(noSessionDao.doQuery(query).isEmpty());
+    }
+
+    @Test
+    public void testBoundsInDifferentOrTermsQueried() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(50).or(person.getAge()).lt(20);
+        validate(" from Person hobj1 where hobj1.age > :np1 or hobj1.age < :np2", 50, 20);
+    }
+
+    @Test
+    public void testOrWithSatisfiableRestrictionQueried() {
+        Person person = query.from(Person.class);
+        query.where(person.getName()).in(Collections.<String>emptyList(), EMPTY_COLLECTION_MATCHES_NOTHING).
+                or(person.getAge()).gt(20);
+        validate(" from Person hobj1 where 1 = 0 or hobj1.age > :np1", 20);
+    }
+
+    @Test
+    public void testUnsatisfiableNestedOrGroup() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(20).and(group(query).
+                and(person.getAge()).eq(10).
+                or(person.getName()).in(Collections.<String>emptyList(), EMPTY_COLLECTION_MATCHES_NOTHING));
+        assertTrue(noSessionDao.doQuery(query).isEmpty());
+    }
+
+    @Test
+    public void testNullAndBoundInNestedGroupContradict() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).isNull().and(group(query).
+                and(person.getAge()).gt(20).and(person.getName()).eq("Josh"));
+        assertTrue(noSessionDao.doQuery(query).isEmpty());
+    }
+
+    /**
+     * Dates may be truncated by the database, the bounds are left to the database.
+     */
+    @Test
+    public void testDateBoundsLeftToDatabase() {
+        Building building = query.from(Building.class);
+        Date date = new Date();
+        query.where(building.getConstructionDate()).after(date).
+                and(building.getConstructionDate()).before(new Date(date.getTime() - 1000));
+        assertFalse(isUnsatisfiable());
+    }
+
+    /**
+     * The database collation decides whether strings are equal.
+     */
+    @Test
+    public void testDifferentStringsLeftToDatabase() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.where(query.toValue("Josh")).eq("JOSH");
+        assertFalse(isUnsatisfiable());
+    }
+
+    private boolean isUnsatisfiable() {
+        RestrictionsGroup restrictions = ((TypeSafeQueryInternal) query).getRestrictions();
+        return new RestrictionsGroupOptimizer().isUnsatisfiable((RestrictionsGroupImpl) restrictions);
+    }
+
+    @Test
+    public void testCountIsZero() {
+        Person person = query.from(Person.class);
+        FunctionsDto dto = query.select(FunctionsDto.class);
+        dto.setTestCount(query.hqlFunction().count().select());
+        query.where(person.getAge()).gt(50).and(person.getAge()).lt(20);
+
+        FunctionsDto result = noSessionDao.doQueryFirstResult(query);
+        assertEquals(Long.valueOf(0L), result.getTestCount());
+    }
+
+}
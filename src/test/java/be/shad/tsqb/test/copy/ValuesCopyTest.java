@@ -112,6 +112,23 @@ public class ValuesCopyTest extends TypeSafeQueryCopyTest {
         validateChangedCopy(" from Person hobj1 where hobj1.name in (:np1)", copyNames);
     }
 
+    @Test
+    public void testCollectionSafeValueChangedOriginal() {
+        Person personProxy = query.from(Person.class);
+        query.named().name(personProxy, PERSON_OBJ);
+        
+        List<String> originalNames = asList("A", "B");
+        query.where(personProxy.getName()).in().named("namesParam", originalNames);
+
+        validateAndCopy(PERSON_OBJ, 
+                " from Person hobj1 where hobj1.name in (:np1)", originalNames);
+        
+        // the copy shares the values until either of them changes:
+        List<String> changedNames = asList("C", "D");
+        query.named().setValue("namesParam", changedNames);
+        validateChangedOriginal(" from Person hobj1 where hobj1.name in (:np1)", changedNames);
+    }
+
     @Test
     public void testCountTypeSafeValueCopy() {
         Person personProxy = query.from(Person.class);
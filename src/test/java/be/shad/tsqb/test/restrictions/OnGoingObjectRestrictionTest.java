@@ -15,11 +15,14 @@
  */
 package be.shad.tsqb.test.restrictions;
 
+import static org.junit.Assert.assertEquals;
+
 import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
 
+import be.shad.tsqb.NamedParameter;
 import be.shad.tsqb.domain.Building;
 import be.shad.tsqb.domain.usertype.TextWrappingObject;
 import be.shad.tsqb.test.TypeSafeQueryTest;
@@ -50,4 +53,14 @@ public class OnGoingObjectRestrictionTest extends TypeSafeQueryTest {
         query.where(query.toValue(building.getText())).in(names);
         validate(" from Building hobj1 where hobj1.text in (:np1)", names);
     }
+
+    @Test
+    public void testParamBoundWithPropertyType() {
+        Building building = query.from(Building.class);
+        query.where(query.toValue(building.getText())).eq(new TextWrappingObject("Jos"));
+        validate(" from Building hobj1 where hobj1.text = :np1", new TextWrappingObject("Jos"));
+
+        NamedParameter param = (NamedParameter) query.toHqlQuery().getParams().iterator().next();
+        assertEquals(TextWrappingObject.class, param.getType().getReturnedClass());
+    }
 }
\ No newline at end of file
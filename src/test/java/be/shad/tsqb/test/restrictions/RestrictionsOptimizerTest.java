@@ -0,0 +1,147 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test.restrictions;
+
+import static be.shad.tsqb.restrictions.RestrictionsGroupImpl.group;
+import static be.shad.tsqb.restrictions.predicate.RestrictionPredicate.IGNORE_NULL;
+import static be.shad.tsqb.values.HqlQueryValueImpl.hql;
+import static java.lang.Boolean.FALSE;
+import static java.util.Arrays.asList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.House;
+import be.shad.tsqb.test.TypeSafeQueryTest;
+
+public class RestrictionsOptimizerTest extends TypeSafeQueryTest {
+
+    @Before
+    public void enableOptimizer() {
+        query.setOptimizeRestrictions(true);
+    }
+
+    @Test
+    public void testUnchangedWhenNothingToOptimize() {
+        House house = query.from(House.class);
+        query.where(house.getFloors()).gt(4).or(house.isOccupied()).isFalse();
+        validate(" from House hobj1 where hobj1.floors > :np1 or hobj1.occupied = :np2", 4, FALSE);
+    }
+
+    @Test
+    public void testOrEqualsMergedToIn() {
+        House house = query.from(House.class);
+        query.where(house.getName()).eq("Domus").or(house.getName()).eq("Villa").or(house.getName()).eq("Castle");
+        validate(" from House hobj1 where hobj1.name in (:np1)", asList("Domus", "Villa", "Castle"));
+    }
+
+    @Test
+    public void testOrEqualsAndInMergedToIn() {
+        House house = query.from(House.class);
+        query.where(house.getName()).in(asList("Domus", "Villa")).
+                or(house.getFloors()).gt(4).
+                or(house.getName()).eq("Castle");
+        validate(" from House hobj1 where hobj1.name in (:np1) or hobj1.floors > :np2",
+                asList("Domus", "Villa", "Castle"), 4);
+    }
+
+    @Test
+    public void testLikesNotMergedToIn() {
+        House house = query.from(House.class);
+        query.where(house.getName()).startsWith("Dom").or(house.getName()).eq("Villa").
+                or(house.getName()).contains("ast").or(house.getName()).eq("Castle");
+        validate(" from House hobj1 where hobj1.name like :np1 or hobj1.name in (:np2) or hobj1.name like :np3",
+                "Dom%", asList("Villa", "Castle"), "%ast%");
+    }
+
+    @Test
+    public void testLikeNotRemovedAsDuplicateOfEqual() {
+        House house = query.from(House.class);
+        query.where(house.getName()).eq("Dom%").and(house.getName()).startsWith("Dom");
+        validate(" from House hobj1 where hobj1.name = :np1 and hobj1.name like :np2", "Dom%", "Dom%");
+    }
+
+    @Test
+    public void testAndedEqualsNotMerged() {
+        House house = query.from(House.class);
+        query.where(house.getName()).eq("Domus").and(house.getFloors()).gt(4).or(house.getName()).eq("Villa");
+        validate(" from House hobj1 where hobj1.name = :np1 and hobj1.floors > :np2 or hobj1.name = :np3",
+                "Domus", 4, "Villa");
+    }
+
+    @Test
+    public void testAndNotEqualsMergedToNotIn() {
+        House house = query.from(House.class);
+        query.where(house.getName()).notEq("Domus").and(house.getFloors()).gt(4).and(house.getName()).notEq("Villa");
+        validate(" from House hobj1 where hobj1.name not in (:np1) and hobj1.floors > :np2",
+                asList("Domus", "Villa"), 4);
+    }
+
+    @Test
+    public void testDuplicatesRemoved() {
+        House house = query.from(House.class);
+        query.where(house.getFloors()).gt(4).and(house.getName()).eq("Domus").and(house.getFloors()).gt(4);
+        validate(" from House hobj1 where hobj1.floors > :np1 and hobj1.name = :np2", 4, "Domus");
+    }
+
+    @Test
+    public void testNestedAndGroupsFlattened() {
+        House house = query.from(House.class);
+        query.where(house.getFloors()).gt(4).and(group(query).
+                and(house.isOccupied()).isFalse().and(group(query).
+                        and(house.getName()).eq("Domus")));
+        validate(" from House hobj1 where hobj1.floors > :np1 and hobj1.occupied = :np2 and hobj1.name = :np3",
+                4, FALSE, "Domus");
+    }
+
+    @Test
+    public void testNestedOrGroupFlattened() {
+        House house = query.from(House.class);
+        query.where(house.getFloors()).gt(4).or(group(query).
+                and(house.isOccupied()).isFalse().
+                or(house.getName()).eq("Domus"));
+        validate(" from House hobj1 where hobj1.floors > :np1 or hobj1.occupied = :np2 or hobj1.name = :np3",
+                4, FALSE, "Domus");
+    }
+
+    @Test
+    public void testNestedOrGroupKeepsBrackets() {
+        House house = query.from(House.class);
+        query.where(house.getFloors()).gt(4).and(group(query).
+                and(house.isOccupied()).isFalse().
+                or(house.getName()).eq("Domus").
+                or(house.getName()).eq("Villa"));
+        validate(" from House hobj1 where hobj1.floors > :np1 and (hobj1.occupied = :np2 or hobj1.name in (:np3))",
+                4, FALSE, asList("Domus", "Villa"));
+    }
+
+    @Test
+    public void testEmptyGroupsDropped() {
+        House house = query.from(House.class);
+        query.where(house.getFloors()).gt(4).and(group(query).
+                and(house.getName()).eq(null, IGNORE_NULL).
+                or(group(query).and(house.getName()).eq(null, IGNORE_NULL)));
+        validate(" from House hobj1 where hobj1.floors > :np1", 4);
+    }
+
+    @Test
+    public void testOptimizeRestrictionsCopied() {
+        House house = query.from(House.class);
+        query.where(house.getName()).eq("Domus").or(house.getName()).eq("Villa");
+        validate(query.copy(), hql(" from House hobj1 where hobj1.name in (:np1)", asList("Domus", "Villa")));
+    }
+
+}